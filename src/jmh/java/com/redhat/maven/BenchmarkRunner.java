@@ -0,0 +1,34 @@
+package com.redhat.maven;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+/** Runs the benchmarks and writes the results as JSON, so they can be compared across versions.
+ *
+ * The first argument is the result file, the other arguments are standard JMH options.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        if(args.length < 1) {
+            System.err.println("Usage: BenchmarkRunner <result file> [JMH options]");
+            System.exit(1);
+        }
+
+        CommandLineOptions options = new CommandLineOptions(Arrays.copyOfRange(args, 1, args.length));
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(options)
+                .resultFormat(ResultFormatType.JSON)
+                .result(args[0]);
+        if(options.getIncludes().isEmpty())
+            builder.include(BenchmarkRunner.class.getPackage().getName() + ".*Benchmark");
+
+        new Runner(builder.build()).run();
+    }
+}
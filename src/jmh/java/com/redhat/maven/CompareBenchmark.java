@@ -0,0 +1,78 @@
+package com.redhat.maven;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/** Comparing collected file infos and writing the report
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class CompareBenchmark {
+    @Param({"100000"})
+    public int artifacts;
+
+    @Param({"0.9"})
+    public double duplicateRatio;
+
+    private App app;
+    private CompactFileIndex index;
+    private List<FileInfo> fileInfos;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fileInfos = SyntheticRepositories.fileInfos(3, artifacts, duplicateRatio);
+        app = new App();
+        index = new CompactFileIndex();
+        fileInfos.forEach(app::addFileInfo);
+        fileInfos.forEach(index::add);
+    }
+
+    @Benchmark
+    public List<String> compareMap(ThroughputCounters counters) {
+        List<String> errors = new ArrayList<>();
+        for(Map.Entry<String, ArrayList<FileInfo>> entry : app.getFileInfosMap().entrySet()) {
+            if(!FileInfo.compareInfos(entry.getValue().toArray(new FileInfo[0])))
+                errors.add(entry.getKey());
+        }
+        counters.files += fileInfos.size();
+        return errors;
+    }
+
+    @Benchmark
+    public List<String> compareCompact(ThroughputCounters counters) {
+        counters.files += fileInfos.size();
+        return index.compare();
+    }
+
+    @Benchmark
+    public void report(ThroughputCounters counters) throws IOException {
+        WritableByteChannel channel = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer source) {
+                int count = source.remaining();
+                source.position(source.limit());
+                counters.bytes += count;
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        try (ReportWriter output = ReportWriter.create(ReportWriter.Format.CSV, new ChannelWriter(channel, ChannelWriter.BUFFER_SIZE), false)) {
+            fileInfos.forEach(fileInfo -> output.write(fileInfo, null));
+        }
+        counters.files += fileInfos.size();
+    }
+}
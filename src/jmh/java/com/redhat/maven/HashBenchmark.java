@@ -0,0 +1,51 @@
+package com.redhat.maven;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/** Computing checksums by every algorithm and buffer strategy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class HashBenchmark {
+    @Param({"md5", "sha1", "sha256", "murmur3"})
+    public String algorithm;
+
+    @Param({"streamed", "mapped"})
+    public String strategy;
+
+    @Param({"65536", "16777216"})
+    public int fileSize;
+
+    private Path root;
+    private List<FileEntry> files;
+    private FileHasher hasher;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = SyntheticRepositories.create(1, 8, 1.0, fileSize);
+        files = SyntheticRepositories.files(root);
+        hasher = new FileHasher(DigestAlgorithm.fromOption(algorithm), FileHasher.DEFAULT_BUFFER_SIZE, "mapped".equals(strategy) ? 0 : Long.MAX_VALUE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticRepositories.delete(root);
+    }
+
+    @State(Scope.Thread)
+    public static class Position {
+        int next;
+    }
+
+    @Benchmark
+    public byte[] hash(Position position, ThroughputCounters counters) throws IOException {
+        FileEntry entry = files.get(position.next++ % files.size());
+        counters.files++;
+        counters.bytes += entry.getSize();
+        return hasher.hash(entry.getFile().toPath());
+    }
+}
@@ -0,0 +1,37 @@
+package com.redhat.maven;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+
+/** Building the map of file infos and the compact index
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class MapBenchmark {
+    @Param({"100000"})
+    public int artifacts;
+
+    private List<FileInfo> fileInfos;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fileInfos = SyntheticRepositories.fileInfos(3, artifacts, 0.9);
+    }
+
+    @Benchmark
+    public App map(ThroughputCounters counters) {
+        App app = new App();
+        fileInfos.forEach(app::addFileInfo);
+        counters.files += fileInfos.size();
+        return app;
+    }
+
+    @Benchmark
+    public CompactFileIndex compact(ThroughputCounters counters) {
+        CompactFileIndex index = new CompactFileIndex();
+        fileInfos.forEach(index::add);
+        counters.files += fileInfos.size();
+        return index;
+    }
+}
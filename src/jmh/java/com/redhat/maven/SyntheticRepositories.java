@@ -0,0 +1,113 @@
+package com.redhat.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/** Generates Maven layout repositories with random content for the benchmarks
+ */
+final class SyntheticRepositories {
+    private SyntheticRepositories() {
+    }
+
+    /** Creates repositories in a new temporary directory. Every artifact is a jar and a pom in every repository.
+     *
+     * @param repositories number of repositories
+     * @param artifacts number of artifacts in every repository
+     * @param duplicateRatio fraction of artifacts identical in all repositories, the rest differs in content
+     * @param fileSize size of every jar
+     * @return directory containing the repositories
+     * @throws IOException when the files can not be written
+     */
+    static Path create(int repositories, int artifacts, double duplicateRatio, int fileSize) throws IOException {
+        Path root = Files.createTempDirectory("repo-analyzer-benchmark");
+        byte[] content = new byte[fileSize];
+        int duplicates = (int) (artifacts * duplicateRatio);
+
+        for(int repository = 0; repository < repositories; repository++) {
+            for(int artifact = 0; artifact < artifacts; artifact++) {
+                Path directory = root.resolve("repo" + repository).resolve(artifactPath(artifact));
+                Files.createDirectories(directory);
+
+                new Random(artifact < duplicates ? artifact : artifact * 31L + repository).nextBytes(content);
+                Files.write(directory.resolve("artifact" + artifact + "-1.0.jar"), content);
+                Files.write(directory.resolve("artifact" + artifact + "-1.0.pom"), ("<project>" + artifact + "</project>").getBytes());
+            }
+        }
+        return root;
+    }
+
+    private static String artifactPath(int artifact) {
+        return "org/example/group" + (artifact % 10) + "/artifact" + artifact + "/1.0";
+    }
+
+    /** Returns repositories created by {@link #create(int, int, double, int)}
+     *
+     * @param root directory containing the repositories
+     * @return root directories of the repositories
+     */
+    static List<File> repositories(Path root) {
+        List<File> result = new ArrayList<>();
+        File[] directories = root.toFile().listFiles(File::isDirectory);
+        if(directories != null) {
+            for(File directory : directories)
+                result.add(directory);
+        }
+        return result;
+    }
+
+    /** Returns all files of the repositories
+     *
+     * @param root directory containing the repositories
+     * @return files to be hashed
+     */
+    static List<FileEntry> files(Path root) {
+        List<FileEntry> result = new ArrayList<>();
+        RepositoryWalker walker = new RepositoryWalker(1, result::add, path -> { });
+        repositories(root).forEach(walker::walk);
+        return result;
+    }
+
+    /** Creates information about files of the given number of repositories
+     *
+     * @param repositories number of repositories
+     * @param artifacts number of paths in every repository
+     * @param duplicateRatio fraction of paths with identical checksums in all repositories
+     * @return information about all files
+     */
+    static List<FileInfo> fileInfos(int repositories, int artifacts, double duplicateRatio) {
+        List<FileInfo> result = new ArrayList<>(repositories * artifacts);
+        int duplicates = (int) (artifacts * duplicateRatio);
+        for(int artifact = 0; artifact < artifacts; artifact++) {
+            String path = artifactPath(artifact) + "/artifact" + artifact + "-1.0.jar";
+            for(int repository = 0; repository < repositories; repository++) {
+                long seed = artifact < duplicates ? artifact : artifact * 31L + repository;
+                byte[] checksum = new byte[16];
+                new Random(seed).nextBytes(checksum);
+                result.add(new FileInfo(1000 + artifact, path, FileInfo.toHex(checksum), "repo" + repository));
+            }
+        }
+        return result;
+    }
+
+    /** Deletes the repositories
+     *
+     * @param root directory containing the repositories
+     * @throws IOException when the files can not be deleted
+     */
+    static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    static long size(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class).size();
+    }
+}
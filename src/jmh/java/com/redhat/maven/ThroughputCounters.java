@@ -0,0 +1,18 @@
+package com.redhat.maven;
+
+import org.openjdk.jmh.annotations.*;
+
+/** Secondary benchmark results, reported as files and bytes per second
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class ThroughputCounters {
+    public long files;
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        files = 0;
+        bytes = 0;
+    }
+}
@@ -0,0 +1,62 @@
+package com.redhat.maven;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Walking through repositories, without reading the files
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class WalkBenchmark {
+    @Param({"2000"})
+    public int artifacts;
+
+    @Param({"1", "4"})
+    public int walkThreads;
+
+    private Path root;
+    private List<File> repositories;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = SyntheticRepositories.create(2, artifacts, 0.9, 16);
+        repositories = SyntheticRepositories.repositories(root);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticRepositories.delete(root);
+    }
+
+    @Benchmark
+    public long walk(ThroughputCounters counters) {
+        LongAdder found = new LongAdder();
+        RepositoryWalker walker = new RepositoryWalker(walkThreads, entry -> found.increment(), path -> { });
+        try {
+            repositories.forEach(walker::walk);
+        } finally {
+            walker.shutdown();
+        }
+        counters.files += found.sum();
+        return found.sum();
+    }
+
+    @Benchmark
+    public long walkSorted(ThroughputCounters counters) {
+        long found = 0;
+        for(File repository : repositories) {
+            SortedFileIterator files = new SortedFileIterator(repository, path -> { });
+            while(files.hasNext()) {
+                files.next();
+                found++;
+            }
+        }
+        counters.files += found;
+        return found;
+    }
+}
@@ -1,19 +1,33 @@
 package com.redhat.maven;
 
 import org.apache.commons.lang3.StringUtils;
-import org.jetbrains.annotations.NotNull;
 
-import javax.xml.bind.DatatypeConverter;
+import javax.management.JMException;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.AccessDeniedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.security.DigestInputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 
 /**
  * Application to analyze file conflicts in Nexus repositories
@@ -53,6 +67,12 @@ public class App
 
         analyzeParameters(args);
 
+        if(workerAddress != null) {
+            prepareChecksums();
+            serveWorker();
+            return;
+        }
+
         List<File> repositoriesToAnalyze = new ArrayList<>();
 
         sourceDirectories.forEach(dir -> {
@@ -65,15 +85,17 @@ public class App
             }
         });
 
-        switch (repositoriesToAnalyze.size()) {
+        switch (repositoriesToAnalyze.size() + manifestFiles.size()) {
             case 0:
                 System.err.println("No repositories to analyze. Check arguments!");
                 exitResolver.finishProcessing(ERR_NOT_ENOUGH_REPOSITORIES);
             case 1:
-                System.err.println("Only single repository matched the requirements!");
-                exitResolver.finishProcessing(ERR_NOT_ENOUGH_REPOSITORIES);
+                if(manifestDirectory == null) { // a single repository can be scanned just to write its manifest
+                    System.err.println("Only single repository matched the requirements!");
+                    exitResolver.finishProcessing(ERR_NOT_ENOUGH_REPOSITORIES);
+                }
             default:
-                System.out.println("Analyzing "+repositoriesToAnalyze.size()+" repositories.");
+                System.out.println("Analyzing "+(repositoriesToAnalyze.size() + manifestFiles.size())+" repositories.");
         }
 
         if(StringUtils.isNotBlank(outputFileName)) {
@@ -89,114 +111,1127 @@ public class App
             }
         }
 
-        for (File file : repositoriesToAnalyze) {
-            processRepository(file);
-        }
+        prepareChecksums();
 
-        System.out.println("Processing differences.");
-        for(String path : fileInfosMap.keySet()) {
-            if(!FileInfo.compareInfos(fileInfosMap.get(path).toArray(new FileInfo[0]))) {
-                errorsFound.add(path);
-            }
+        startMetrics();
+
+        if(eventLogFileName != null)
+            startWatcher(repositoriesToAnalyze);
+
+        loadManifests(repositoriesToAnalyze);
+
+        if(streaming) {
+            compareStreaming(repositoriesToAnalyze);
+            stopMetrics();
+            return;
         }
 
+        scanAndCompare(repositoriesToAnalyze);
+        stopMetrics();
+
+        if(manifestDirectory != null)
+            writeManifests(repositoriesToAnalyze);
+
+        if(gavComparison != null)
+            writeGavReport();
+
         if(errorsFound.isEmpty()) {
             System.out.println("No discrepancies found.");
         } else {
-            if(outputFileName == null) {
-                System.out.println("Writing results to "+outputFileName);
-                PrintWriter output = new PrintWriter(System.out);
-                printHeader(output);
-                errorsFound.stream().sorted().forEach(path -> getFileInfosMap().get(path).stream().sorted().forEach(fileInfo -> printEntry(fileInfo, output)));
-            } else {
-                try (PrintWriter output =  new PrintWriter(Files.newOutputStream(Paths.get(outputFileName)))) {
-                    printHeader(output);
-                    errorsFound.stream().sorted().forEach(path -> getFileInfosMap().get(path).stream().sorted().forEach(fileInfo -> printEntry(fileInfo, output)));
-                } catch (IOException e) {
-                    e.printStackTrace();
+            System.out.println("Writing results to "+(outputFileName == null ? "the standard output" : outputFileName));
+            try (ReportWriter output = openOutput()) {
+                forEachDiscrepancy(fileInfo -> writeDiscrepancy(fileInfo, output));
+            } catch (IOException | UncheckedIOException e) {
+                e.printStackTrace();
+                exitResolver.finishProcessing(ERR_ACCESS_DENIED);
+            }
+        }
+
+        if(serveAddress != null)
+            startServer(repositoriesToAnalyze);
+        try {
+            if(watcher != null)
+                watch();
+            else if(queryServer != null)
+                serving.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if(queryServer != null)
+                queryServer.close();
+        }
+    }
+
+    /** Scans the repositories, compares large files block by block and finds the discrepancies
+     *
+     * @param repositories root directories of the repositories
+     */
+    private void scanAndCompare(List<File> repositories) {
+        if(workerAddresses.isEmpty() && localWorkers == 0) {
+            if(checkpointFileName != null || resumeFileName != null)
+                openJournal();
+            try {
+                scanRepositories(repositories);
+            } finally {
+                if(journal != null)
+                    closeJournal();
+            }
+        } else
+            scanDistributed(repositories);
+
+        if(directCompare)
+            compareBlocks(directEntries, new ChunkedComparison(null, readAhead, readLimiter), true);
+        if(chunkThreshold > 0)
+            compareBlocks(chunkedEntries, new ChunkedComparison(digestAlgorithm, chunkSize, readLimiter), false);
+
+        finishChecksums();
+
+        System.out.println("Processing differences.");
+        if(compactIndex != null) {
+            long start = System.nanoTime();
+            errorsFound.addAll(compactIndex.compare());
+            metrics.stage(ScanMetrics.COMPARE, System.nanoTime() - start);
+        } else {
+            for(String path : fileInfosMap.keySet()) {
+                long start = System.nanoTime();
+                if(!FileInfo.compareInfos(fileInfosMap.get(path).toArray(new FileInfo[0]))) {
+                    errorsFound.add(path);
+                }
+                metrics.stage(ScanMetrics.COMPARE, System.nanoTime() - start);
+            }
+        }
+
+        if(fingerprints != null)
+            saveFingerprints();
+
+        if(compareArchives)
+            classifyArchives(repositories);
+    }
+
+    /** Compares discrepant archives by their entries and tells whether they differ only in bytes or also in content,
+     * the classification is written to the difference column after the differing bytes found by a block comparison
+     *
+     * @param repositories root directories of the scanned repositories, archives of manifests can not be read
+     */
+    private void classifyArchives(List<File> repositories) {
+        Map<String, File> roots = new HashMap<>();
+        repositories.forEach(repository -> roots.put(repository.getName(), repository));
+
+        ArchiveComparison comparison = new ArchiveComparison();
+        AtomicLong identical = new AtomicLong(), changed = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for(String path : errorsFound) {
+                if(!ArchiveComparison.isArchive(path))
+                    continue;
+                List<Path> copies = new ArrayList<>();
+                Set<String> checksums = new HashSet<>();
+                for(FileInfo fileInfo : fileInfosMap.get(path)) {
+                    File root = roots.get(fileInfo.getRepositoryName());
+                    // copies with a known checksum are compared once
+                    if(root != null && (fileInfo.getChecksum() == null || checksums.add(fileInfo.getChecksum())))
+                        copies.add(root.toPath().resolve(path));
+                }
+                if(copies.size() < 2)
+                    continue;
+
+                results.add(executor.submit(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        ArchiveComparison.Result result = comparison.compare(copies);
+                        (result.isContentIdentical() ? identical : changed).incrementAndGet();
+                        differences.merge(path, result.toString(), (range, classification) -> range+" "+classification);
+                    } catch (IOException e) {
+                        System.err.println("Warning: Can not compare archive "+path+": "+e.getMessage());
+                    }
+                    metrics.stage(ScanMetrics.COMPARE, System.nanoTime() - start);
+                }));
+            }
+            for(Future<?> result : results)
+                result.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Archive comparison failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while comparing archives", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        System.out.println("Compared "+(identical.get() + changed.get())+" archives: "+identical+" differ only in bytes, "
+                +changed+" in content.");
+    }
+
+    /** Starts answering queries over the analyzed files. Without the watch mode the repositories can be scanned
+     * again on request, in the watch mode the index follows the changes.
+     *
+     * @param repositories root directories of the scanned repositories
+     */
+    private void startServer(List<File> repositories) {
+        try {
+            queryServer = new QueryServer(serveAddress, threads, new QueryIndex(fileInfosMap.values(), errorsFound),
+                    watcher == null ? () -> rescan(repositories) : null);
+            System.out.println(QueryServer.LISTENING + queryServer.getPort());
+            if(!queryServer.getAddress().getAddress().isLoopbackAddress())
+                System.err.println("Warning: Queries are not authenticated, any client reaching "+queryServer.getAddress()+" can read the files and start scans");
+        } catch (IOException e) {
+            System.err.println("Error: Can not serve queries: "+e.getMessage());
+            exitResolver.finishProcessing(ERR_ACCESS_DENIED);
+        }
+    }
+
+    /** Scans the repositories again and replaces the index of the query server. Runs in its own thread.
+     *
+     * @param repositories root directories of the repositories
+     */
+    private synchronized void rescan(List<File> repositories) {
+        System.out.println("Scanning the repositories again.");
+        fileInfosMap.clear();
+        errorsFound.clear();
+        differences.clear();
+        loadManifests(repositories);
+        scanAndCompare(repositories);
+        queryServer.reload(new QueryIndex(fileInfosMap.values(), errorsFound));
+        System.out.println("Index reloaded with "+errorsFound.size()+" discrepancies.");
+    }
+
+    /** Stops the query server and the watch mode, the application ends
+     */
+    void stopServing() {
+        serving.countDown();
+        stopWatching();
+    }
+
+    /** Registers the repositories in the watcher before they are scanned, so no change made during the scan is lost
+     *
+     * @param repositories root directories of the scanned repositories
+     */
+    private void startWatcher(List<File> repositories) {
+        try {
+            watcher = new RepositoryWatcher(repositories, sweepInterval * 1000L, new RepositoryWatcher.Listener() {
+                @Override
+                public void changed(FileEntry entry) {
+                    fileChanged(entry);
+                }
+
+                @Override
+                public void deleted(FileEntry entry) {
+                    updateFile(entry.getRelativePath(), entry.getRepository().getName(), null);
+                    logEvent("DELETED", entry.getRelativePath(), entry.getRepository().getName(), null);
+                }
+
+                @Override
+                public void batchDone() {
+                    eventLog.flush();
+                    if(queryServer != null)
+                        queryServer.reload(new QueryIndex(fileInfosMap.values(), errorsFound));
+                }
+            });
+            watcher.start();
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error: Can not watch the repositories: "+e.getMessage());
+            exitResolver.finishProcessing(ERR_ACCESS_DENIED);
+        }
+    }
+
+    /** Keeps the discrepancies up to date with the changes of the repositories until {@link #stopWatching()} is called.
+     * Changes and new or resolved discrepancies are appended to the event log.
+     */
+    private void watch() {
+        try (ChannelWriter log = ChannelWriter.append(Paths.get(eventLogFileName))) {
+            eventLog = log;
+            logEvent("WATCHING", String.valueOf(errorsFound.size()), null, null);
+            log.flush();
+            System.out.println("Watching "+errorsFound.size()+" discrepancies, events are written to "+eventLogFileName);
+            watcher.run();
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error: Can not write event log "+eventLogFileName+": "+e.getMessage());
+            exitResolver.finishProcessing(ERR_ACCESS_DENIED);
+        } finally {
+            stopWatching();
+        }
+    }
+
+    /** Stops the watch mode, the application ends
+     */
+    void stopWatching() {
+        try {
+            if(watcher != null)
+                watcher.close();
+        } catch (IOException e) {
+            System.err.println("Warning: Can not stop watching: "+e.getMessage());
+        }
+    }
+
+    /** Computes checksum of a changed file and updates its discrepancy. Runs in the thread of the watcher.
+     *
+     * @param entry the changed file
+     */
+    private void fileChanged(FileEntry entry) {
+        FileInfo fileInfo = processFile(entry);
+        if(fileInfo == null) {
+            System.err.println("Warning: Can not compute checksum of "+entry.getFile().getAbsolutePath());
+            unreadableFile = null;
+            return;
+        }
+        updateFile(fileInfo.getRelativePath(), fileInfo.getRepositoryName(), fileInfo);
+        logEvent("CHANGED", fileInfo.getRelativePath(), fileInfo.getRepositoryName(), fileInfo.getChecksum());
+    }
+
+    /** Replaces the file of a repository and compares the path again. The list of files of the path is replaced,
+     * not modified, so it can be read concurrently.
+     *
+     * @param path relative path of the file
+     * @param repository name of the repository
+     * @param fileInfo new information about the file, null when it was deleted
+     */
+    private void updateFile(String path, String repository, FileInfo fileInfo) {
+        ArrayList<FileInfo> infos = fileInfosMap.compute(path, (key, previous) -> {
+            ArrayList<FileInfo> result = previous == null ? new ArrayList<>() : new ArrayList<>(previous);
+            result.removeIf(info -> info.getRepositoryName().equals(repository));
+            if(fileInfo != null)
+                result.add(fileInfo);
+            return result.isEmpty() ? null : result;
+        });
+
+        boolean conflict = infos != null && !FileInfo.compareInfos(infos.toArray(new FileInfo[0]));
+        if(conflict ? errorsFound.add(path) : errorsFound.remove(path))
+            logEvent(conflict ? "CONFLICT" : "RESOLVED", path, null, null);
+    }
+
+    /** Appends a line to the event log: time, event, path and optionally repository and checksum separated by tabs
+     *
+     * @param event kind of the event
+     * @param path relative path of the file
+     * @param repository name of the repository, null if the event concerns all repositories
+     * @param checksum checksum of the file, may be null
+     */
+    private void logEvent(String event, String path, String repository, String checksum) {
+        eventLog.text(Instant.now().toString()).raw('\t').text(event).raw('\t').text(path);
+        if(repository != null)
+            eventLog.raw('\t').text(repository);
+        if(checksum != null)
+            eventLog.raw('\t').text(checksum);
+        eventLog.newLine();
+    }
+
+
+    /** Prepares the sources of checksums: the hasher, sidecars and the checksum cache
+     */
+    private void prepareChecksums() {
+        fileHasher = new FileHasher(digestAlgorithm, readAhead, mappingThreshold, readLimiter);
+
+        if(throttleFileName != null) {
+            throttleControl = new ThrottleControl(Paths.get(throttleFileName), readLimiter, fileLimiter, maxReadMegabytes, maxFilesPerSecond);
+            throttleControl.start(THROTTLE_CONTROL_INTERVAL);
+        }
+
+        if(trustSidecars) {
+            if(digestAlgorithm.getSidecarExtension() == null) {
+                System.err.println("Error: There are no sidecar files with "+digestAlgorithm.getOption()+" checksums!");
+                exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+            }
+            sidecars = new SidecarReader(digestAlgorithm, sidecarVerificationRate);
+        }
+
+        if(cacheFileName != null) {
+            try {
+                cache = ChecksumCache.load(Paths.get(cacheFileName), digestAlgorithm.getName());
+            } catch (IOException e) {
+                System.err.println("Warning: Ignoring checksum cache: "+e.getMessage());
+                cache = new ChecksumCache(Paths.get(cacheFileName), digestAlgorithm.getName());
+            }
+        }
+    }
+
+    /** Walks the repositories and computes checksums of their files, results are stored by {@link #addFileInfo(FileInfo)}
+     *
+     * @param repositories root directories of the repositories
+     */
+    private void scanRepositories(List<File> repositories) {
+        if(cache != null)
+            cache.addRoots(repositories);
+        IntFunction<Function<FileEntry, FileInfo>> hashers = bufferSize -> {
+            FileHasher hasher = bufferSize == readAhead ? fileHasher : new FileHasher(digestAlgorithm, bufferSize, mappingThreshold, readLimiter);
+            return entry -> checkpoint(entry, processFile(entry, hasher));
+        };
+        try (IoScheduler scheduler = new IoScheduler(ioScheduler, threads, readAhead, QUEUE_SIZE_PER_THREAD, storeSettings, hashers, this::addFileInfo)) {
+            metrics.setQueue(scheduler::queueSize);
+            Map<String, List<FileEntry>> candidates = new ConcurrentHashMap<>();
+            GavComparison versions = gavReportFileName == null ? null : new GavComparison(this::processFile, this::addFileInfo, metrics::fileSkipped);
+            Consumer<FileEntry> consumer = sizeFirst ? entry -> addCandidate(candidates, entry) : versions == null ? scheduler::submit : entry -> {
+                if(!versions.add(entry))
+                    scheduler.submit(entry); // not in the Maven layout, compared file by file
+            };
+            Consumer<FileEntry> discovered = entry -> {
+                fileLimiter.acquire(1);
+                metrics.fileDiscovered(entry);
+                if(journal != null)
+                    journalPending.computeIfAbsent(entry.getRepository(), key -> new AtomicLong()).incrementAndGet();
+                consumer.accept(entry);
+            };
+            RepositoryWalker walker = new RepositoryWalker(walkThreads, readOrder, virtualConcurrency, discovered, this::accessDenied);
+            if(virtualConcurrency > 0 && !walker.isPerTask())
+                System.out.println("Warning: Virtual threads need Java 21 or newer, directories are listed by "+walkThreads+" threads.");
+            try {
+                Map<String, List<File>> stores = new LinkedHashMap<>();
+                repositories.forEach(repository -> stores.computeIfAbsent(scheduler.storeOf(repository), key -> new ArrayList<>()).add(repository));
+                if(fingerprintsFileName != null)
+                    compareFingerprints(repositories, discovered);
+                else if(stores.size() > 1)
+                    walkStores(stores.values(), walker);
+                else
+                    repositories.forEach(repository -> processRepository(repository, walker));
+            } finally {
+                walker.shutdown();
+            }
+            metrics.walkFinished();
+
+            if(sizeFirst)
+                resolveCandidates(candidates, scheduler);
+            if(versions != null)
+                compareVersions(versions);
+        }
+    }
+
+    /** Compares versions of artifacts collected while walking, other files are processed by the pipeline meanwhile
+     *
+     * @param versions files in the Maven layout grouped by GAV
+     */
+    private void compareVersions(GavComparison versions) {
+        System.out.println("Comparing "+versions.size()+" versions of artifacts.");
+        long start = System.nanoTime();
+        versions.compare(threads);
+        metrics.stage(ScanMetrics.COMPARE, System.nanoTime() - start);
+        gavComparison = versions;
+    }
+
+    /** Compares fingerprints of directory trees of the repositories, only files in differing subtrees are passed
+     * to the consumer. Discrepancies of subtrees which did not change since the previous run are taken from
+     * the fingerprint file.
+     *
+     * @param repositories root directories of the repositories
+     * @param consumer receives the files to be hashed
+     */
+    private void compareFingerprints(List<File> repositories, Consumer<FileEntry> consumer) {
+        try {
+            fingerprints = DirectoryFingerprints.load(Paths.get(fingerprintsFileName), digestAlgorithm, cache);
+        } catch (IOException e) {
+            System.err.println("Warning: Ignoring directory fingerprints: "+e.getMessage());
+            fingerprints = new DirectoryFingerprints(digestAlgorithm, cache);
+        }
+
+        long start = System.nanoTime();
+        List<DirectoryFingerprints.Node> roots = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, repositories.size()));
+        try {
+            List<Future<DirectoryFingerprints.Node>> results = new ArrayList<>();
+            for(File repository : repositories) {
+                System.out.println("... fingerprinting "+repository.getName());
+                results.add(executor.submit(() -> fingerprints.build(repository, this::accessDenied)));
+            }
+            for(Future<DirectoryFingerprints.Node> result : results)
+                roots.add(result.get());
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Fingerprinting failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fingerprinting repositories", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        metrics.stage(ScanMetrics.WALK, System.nanoTime() - start);
+
+        fingerprints.compare(repositories, roots, consumer, this::addFileInfo);
+        System.out.println("Skipped "+fingerprints.getSkippedDirectories()+" identical directories, "+fingerprints.getSkippedFiles()
+                +" files are not hashed. Compared "+fingerprints.getComparedDirectories()+" directories, took over "
+                +fingerprints.getReusedDirectories()+" unchanged directories from the previous run.");
+    }
+
+    /** Remembers discrepancies of the compared directories and writes the fingerprints for the next run
+     */
+    private void saveFingerprints() {
+        fingerprints.recordDiscrepancies(errorsFound, fileInfosMap::get);
+        try {
+            fingerprints.save(Paths.get(fingerprintsFileName));
+        } catch (IOException e) {
+            System.err.println("Error: Can not write directory fingerprints "+fingerprintsFileName+": "+e.getMessage());
+        }
+    }
+
+    /** Walks repositories on different file stores at once, so every store is busy
+     *
+     * @param stores repositories grouped by their file stores
+     * @param walker the walker
+     */
+    private void walkStores(Collection<List<File>> stores, RepositoryWalker walker) {
+        ExecutorService executor = Executors.newFixedThreadPool(stores.size());
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for(List<File> store : stores)
+                results.add(executor.submit(() -> store.forEach(repository -> processRepository(repository, walker))));
+            for(Future<?> result : results)
+                result.get();
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Walking failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while walking repositories", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Compares files which were not passed to the checksum pipeline block by block: large files and, in the direct
+     * comparison, small groups of files with the same size. Copies with the same size get the root checksum of their
+     * blocks when they are identical, otherwise the first differing range is remembered and the path is reported.
+     * Other files are stored without checksum.
+     *
+     * @param groups copies of the files grouped by relative path, the map is cleared
+     * @param comparison block comparison
+     * @param record whether the files have to be recorded in the metrics, they are not known to the pipeline
+     */
+    private void compareBlocks(Map<String, List<FileEntry>> groups, ChunkedComparison comparison, boolean record) {
+        System.out.println("Comparing "+groups.size()+" files block by block.");
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for(List<FileEntry> entries : groups.values())
+                results.add(executor.submit(() -> compareChunks(comparison, entries, record)));
+            for(Future<?> result : results)
+                result.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Block comparison failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while comparing blocks", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        groups.clear();
+        errorsFound.addAll(differences.keySet());
+    }
+
+    /** Compares copies of one file, runs in a thread of the block comparison
+     *
+     * @param comparison block comparison
+     * @param entries all copies of the file
+     * @param record whether the files have to be recorded in the metrics
+     */
+    private void compareChunks(ChunkedComparison comparison, List<FileEntry> entries, boolean record) {
+        long start = System.nanoTime();
+        String checksum = null;
+        final long size = entries.get(0).getSize();
+        if(entries.size() > 1 && entries.stream().allMatch(entry -> entry.getSize() == size)) {
+            List<Path> copies = new ArrayList<>();
+            entries.forEach(entry -> copies.add(entry.getFile().toPath()));
+            try {
+                ChunkedComparison.Result result = comparison.compare(copies);
+                if(result.isIdentical() && result.getRoot() != null)
+                    checksum = FileInfo.toHex(result.getRoot());
+                else if(!result.isIdentical())
+                    differences.put(entries.get(0).getRelativePath(), result.getDifferenceStart()+"-"+result.getDifferenceEnd());
+            } catch (AccessDeniedException e) {
+                unreadableFile = Paths.get(e.getFile()); // reported when all comparisons finish
+            } catch (IOException e) {
+                System.err.println("Error comparing blocks: "+e.getMessage());
+            }
+        }
+
+        long nanos = System.nanoTime() - start;
+        for(FileEntry entry : entries) {
+            if(record)
+                metrics.fileProcessed(entry, nanos / entries.size());
+            addFileInfo(entry.toFileInfo(checksum));
+        }
+        metrics.stage(ScanMetrics.COMPARE, nanos);
+    }
+
+    /** Splits the repositories among workers and collects their files. Repositories are assigned round-robin,
+     * every worker gets a single request and the responses are read concurrently.
+     *
+     * @param repositories root directories of the repositories
+     */
+    private void scanDistributed(List<File> repositories) {
+        List<Process> processes = new ArrayList<>();
+        List<InetSocketAddress> workers = new ArrayList<>(workerAddresses);
+        ExecutorService executor = null;
+        try {
+            for(int i = 0; i < localWorkers; i++)
+                workers.add(startLocalWorker(processes));
+
+            List<List<File>> partitions = new ArrayList<>();
+            for(int i = 0; i < Math.min(workers.size(), repositories.size()); i++)
+                partitions.add(new ArrayList<>());
+            for(int i = 0; i < repositories.size(); i++)
+                partitions.get(i % partitions.size()).add(repositories.get(i));
+
+            executor = Executors.newFixedThreadPool(partitions.size());
+            List<Future<?>> results = new ArrayList<>();
+            for(int i = 0; i < partitions.size(); i++) {
+                InetSocketAddress worker = workers.get(i);
+                List<File> partition = partitions.get(i);
+                System.out.println("... sending "+partition.size()+" repositories to the worker "+worker);
+                results.add(executor.submit(() -> {
+                    ScanWorker.scan(worker, partition, digestAlgorithm.getName(), this::addFileInfo);
+                    return null;
+                }));
+            }
+            for(int i = 0; i < results.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException e) {
+                    System.err.println("Error: Worker "+workers.get(i)+" failed: "+e.getCause().getMessage());
                     exitResolver.finishProcessing(ERR_ACCESS_DENIED);
                 }
             }
+        } catch (IOException e) {
+            System.err.println("Error: Can not start a worker: "+e.getMessage());
+            exitResolver.finishProcessing(ERR_ACCESS_DENIED);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for workers", e);
+        } finally {
+            if(executor != null)
+                executor.shutdownNow();
+            processes.forEach(Process::destroy);
         }
     }
 
+    /** Starts a worker in a new JVM on the loopback interface. Threads and limits of reading are split among
+     * the workers, so together they do not exceed the limits of the command line. Options of hashing are passed on,
+     * every worker keeps its own checksum cache next to the cache file, the workers get the same repositories
+     * in every run of the same command.
+     *
+     * @param processes started processes, the new one is added
+     * @return address of the worker
+     * @throws IOException when the worker can not be started or it does not report its port
+     */
+    private InetSocketAddress startLocalWorker(List<Process> processes) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>(Arrays.asList(java, "-cp", System.getProperty("java.class.path"), App.class.getName(),
+                "--worker", "localhost:0", "--digest", digestAlgorithm.getOption(),
+                "--threads", String.valueOf(Math.max(1, threads / localWorkers))));
+        if(maxReadMegabytes > 0)
+            command.addAll(Arrays.asList("--max-read-mbps", String.valueOf(Math.max(1, maxReadMegabytes / localWorkers))));
+        if(maxFilesPerSecond > 0)
+            command.addAll(Arrays.asList("--max-files-per-sec", String.valueOf(Math.max(1, maxFilesPerSecond / localWorkers))));
+        if(cacheFileName != null)
+            command.addAll(Arrays.asList("--cache", cacheFileName + ".worker" + processes.size()));
+        if(trustSidecars)
+            command.addAll(Arrays.asList("--trust-sidecars", "--verify-sidecars", String.valueOf(sidecarVerificationRate * 100)));
+        if(mappingThreshold != FileHasher.DEFAULT_MAPPING_THRESHOLD)
+            command.addAll(Arrays.asList("--mmap-threshold", String.valueOf(mappingThreshold / (1024 * 1024))));
+        if(readAhead != FileHasher.DEFAULT_BUFFER_SIZE)
+            command.addAll(Arrays.asList("--read-ahead", String.valueOf(readAhead / 1024)));
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        processes.add(process);
 
-    /** Writes one formatted fileInfo entity
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        String line;
+        while((line = reader.readLine()) != null) {
+            if(line.startsWith(ScanWorker.LISTENING)) {
+                Thread drain = new Thread(() -> {
+                    try {
+                        while(reader.readLine() != null) {
+                            // the output of the worker is not interesting, it just must not block the worker
+                        }
+                    } catch (IOException e) {
+                        // the worker ended
+                    }
+                }, "worker-output");
+                drain.setDaemon(true);
+                drain.start();
+                return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(line.substring(ScanWorker.LISTENING.length())));
+            }
+        }
+        throw new IOException("Worker ended without listening, exit code "+process.exitValue());
+    }
+
+    /** Serves coordinators of a distributed scan until the worker is closed
+     */
+    private void serveWorker() {
+        try (ScanWorker worker = new ScanWorker(workerAddress, digestAlgorithm.getName(), sourceDirectories, this::scanManifests)) {
+            scanWorker = worker;
+            System.out.println(ScanWorker.LISTENING + worker.getPort());
+            worker.serve();
+        } catch (IOException e) {
+            System.err.println("Error: Worker failed: "+e.getMessage());
+            exitResolver.finishProcessing(ERR_ACCESS_DENIED);
+        }
+    }
+
+    /** Scans repositories for a coordinator
      *
-     * @param fileInfo information about file
-     * @param printWriter target writer object
+     * @param repositories root directories of the repositories
+     * @return scanned repositories in the order of the list, a repository with the same name as a previous one is empty
+     *         because its files are part of the previous one
      */
-    private static void printEntry(FileInfo fileInfo, PrintWriter printWriter) {
-        printWriter.format("\"%s\",\"%s\",%s,%d%n", fileInfo.getRepositoryName(), fileInfo.getRelativePath(), fileInfo.getMd5(), fileInfo.getSize());
+    private List<RepositoryInfo> scanManifests(List<File> repositories) {
+        fileInfosMap.clear();
+        unreadableFile = null;
+        scanRepositories(repositories);
+        finishChecksums();
+
+        Map<String, RepositoryInfo> scanned = new HashMap<>();
+        Iterable<FileInfo> fileInfos = () -> fileInfosMap.values().stream().flatMap(List::stream).iterator();
+        RepositoryInfo.groupByRepository(fileInfos, digestAlgorithm.getName()).forEach(repository -> scanned.put(repository.getName(), repository));
+
+        List<RepositoryInfo> result = new ArrayList<>();
+        for(File repository : repositories) {
+            RepositoryInfo info = scanned.remove(repository.getName());
+            result.add(info != null ? info : new RepositoryInfo(repository.getName(), digestAlgorithm.getName()));
+        }
+        fileInfosMap.clear();
+        return result;
     }
 
-    /** Prints the header of the CSV file
+    /** Adds files of repositories stored in manifests. A repository with the same name as another analyzed
+     * repository gets the name of its manifest appended.
      *
-     * @param printWriter print writer for outpu
+     * @param repositories root directories of the scanned repositories
      */
-    private static void printHeader(PrintWriter printWriter) {
-        printWriter.println("\"repository\",\"file\",\"checksum\",\"size\"");
+    private void loadManifests(List<File> repositories) {
+        Set<String> names = new HashSet<>();
+        repositories.forEach(repository -> names.add(repository.getName()));
+
+        for(File manifest : manifestFiles) {
+            try (InputStream input = Files.newInputStream(manifest.toPath())) {
+                String[] name = new String[1];
+                RepositoryInfo repository = RepositoryInfo.readManifest(input, fileInfo -> {
+                    if(name[0] == null)
+                        name[0] = names.contains(fileInfo.getRepositoryName()) ? fileInfo.getRepositoryName() + "@" + manifest.getName() : fileInfo.getRepositoryName();
+                    addFileInfo(new FileInfo(fileInfo.getSize(), fileInfo.getRelativePath(), fileInfo.getChecksum(), name[0], fileInfo.getLastModified()));
+                });
+                names.add(name[0] == null ? repository.getName() : name[0]);
+
+                if(!digestAlgorithm.getName().equals(repository.getAlgorithm())) {
+                    System.err.println("Error: Manifest "+manifest+" contains "+repository.getAlgorithm()+" checksums, not "+digestAlgorithm.getName()+"!");
+                    exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+                }
+                System.out.println("... loaded manifest of "+repository.getName()+" from "+manifest);
+            } catch (IOException e) {
+                System.err.println("Error: Can not read manifest "+manifest+": "+e.getMessage());
+                exitResolver.finishProcessing(ERR_ACCESS_DENIED);
+            }
+        }
+    }
+
+    /** Writes manifests of all scanned repositories into the manifest directory
+     *
+     * @param repositories root directories of the scanned repositories
+     */
+    private void writeManifests(List<File> repositories) {
+        Set<String> scanned = new HashSet<>();
+        repositories.forEach(repository -> scanned.add(repository.getName()));
+
+        Iterable<FileInfo> fileInfos = () -> fileInfosMap.values().stream().flatMap(List::stream).iterator();
+        for(RepositoryInfo repository : RepositoryInfo.groupByRepository(fileInfos, digestAlgorithm.getName())) {
+            if(!scanned.contains(repository.getName()))
+                continue; // loaded from a manifest
+
+            File manifest = new File(manifestDirectory, repository.getName() + MANIFEST_EXTENSION);
+            try (OutputStream output = Files.newOutputStream(manifest.toPath())) {
+                repository.writeManifest(output);
+                System.out.println("Manifest of "+repository.getName()+" written to "+manifest);
+            } catch (IOException e) {
+                System.err.println("Error: Can not write manifest "+manifest+": "+e.getMessage());
+                exitResolver.finishProcessing(ERR_ACCESS_DENIED);
+            }
+        }
+    }
+
+    /** Compares the repositories in the streaming mode, discrepancies are written as soon as they are found.
+     *
+     * @param repositories root directories of the repositories
+     */
+    private void compareStreaming(List<File> repositories) {
+        System.out.println("Comparing repositories in the order of paths.");
+        if(cache != null)
+            cache.addRoots(repositories);
+        ReportWriter[] output = new ReportWriter[1];
+        try {
+            long count = new StreamingComparison(repositories, entry -> {
+                fileLimiter.acquire(1);
+                return processFile(entry);
+            }, threads, this::accessDenied).run((path, infos) -> {
+                errorsFound.add(path);
+                try {
+                    if(output[0] == null)
+                        output[0] = openOutput();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                infos.stream().sorted().forEach(fileInfo -> output[0].write(fileInfo, null));
+            });
+            System.out.println("Compared "+count+" files.");
+        } catch (UncheckedIOException e) {
+            e.printStackTrace();
+            exitResolver.finishProcessing(ERR_ACCESS_DENIED);
+        } finally {
+            closeOutput(output[0]);
+        }
+
+        finishChecksums();
+
+        if(errorsFound.isEmpty())
+            System.out.println("No discrepancies found.");
+    }
+
+    /** Opens the report of the results in the output file or on the standard output and writes its header
+     *
+     * @return writer of the report
+     * @throws IOException when the output file can not be opened
+     */
+    private ReportWriter openOutput() throws IOException {
+        ChannelWriter channel = outputFileName == null ? ChannelWriter.standardOutput(gzip) : ChannelWriter.open(Paths.get(outputFileName), gzip);
+        return ReportWriter.create(reportFormat, channel, hasDifferences());
+    }
+
+    /** Tells whether the report has the difference column
+     *
+     * @return true when discrepancies are compared block by block or by archive entries
+     */
+    private boolean hasDifferences() {
+        return chunkThreshold > 0 || directCompare || compareArchives;
+    }
+
+    /** Closes the report opened by {@link #openOutput()}, the standard output is just flushed
+     *
+     * @param output writer of the report, may be null if nothing was written
+     */
+    private void closeOutput(ReportWriter output) {
+        if(output == null)
+            return;
+        try {
+            output.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+            exitResolver.finishProcessing(ERR_ACCESS_DENIED);
+        }
+    }
+
+    /** Writes results of the comparison by versions of artifacts, one row per GAV
+     */
+    private void writeGavReport() {
+        try (ChannelWriter output = ChannelWriter.open(Paths.get(gavReportFileName), false)) {
+            int conflicts = gavComparison.writeReport(output);
+            System.out.println("Found "+conflicts+" conflicting from "+gavComparison.getResults().size()
+                    +" versions of artifacts. Report written to "+gavReportFileName);
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error: Can not write report of versions "+gavReportFileName+": "+e.getMessage());
+            exitResolver.finishProcessing(ERR_ACCESS_DENIED);
+        }
     }
 
-    public List<String> getErrorsFound() {
+    /** Reports unreadable files and statistics of checksum sources when all checksums are computed
+     */
+    private void finishChecksums() {
+        if(unreadableFile != null)
+            accessDenied(unreadableFile);
+
+        if(sidecars != null)
+            System.out.println(sidecars.getStatistics());
+
+        if(cache != null) {
+            System.out.println(cache.getStatistics());
+            try {
+                cache.save();
+            } catch (IOException e) {
+                System.err.println("Error: Can not write checksum cache "+cacheFileName+": "+e.getMessage());
+            }
+        }
+    }
+
+    /** Passes files of all found discrepancies sorted by path and repository to the consumer. The paths are sorted
+     * in place and the files of a path are passed as soon as they are sorted.
+     *
+     * @param consumer receives the files
+     */
+    private void forEachDiscrepancy(Consumer<FileInfo> consumer) {
+        if(compactIndex != null) {
+            compactIndex.forEachDiscrepancy(consumer);
+            return;
+        }
+
+        String[] paths = errorsFound.toArray(new String[0]);
+        Arrays.sort(paths);
+        for(String path : paths) {
+            List<FileInfo> infos = getFileInfosMap().get(path);
+            infos.sort(null);
+            infos.forEach(consumer);
+        }
+    }
+
+    /** Writes a discrepancy, with the differing range when large files are compared block by block
+     *
+     * @param fileInfo information about file
+     * @param output writer of the report
+     */
+    private void writeDiscrepancy(FileInfo fileInfo, ReportWriter output) {
+        output.write(fileInfo, hasDifferences() ? differences.getOrDefault(fileInfo.getRelativePath(), "") : null);
+    }
+
+    public Set<String> getErrorsFound() {
         return errorsFound;
     }
 
-    private List<String> errorsFound = new ArrayList<>();
+    private final Set<String> errorsFound = ConcurrentHashMap.newKeySet();
+
+    private void processRepository(File repository, RepositoryWalker walker) {
+        if(journal != null && journal.isCompleted(repository)) {
+            System.out.println("... resuming "+repository.getName()+" from the checkpoint");
+            journal.getFiles(repository).forEach(this::addFileInfo);
+            return;
+        }
 
-    private void processRepository(File repository) {
         System.out.println("... processing "+repository.getName());
-        processDirectory(repository, repository);
+        long start = System.nanoTime();
+        walker.walk(repository);
+        metrics.stage(ScanMetrics.WALK, System.nanoTime() - start);
+
+        if(journal != null) {
+            journalWalked.add(repository);
+            if(journalPending.computeIfAbsent(repository, key -> new AtomicLong()).get() == 0)
+                repositoryDone(repository);
+        }
     }
 
-    private HashMap<String, ArrayList<FileInfo>> fileInfosMap = new HashMap<>();
+    /** Journals a computed file and completes its repository when it was the last one. Runs in the threads of the
+     * checksum pipeline.
+     *
+     * @param entry the file
+     * @param fileInfo information about the file, null if it could not be computed
+     * @return the information about the file
+     */
+    private FileInfo checkpoint(FileEntry entry, FileInfo fileInfo) {
+        if(journal == null)
+            return fileInfo;
+
+        File repository = entry.getRepository();
+        if(fileInfo != null)
+            journal.fileDone(entry, fileInfo);
+        else
+            journalIncomplete.add(repository); // a failed file has to be computed again when the scan is resumed
 
-    private  void processDirectory(@NotNull File directory, File repository) {
-        final File[] files = directory.listFiles(file -> {
-            if (!file.canRead() ) {
-                System.err.println("Error: Can not read " + file.getAbsolutePath() + "!");
-                exitResolver.finishProcessing(ERR_ACCESS_DENIED);
-            }
+        if(journalPending.get(repository).decrementAndGet() == 0 && journalWalked.contains(repository))
+            repositoryDone(repository);
+        return fileInfo;
+    }
 
-            if(file.getName().startsWith(".") || file.getName().startsWith("maven-metadata.xml") || file.getName().endsWith(".md5") || file.getName().endsWith(".sha1"))
-                return false; // remove Nexus index files and directories and ignore maven-metadata.xml, that will be generated by Nexus
+    /** Writes completion of a repository to the journal, at most once
+     *
+     * @param repository root directory of the repository
+     */
+    private void repositoryDone(File repository) {
+        if(!journalIncomplete.contains(repository) && journalCompleted.add(repository))
+            journal.repositoryDone(repository);
+    }
 
-            if (file.isDirectory()) {
-                processDirectory(file, repository);
-                return false; // a directory was parsed in the previous step and does not need to be processed again
+    /** Opens the checkpoint journal, either a new one or the resumed one
+     */
+    private void openJournal() {
+        try {
+            if(resumeFileName != null) {
+                journal = CheckpointJournal.resume(Paths.get(resumeFileName), digestAlgorithm.getName());
+                System.out.println("Resuming the scan from "+resumeFileName);
             } else {
-                //
-                return true;
+                journal = CheckpointJournal.create(Paths.get(checkpointFileName), digestAlgorithm.getName());
             }
+        } catch (IOException e) {
+            System.err.println("Error: Can not open checkpoint journal: "+e.getMessage());
+            exitResolver.finishProcessing(ERR_ACCESS_DENIED);
+        }
+    }
 
-        });
+    /** Closes the checkpoint journal when all files are computed
+     */
+    private void closeJournal() {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Error: Can not write checkpoint journal: "+e.getMessage());
+        }
+    }
 
-        if(files == null)
-            return;
+    /** Starts periodic reporting of the metrics, if it was requested
+     */
+    private void startMetrics() {
+        if(jmx) {
+            try {
+                metrics.registerMBean();
+            } catch (JMException e) {
+                System.err.println("Warning: Can not register metrics in JMX: "+e.getMessage());
+            }
+        }
 
-        for (File file : files) {
-            // this is a file and needs to be processed
+        if(progressInterval > 0 || metricsFileName != null)
+            metrics.startReporting(progressInterval > 0 ? progressInterval : DEFAULT_METRICS_INTERVAL, progressInterval > 0,
+                    metricsFileName == null ? null : Paths.get(metricsFileName));
+    }
 
-            try (InputStream is = Files.newInputStream(Paths.get(file.getPath()))) {
-                MessageDigest md = MessageDigest.getInstance("MD5");
-                DigestInputStream digestInputStream = new DigestInputStream(is, md);
+    /** Stops periodic reporting and prints the summary of the scan, stops also the throttle control
+     */
+    private void stopMetrics() {
+        metrics.stopReporting(progressInterval > 0, metricsFileName == null ? null : Paths.get(metricsFileName));
+        if(throttleControl != null)
+            throttleControl.stop();
+    }
 
-                byte[] buffer = new byte[(int)Long.min(file.length(), 0xFFFF)];
+    /** Reports a file or directory which can not be read and stops the application
+     *
+     * @param path the file
+     */
+    private void accessDenied(Path path) {
+        if(workerAddress != null) // reported to the coordinator
+            throw new UncheckedIOException(new AccessDeniedException("Can not read " + path.toAbsolutePath() + "!"));
 
-                //noinspection StatementWithEmptyBody
-                while(digestInputStream.read(buffer) > 0);  // read whole file
+        System.err.println("Error: Can not read " + path.toAbsolutePath() + "!");
+        exitResolver.finishProcessing(ERR_ACCESS_DENIED);
+    }
 
-                FileInfo fileInfo = new FileInfo(file.length(), file.getAbsolutePath().substring(repository.getAbsolutePath().length()+1), DatatypeConverter.printHexBinary(md.digest()), repository.getName());
-                fileInfosMap.computeIfAbsent(fileInfo.getRelativePath(), key->new ArrayList<>()).add(fileInfo);
-            } catch (IOException | NoSuchAlgorithmException e) {
-                System.err.println("Error calculating checksum: "+e.getMessage());
-                e.printStackTrace();
+    /** First phase of the size-first mode, only remembers the file. Can be called from multiple threads at once.
+     *
+     * @param candidates files grouped by relative path
+     * @param entry found file
+     */
+    private static void addCandidate(Map<String, List<FileEntry>> candidates, FileEntry entry) {
+        candidates.compute(entry.getRelativePath(), (key, entries) -> {
+            if(entries == null)
+                entries = new ArrayList<>();
+            entries.add(entry);
+            return entries;
+        });
+    }
+
+    /** Second phase of the size-first mode. Only files with the same relative path and the same size in more
+     * repositories can differ just in the content, so only those are passed to the checksum pipeline. Other files
+     * are stored without checksum.
+     *
+     * @param candidates files found in all repositories, grouped by relative path
+     * @param scheduler pipelines computing checksums
+     */
+    private void resolveCandidates(Map<String, List<FileEntry>> candidates, IoScheduler scheduler) {
+        long total = 0, hashed = 0, compared = 0;
+        for(List<FileEntry> entries : candidates.values()) {
+            total += entries.size();
+            final long size = entries.get(0).getSize();
+            if(directCompare && entries.size() > 1 && entries.size() <= ChunkedComparison.MAX_DIRECT_COPIES && entries.stream().allMatch(entry -> entry.getSize() == size)) {
+                compared += entries.size();
+                directEntries.put(entries.get(0).getRelativePath(), entries);
+            } else if(entries.size() > 1 && entries.stream().allMatch(entry -> entry.getSize() == size)) {
+                hashed += entries.size();
+                entries.forEach(scheduler::submit);
+            } else {
+                entries.forEach(entry -> {
+                    metrics.fileSkipped(entry);
+                    addFileInfo(entry.toFileInfo(null));
+                });
             }
+        }
+        System.out.println("Computing checksums of "+hashed+" from "+total+" files.");
+        if(directCompare)
+            System.out.println("Comparing "+compared+" files directly.");
+    }
 
+    private final ConcurrentHashMap<String, ArrayList<FileInfo>> fileInfosMap = new ConcurrentHashMap<>();
 
+    /** Stores information about a file. Can be called from multiple threads at once.
+     *
+     * @param fileInfo information about the file
+     */
+    void addFileInfo(FileInfo fileInfo) {
 
+        if(compactIndex != null) {
+            compactIndex.add(fileInfo);
+            return;
         }
 
+        fileInfosMap.compute(fileInfo.getRelativePath(), (key, infos) -> {
+            if(infos == null)
+                infos = new ArrayList<>();
+            infos.add(fileInfo);
+            return infos;
+        });
+    }
+
+    /** Computes checksum of a single file and records it in the metrics. Runs in the threads of the checksum pipeline.
+     *
+     * @param entry file to be processed
+     * @return information about the file or null if the checksum could not be computed
+     */
+    private FileInfo processFile(FileEntry entry) {
+        return processFile(entry, fileHasher);
+    }
+
+    /** Computes checksum of a single file and records it in the metrics. Runs in the threads of the checksum pipeline.
+     *
+     * @param entry file to be processed
+     * @param hasher hasher with the read buffer of the file store of the file
+     * @return information about the file or null if the checksum could not be computed
+     */
+    private FileInfo processFile(FileEntry entry, FileHasher hasher) {
+        long start = System.nanoTime();
+        try {
+            return computeFileInfo(entry, hasher);
+        } finally {
+            metrics.fileProcessed(entry, System.nanoTime() - start);
+        }
+    }
+
+    private FileInfo computeFileInfo(FileEntry entry, FileHasher hasher) {
+        if(chunkThreshold > 0 && entry.getSize() >= chunkThreshold) {
+            addCandidate(chunkedEntries, entry); // compared block by block when all files are found
+            return null;
+        }
+
+        if(journal != null) {
+            FileInfo journaled = journal.find(entry);
+            if(journaled != null)
+                return journaled;
+        }
+
+        File file = entry.getFile();
+        if(cache != null) {
+            byte[] cached = cache.get(file.getAbsolutePath(), entry.getSize(), entry.getLastModified());
+            if(cached != null)
+                return entry.toFileInfo(FileInfo.toHex(cached));
+        }
+
+        try {
+            if(sidecars != null) {
+                byte[] checksum = sidecars.read(file.toPath(), entry.getLastModified());
+                if(checksum != null && !sidecars.shouldVerify())
+                    return entry.toFileInfo(FileInfo.toHex(checksum));
+
+                if(checksum != null) {
+                    byte[] computed = hasher.hash(file.toPath());
+                    sidecars.recordVerification(Arrays.equals(checksum, computed));
+                    if(!Arrays.equals(checksum, computed))
+                        System.err.println("Warning: Wrong checksum in the sidecar of "+file.getAbsolutePath());
+                    return entry.toFileInfo(FileInfo.toHex(computed));
+                }
+            }
+
+            byte[] checksum = hasher.hash(file.toPath());
+            if(cache != null)
+                cache.put(file.getAbsolutePath(), entry.getSize(), entry.getLastModified(), checksum);
+
+            return entry.toFileInfo(FileInfo.toHex(checksum));
+        } catch (AccessDeniedException e) {
+            unreadableFile = file.toPath(); // reported when all workers finish
+            return null;
+        } catch (IOException e) {
+            System.err.println("Error calculating checksum: "+e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
     }
 
     private  List<String> includeRepos = new ArrayList<>(),
@@ -207,47 +1242,192 @@ public class App
     private static final int INCLUDE = 1;
     private static final int EXCLUDE = 2;
     private static final int OUTPUT_FILE = 3;
+    private static final int THREADS = 4;
+    private static final int CACHE_FILE = 5;
+    private static final int MAPPING_THRESHOLD = 6;
+    private static final int DIGEST = 7;
+    private static final int VERIFY_SIDECARS = 8;
+    private static final int WALK_THREADS = 9;
+    private static final int PROGRESS = 10;
+    private static final int METRICS_FILE = 11;
+    private static final int MANIFEST = 12;
+    private static final int MANIFEST_DIRECTORY = 13;
+    private static final int WORKER = 14;
+    private static final int WORKERS = 15;
+    private static final int LOCAL_WORKERS = 16;
+    private static final int CHUNK_THRESHOLD = 17;
+    private static final int CHUNK_SIZE = 18;
+    private static final int STORE = 19;
+    private static final int READ_AHEAD = 20;
+    private static final int READ_ORDER = 21;
+    private static final int MAX_READ_MBPS = 22;
+    private static final int MAX_FILES_PER_SEC = 23;
+    private static final int THROTTLE_FILE = 24;
+    private static final int CHECKPOINT = 25;
+    private static final int RESUME = 26;
+    private static final int FORMAT = 27;
+    private static final int COMPRESS = 28;
+    private static final int WATCH = 30;
+    private static final int SWEEP_INTERVAL = 31;
+    private static final int SERVE = 32;
+    private static final int GAV_REPORT = 33;
+    private static final int VIRTUAL_THREADS = 34;
+    private static final int FINGERPRINTS = 35;
     private static final int NOTHING = 0;
 
+    /** Switches followed by a value, the value is parsed in the state the switch sets */
+    private static final Map<String, Integer> VALUE_OPTIONS = new HashMap<>();
+    static {
+        VALUE_OPTIONS.put("--file", OUTPUT_FILE);
+        VALUE_OPTIONS.put("--include", INCLUDE);
+        VALUE_OPTIONS.put("--exclude", EXCLUDE);
+        VALUE_OPTIONS.put("--manifest", MANIFEST);
+        VALUE_OPTIONS.put("--write-manifests", MANIFEST_DIRECTORY);
+        VALUE_OPTIONS.put("--worker", WORKER);
+        VALUE_OPTIONS.put("--workers", WORKERS);
+        VALUE_OPTIONS.put("--local-workers", LOCAL_WORKERS);
+        VALUE_OPTIONS.put("--chunk-threshold", CHUNK_THRESHOLD);
+        VALUE_OPTIONS.put("--chunk-size", CHUNK_SIZE);
+        VALUE_OPTIONS.put("--store", STORE);
+        VALUE_OPTIONS.put("--read-ahead", READ_AHEAD);
+        VALUE_OPTIONS.put("--read-order", READ_ORDER);
+        VALUE_OPTIONS.put("--max-read-mbps", MAX_READ_MBPS);
+        VALUE_OPTIONS.put("--max-files-per-sec", MAX_FILES_PER_SEC);
+        VALUE_OPTIONS.put("--throttle-file", THROTTLE_FILE);
+        VALUE_OPTIONS.put("--checkpoint", CHECKPOINT);
+        VALUE_OPTIONS.put("--resume", RESUME);
+        VALUE_OPTIONS.put("--format", FORMAT);
+        VALUE_OPTIONS.put("--compress", COMPRESS);
+        VALUE_OPTIONS.put("--watch", WATCH);
+        VALUE_OPTIONS.put("--sweep-interval", SWEEP_INTERVAL);
+        VALUE_OPTIONS.put("--serve", SERVE);
+        VALUE_OPTIONS.put("--gav-report", GAV_REPORT);
+        VALUE_OPTIONS.put("--progress", PROGRESS);
+        VALUE_OPTIONS.put("--metrics-file", METRICS_FILE);
+        VALUE_OPTIONS.put("--cache", CACHE_FILE);
+        VALUE_OPTIONS.put("--verify-sidecars", VERIFY_SIDECARS);
+        VALUE_OPTIONS.put("--digest", DIGEST);
+        VALUE_OPTIONS.put("--mmap-threshold", MAPPING_THRESHOLD);
+        VALUE_OPTIONS.put("--parallel-walk", WALK_THREADS);
+        VALUE_OPTIONS.put("--fingerprints", FINGERPRINTS);
+        VALUE_OPTIONS.put("--virtual-threads", VIRTUAL_THREADS);
+        VALUE_OPTIONS.put("--threads", THREADS);
+    }
+
 
     static final int ERR_WRONG_PARAMETERS = 1;
     static final int ERR_ACCESS_DENIED = 2;
     static final int ERR_NOT_ENOUGH_REPOSITORIES = 3;
     static final int ERR_FILE_ALREADY_EXIST = 4;
 
+    private static final int QUEUE_SIZE_PER_THREAD = 64;
+    private static final int DEFAULT_METRICS_INTERVAL = 10;
+    private static final int DEFAULT_SWEEP_INTERVAL = 60;
+    private static final int MAX_BUFFER_SIZE = 1024 * 1024 * 1024;
+    private static final long THROTTLE_CONTROL_INTERVAL = 5000;
+    static final String MANIFEST_EXTENSION = ".manifest";
+
     private boolean forceOverwrite = false;
     private String outputFileName;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean sizeFirst = false;
+    private String cacheFileName;
+    private ChecksumCache cache;
+    private long mappingThreshold = FileHasher.DEFAULT_MAPPING_THRESHOLD;
+    private FileHasher fileHasher;
+    private DigestAlgorithm digestAlgorithm = DigestAlgorithm.MD5;
+    private boolean trustSidecars = false;
+    private double sidecarVerificationRate = 0;
+    private SidecarReader sidecars;
+    private int walkThreads = 1;
+    private int virtualConcurrency = 0;
+    private String fingerprintsFileName;
+    private DirectoryFingerprints fingerprints;
+    private volatile Path unreadableFile;
+    private boolean streaming = false;
+    private CompactFileIndex compactIndex;
+    private final ScanMetrics metrics = new ScanMetrics();
+    private int progressInterval = 0;
+    private String metricsFileName;
+    private boolean jmx = false;
+    private final List<File> manifestFiles = new ArrayList<>();
+    private File manifestDirectory;
+    private InetSocketAddress workerAddress;
+    private volatile ScanWorker scanWorker;
+    private final List<InetSocketAddress> workerAddresses = new ArrayList<>();
+    private int localWorkers = 0;
+    private long chunkThreshold = 0;
+    private int chunkSize = ChunkedComparison.DEFAULT_CHUNK_SIZE;
+    private final Map<String, List<FileEntry>> chunkedEntries = new ConcurrentHashMap<>();
+    private final Map<String, String> differences = new ConcurrentHashMap<>();
+    private boolean directCompare = false;
+    private boolean compareArchives = false;
+    private boolean ioScheduler = false;
+    private final Map<String, IoScheduler.StoreSettings> storeSettings = new HashMap<>();
+    private int readAhead = FileHasher.DEFAULT_BUFFER_SIZE;
+    private RepositoryWalker.Order readOrder = RepositoryWalker.Order.NONE;
+    private int maxReadMegabytes = 0;
+    private int maxFilesPerSecond = 0;
+    private String throttleFileName;
+    private final RateLimiter readLimiter = new RateLimiter(0);
+    private final RateLimiter fileLimiter = new RateLimiter(0);
+    private ThrottleControl throttleControl;
+    private String checkpointFileName;
+    private String resumeFileName;
+    private CheckpointJournal journal;
+    private final Map<File, AtomicLong> journalPending = new ConcurrentHashMap<>();
+    private final Set<File> journalWalked = ConcurrentHashMap.newKeySet();
+    private final Set<File> journalIncomplete = ConcurrentHashMap.newKeySet();
+    private final Set<File> journalCompleted = ConcurrentHashMap.newKeySet();
+    private final Map<String, List<FileEntry>> directEntries = new ConcurrentHashMap<>();
+    private ReportWriter.Format reportFormat = ReportWriter.Format.CSV;
+    private boolean gzip = false;
+    private String gavReportFileName;
+    private GavComparison gavComparison;
+    private String eventLogFileName;
+    private int sweepInterval = DEFAULT_SWEEP_INTERVAL;
+    private volatile RepositoryWatcher watcher;
+    private ChannelWriter eventLog;
+    private InetSocketAddress serveAddress;
+    private volatile QueryServer queryServer;
+    private final CountDownLatch serving = new CountDownLatch(1);
 
     void analyzeParameters(String[] args) {
 
         int status = NOTHING;
 
         for(int i = 0; i < args.length; i++) {
+            Integer option = VALUE_OPTIONS.get(args[i]);
+            if(option != null) {
+                if(status != NOTHING) {
+                    System.err.println("Chained switches on parameter "+i+1 );
+                    exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+                }
+                status = option;
+                continue;
+            }
             switch (args[i]) {
                 case "--force":
                 case "-F":
                     forceOverwrite = true; break;
-                case "--file":
-                    if(status != NOTHING) {
-                        System.err.println("Chained switches on parameter "+i+1 );
-                        exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
-                    }
-                    status = OUTPUT_FILE;
-                    break;
-                case "--include":
-                    if(status != NOTHING) {
-                        System.err.println("Chained switches on parameter "+i+1 );
-                        exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
-                    }
-                    status = INCLUDE;
-                    break;
-                case "--exclude":
-                    if(status != NOTHING) {
-                        System.err.println("Chained switches on parameter "+i+1 );
-                        exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
-                    }
-                    status = EXCLUDE;
+                case "--compact":
+                    compactIndex = new CompactFileIndex(); break;
+                case "--io-scheduler":
+                    ioScheduler = true; break;
+                case "--jmx":
+                    jmx = true; break;
+                case "--streaming":
+                    streaming = true; break;
+                case "--compare-archives":
+                    compareArchives = true; break;
+                case "--size-first":
+                    sizeFirst = true; break;
+                case "--direct-compare":
+                    directCompare = true;
+                    sizeFirst = true;
                     break;
+                case "--trust-sidecars":
+                    trustSidecars = true; break;
                 case "--help":
                     help(); return;
                 default:
@@ -257,17 +1437,142 @@ public class App
                     }
 
                     switch (status) {
-                        case INCLUDE: includeRepos.add(args[i]); status = NOTHING; break;
-                        case EXCLUDE: excludeRepos.add(args[i]); status = NOTHING; break;
+                        case INCLUDE: includeRepos.add(args[i]); break;
+                        case EXCLUDE: excludeRepos.add(args[i]); break;
                         case OUTPUT_FILE:
-                            if(StringUtils.isBlank(outputFileName)) {
-                                outputFileName = args[i];
-                                status = NOTHING;
-                                break;
-                            } else {
+                            if(!StringUtils.isBlank(outputFileName)) {
                                 System.err.println("Error: Output file was entered more than once!");
                                 exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
                             }
+                            outputFileName = args[i];
+                            break;
+                        case CACHE_FILE:
+                            cacheFileName = args[i];
+                            break;
+                        case VERIFY_SIDECARS:
+                            sidecarVerificationRate = parsePercentage(args[i]) / 100.0;
+                            break;
+                        case DIGEST:
+                            digestAlgorithm = DigestAlgorithm.fromOption(args[i]);
+                            if(digestAlgorithm == null) {
+                                System.err.println("Error: Unknown checksum algorithm "+args[i]+"!");
+                                exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+                            }
+                            break;
+                        case MAPPING_THRESHOLD:
+                            mappingThreshold = parsePositiveNumber(args[i]) * 1024L * 1024L;
+                            break;
+                        case MANIFEST:
+                            File manifest = new File(args[i]);
+                            if(!manifest.isFile()) {
+                                System.err.println("Error: Manifest "+manifest.getAbsolutePath()+" does not exist!");
+                                exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+                            }
+                            manifestFiles.add(manifest);
+                            break;
+                        case MANIFEST_DIRECTORY:
+                            manifestDirectory = new File(args[i]);
+                            if(!manifestDirectory.isDirectory() || !manifestDirectory.canWrite()) {
+                                System.err.println("Error: Can not write manifests to "+manifestDirectory.getAbsolutePath()+"!");
+                                exitResolver.finishProcessing(ERR_ACCESS_DENIED);
+                            }
+                            break;
+                        case WORKER:
+                            workerAddress = parseAddress(args[i].contains(":") ? args[i] : ":" + args[i]);
+                            break;
+                        case WORKERS:
+                            for(String address : args[i].split(","))
+                                workerAddresses.add(parseAddress(address));
+                            break;
+                        case LOCAL_WORKERS:
+                            localWorkers = parsePositiveNumber(args[i]);
+                            break;
+                        case CHUNK_THRESHOLD:
+                            chunkThreshold = parsePositiveNumber(args[i]) * 1024L * 1024L;
+                            break;
+                        case CHUNK_SIZE:
+                            chunkSize = parseKibibytes(args[i]);
+                            break;
+                        case STORE:
+                            parseStoreSettings(args[i]);
+                            ioScheduler = true;
+                            break;
+                        case READ_AHEAD:
+                            readAhead = parseKibibytes(args[i]);
+                            break;
+                        case READ_ORDER:
+                            try {
+                                readOrder = RepositoryWalker.Order.valueOf(args[i].toUpperCase(Locale.ROOT));
+                            } catch (IllegalArgumentException e) {
+                                System.err.println("Error: Unknown read order "+args[i]+"!");
+                                exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+                            }
+                            break;
+                        case MAX_READ_MBPS:
+                            maxReadMegabytes = parsePositiveNumber(args[i]);
+                            readLimiter.setRate(maxReadMegabytes * (double) ThrottleControl.BYTES_PER_MEGABYTE);
+                            break;
+                        case MAX_FILES_PER_SEC:
+                            maxFilesPerSecond = parsePositiveNumber(args[i]);
+                            fileLimiter.setRate(maxFilesPerSecond);
+                            break;
+                        case THROTTLE_FILE:
+                            throttleFileName = args[i];
+                            break;
+                        case CHECKPOINT:
+                            checkpointFileName = args[i];
+                            break;
+                        case RESUME:
+                            resumeFileName = args[i];
+                            if(!new File(resumeFileName).isFile()) {
+                                System.err.println("Error: Checkpoint journal "+resumeFileName+" does not exist!");
+                                exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+                            }
+                            break;
+                        case FORMAT:
+                            reportFormat = ReportWriter.Format.fromOption(args[i]);
+                            if(reportFormat == null) {
+                                System.err.println("Error: Unknown report format "+args[i]+"!");
+                                exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+                            }
+                            break;
+                        case COMPRESS:
+                            if(!"gzip".equalsIgnoreCase(args[i]) && !"none".equalsIgnoreCase(args[i])) {
+                                System.err.println("Error: Unknown compression "+args[i]+"!");
+                                exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+                            }
+                            gzip = "gzip".equalsIgnoreCase(args[i]);
+                            break;
+                        case WATCH:
+                            eventLogFileName = args[i];
+                            break;
+                        case SWEEP_INTERVAL:
+                            sweepInterval = parsePositiveNumber(args[i]);
+                            break;
+                        case SERVE:
+                            serveAddress = parseAddress(args[i].contains(":") ? args[i] : ":" + args[i]);
+                            break;
+                        case GAV_REPORT:
+                            gavReportFileName = args[i];
+                            break;
+                        case PROGRESS:
+                            progressInterval = parsePositiveNumber(args[i]);
+                            break;
+                        case METRICS_FILE:
+                            metricsFileName = args[i];
+                            break;
+                        case WALK_THREADS:
+                            walkThreads = parsePositiveNumber(args[i]);
+                            break;
+                        case FINGERPRINTS:
+                            fingerprintsFileName = args[i];
+                            break;
+                        case VIRTUAL_THREADS:
+                            virtualConcurrency = parsePositiveNumber(args[i]);
+                            break;
+                        case THREADS:
+                            threads = parsePositiveNumber(args[i]);
+                            break;
                         default:
                             File file = new File(args[i]);
                             if(file.isDirectory()) {
@@ -279,23 +1584,253 @@ public class App
                                 }
                             }
                     }
+                    status = NOTHING;
             }
         }
 
         if(includeRepos.isEmpty())
             includeRepos.add("");
 
-        if(sourceDirectories.isEmpty()) {
+        if(!manifestFiles.isEmpty() && (sizeFirst || streaming)) {
+            System.err.println("Error: Manifests can not be combined with --size-first or --streaming!");
+            exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        }
+
+        if(manifestDirectory != null && (sizeFirst || streaming || compactIndex != null)) {
+            System.err.println("Error: Manifests can not be written with --size-first, --streaming or --compact!");
+            exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        }
+
+        if((!workerAddresses.isEmpty() || localWorkers > 0) && (sizeFirst || streaming)) {
+            System.err.println("Error: Workers can not be combined with --size-first or --streaming!");
+            exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        }
+
+        if(!workerAddresses.isEmpty() && (maxReadMegabytes > 0 || maxFilesPerSecond > 0 || throttleFileName != null)) {
+            System.err.println("Error: Remote workers read files with the limits of their own command line, --max-read-mbps,"
+                    +" --max-files-per-sec and --throttle-file can not be combined with --workers!");
+            exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        }
+
+        if(!workerAddresses.isEmpty() && (cacheFileName != null || trustSidecars || mappingThreshold != FileHasher.DEFAULT_MAPPING_THRESHOLD
+                || readAhead != FileHasher.DEFAULT_BUFFER_SIZE)) {
+            System.err.println("Error: Remote workers hash files with the options of their own command line, --cache, --trust-sidecars,"
+                    +" --mmap-threshold and --read-ahead can not be combined with --workers!");
+            exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        }
+
+        if(localWorkers > 0 && throttleFileName != null) {
+            System.err.println("Error: Limits of local workers are split when they start, --throttle-file can not be combined with --local-workers!");
+            exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        }
+
+        if((chunkThreshold > 0 || directCompare) && (streaming || compactIndex != null || !workerAddresses.isEmpty() || localWorkers > 0
+                || !manifestFiles.isEmpty() || manifestDirectory != null)) {
+            System.err.println("Error: Block and direct comparison can not be combined with --streaming, --compact, workers or manifests!");
+            exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        }
+
+        if((checkpointFileName != null || resumeFileName != null) && (sizeFirst || streaming || chunkThreshold > 0
+                || !workerAddresses.isEmpty() || localWorkers > 0)) {
+            System.err.println("Error: Checkpoints can not be combined with --size-first, --direct-compare, --streaming, --chunk-threshold or workers!");
+            exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        }
+
+        if(checkpointFileName != null && resumeFileName != null) {
+            System.err.println("Error: A resumed scan is checkpointed to its journal, --checkpoint can not be used with --resume!");
+            exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        }
+
+        if(checkpointFileName != null && new File(checkpointFileName).exists() && !forceOverwrite) {
+            System.err.println("Error: Checkpoint journal "+checkpointFileName+" already exist! Use --resume to continue the scan.");
+            exitResolver.finishProcessing(ERR_FILE_ALREADY_EXIST);
+        }
+
+        if(eventLogFileName != null && (sizeFirst || streaming || chunkThreshold > 0 || compactIndex != null
+                || !workerAddresses.isEmpty() || localWorkers > 0)) {
+            System.err.println("Error: Watch mode can not be combined with --size-first, --direct-compare, --streaming, --chunk-threshold, --compact or workers!");
+            exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        }
+
+        if(serveAddress != null && (streaming || compactIndex != null || checkpointFileName != null || resumeFileName != null)) {
+            System.err.println("Error: Queries can not be served with --streaming, --compact or checkpoints!");
+            exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        }
+
+        if(gavReportFileName != null && (sizeFirst || streaming || chunkThreshold > 0 || !workerAddresses.isEmpty() || localWorkers > 0
+                || !manifestFiles.isEmpty() || manifestDirectory != null || checkpointFileName != null || resumeFileName != null
+                || eventLogFileName != null)) {
+            System.err.println("Error: Comparison by versions of artifacts can not be combined with --size-first, --direct-compare, --streaming,"
+                    +" --chunk-threshold, workers, manifests, checkpoints or --watch!");
+            exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        }
+
+        if(fingerprintsFileName != null && (sizeFirst || streaming || compactIndex != null || !workerAddresses.isEmpty() || localWorkers > 0
+                || !manifestFiles.isEmpty() || manifestDirectory != null || checkpointFileName != null || resumeFileName != null
+                || eventLogFileName != null || gavReportFileName != null)) {
+            System.err.println("Error: Directory fingerprints can not be combined with --size-first, --direct-compare, --streaming, --compact,"
+                    +" workers, manifests, checkpoints, --watch or --gav-report!");
+            exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        }
+
+        if(compareArchives && (streaming || compactIndex != null)) {
+            System.err.println("Error: Archives can not be compared with --streaming or --compact!");
+            exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        }
+
+        if(gavReportFileName != null && new File(gavReportFileName).exists() && !forceOverwrite) {
+            System.err.println("Error: File "+gavReportFileName+" already exist!");
+            exitResolver.finishProcessing(ERR_FILE_ALREADY_EXIST);
+        }
+
+        if(workerAddress != null)
+            return; // repositories are sent by the coordinator, source directories only restrict them
+
+        if(sourceDirectories.isEmpty() && manifestFiles.isEmpty()) {
             System.err.println("Error: You must supply at least one source directory.");
             help();
             exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
         }
     }
 
-    HashMap<String, ArrayList<FileInfo>> getFileInfosMap() {
+    /** Parses numeric value of a switch
+     *
+     * @param value value entered by user
+     * @return parsed number
+     */
+    private int parsePositiveNumber(String value) {
+        try {
+            int result = Integer.parseInt(value);
+            if(result > 0)
+                return result;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        System.err.println("Error: "+value+" is not a positive number!");
+        exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        return 0;
+    }
+
+    /** Parses size of a buffer in KiB
+     *
+     * @param value value entered by user
+     * @return size in bytes
+     */
+    private int parseKibibytes(String value) {
+        int kibibytes = parsePositiveNumber(value);
+        if(kibibytes > MAX_BUFFER_SIZE / 1024) {
+            System.err.println("Error: "+value+" KiB is more than "+MAX_BUFFER_SIZE / 1024+" KiB!");
+            exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        }
+        return kibibytes * 1024;
+    }
+
+    /** Parses settings of a file store in the form name=threads[,read-ahead KiB]
+     *
+     * @param value value entered by user
+     */
+    private void parseStoreSettings(String value) {
+        int equals = value.lastIndexOf('=');
+        if(equals <= 0) {
+            System.err.println("Error: "+value+" is not in the form <store>=<threads>[,<read-ahead KiB>]!");
+            exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+            return;
+        }
+        String[] numbers = value.substring(equals + 1).split(",", 2);
+        storeSettings.put(value.substring(0, equals), new IoScheduler.StoreSettings(parsePositiveNumber(numbers[0]),
+                numbers.length > 1 ? parseKibibytes(numbers[1]) : 0));
+    }
+
+    /** Parses percentage value of a switch
+     *
+     * @param value value entered by user
+     * @return number from 0 to 100
+     */
+    private double parsePercentage(String value) {
+        try {
+            double result = Double.parseDouble(value);
+            if(result >= 0 && result <= 100)
+                return result;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        System.err.println("Error: "+value+" is not a percentage!");
+        exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        return 0;
+    }
+
+    /** Parses address of a worker
+     *
+     * @param value host and port separated by a colon, the host may be empty for the loopback interface, other
+     *              interfaces are listened on only when the host is given, like 0.0.0.0 for all of them
+     * @return the address
+     */
+    private InetSocketAddress parseAddress(String value) {
+        int colon = value.lastIndexOf(':');
+        try {
+            int port = colon < 0 ? -1 : Integer.parseInt(value.substring(colon + 1));
+            if(port >= 0 && port <= 0xFFFF)
+                return colon == 0 ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port) : new InetSocketAddress(value.substring(0, colon), port);
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        System.err.println("Error: "+value+" is not an address in the form host:port!");
+        exitResolver.finishProcessing(ERR_WRONG_PARAMETERS);
+        return null;
+    }
+
+    Map<String, ArrayList<FileInfo>> getFileInfosMap() {
         return fileInfosMap;
     }
 
+    CompactFileIndex getCompactIndex() {
+        return compactIndex;
+    }
+
+    QueryServer getQueryServer() {
+        return queryServer;
+    }
+
+    GavComparison getGavComparison() {
+        return gavComparison;
+    }
+
+    RepositoryWatcher getWatcher() {
+        return watcher;
+    }
+
+    ScanWorker getScanWorker() {
+        return scanWorker;
+    }
+
+    ScanMetrics getMetrics() {
+        return metrics;
+    }
+
+    SidecarReader getSidecars() {
+        return sidecars;
+    }
+
+    RateLimiter getReadLimiter() {
+        return readLimiter;
+    }
+
+    RateLimiter getFileLimiter() {
+        return fileLimiter;
+    }
+
+    DigestAlgorithm getDigestAlgorithm() {
+        return digestAlgorithm;
+    }
+
+    ChecksumCache getCache() {
+        return cache;
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
     List<String> getIncludeRepos() {
         return includeRepos;
     }
@@ -312,13 +1847,90 @@ public class App
         System.out.println("Maven Repository Collision Analyzer");
         System.out.println("-----------------------------------");
         System.out.println("java -jar repo-analyzer [options] [<directory>...]");
-        System.out.println("At least one source directory must be supplied.");
+        System.out.println("At least one source directory or manifest must be supplied.");
         System.out.println("Options:");
         System.out.println("--file <file name> - output file for the data");
         System.out.println("-F /--force - force overwriting the output file");
         System.out.println("--include <start of repository name> - name of the repository (folders starting with this string will be included");
         System.out.println("--exclude <start of repository to exclude> - repos starting on this will be excluded. --excluded has a higher priority");
         System.out.println("       than --include");
-        System.out.println("There can be multiple --include and --exclude parameters");
+        System.out.println("--threads <count> - number of threads computing checksums (default is number of processors)");
+        System.out.println("--parallel-walk <count> - number of threads listing directories concurrently (default 1)");
+        System.out.println("--fingerprints <file> - compare fingerprints of directories built from names, sizes and times of");
+        System.out.println("       modification or cached checksums of files top-down, subtrees identical by cached checksums");
+        System.out.println("       are not hashed and not reported; the file keeps fingerprints and discrepancies of differing");
+        System.out.println("       directories for the next run, which takes them over for directories changed in none of the");
+        System.out.println("       repositories");
+        System.out.println("--virtual-threads <count> - on Java 21 and newer examine every directory and file in a virtual thread,");
+        System.out.println("       with at most <count> file system calls in flight, to hide latency of network file systems;");
+        System.out.println("       older runtimes fall back to --parallel-walk");
+        System.out.println("--size-first - compute checksums only of files with the same path and size in more repositories;");
+        System.out.println("       files with different sizes are reported without checksum");
+        System.out.println("--digest md5|sha1|sha256|murmur3 - checksum algorithm (default md5); murmur3 is a fast non-cryptographic");
+        System.out.println("       128-bit hash, sufficient for finding different binaries");
+        System.out.println("--trust-sidecars - read checksums from .md5, .sha1 or .sha256 files next to artifacts when they are not");
+        System.out.println("       older than the artifact, compute the checksum only when the sidecar is missing or malformed");
+        System.out.println("--verify-sidecars <percent> - percentage of trusted sidecars verified by computing the checksum (default 0)");
+        System.out.println("--mmap-threshold <MiB> - files of this size and larger are memory mapped instead of streamed (default 64)");
+        System.out.println("--streaming - walk repositories in the order of paths and compare them by merging, discrepancies are");
+        System.out.println("       written immediately and memory does not grow with the number of files; implies --size-first");
+        System.out.println("--compare-archives - compare discrepant jars and other zip archives by their entries, the difference");
+        System.out.println("       column tells content-identical when they differ only in timestamps or build metadata,");
+        System.out.println("       otherwise content-changed with the first changed entry");
+        System.out.println("--compact - keep file information in a compact index, which needs much less memory for large repositories");
+        System.out.println("--cache <file> - reuse checksums of files not modified since the previous run stored in the file");
+        System.out.println("--write-manifests <directory> - write manifests of the scanned repositories (path, size, checksum and");
+        System.out.println("       modification time of every file) to the directory");
+        System.out.println("--manifest <file> - compare also a repository stored in a manifest, no files are read for it");
+        System.out.println("--direct-compare - like --size-first, but files with the same path and size in two or three repositories");
+        System.out.println("       are compared byte by byte until the first difference instead of computing checksums; they are");
+        System.out.println("       reported without checksum and with the first differing range in the difference column");
+        System.out.println("--read-ahead <KiB> - size of the read buffer of streamed files (default 256)");
+        System.out.println("--io-scheduler - read every file store (disk, network mount) by its own pool of --threads threads,");
+        System.out.println("       repositories on different stores are walked at once");
+        System.out.println("--store <store>=<threads>[,<read-ahead KiB>] - threads and read-ahead of a store given by its device name,");
+        System.out.println("       mount point or type (for example nfs), implies --io-scheduler");
+        System.out.println("--read-order none|size|inode - order of reading files of a directory, inode order lowers seeking");
+        System.out.println("       of rotating disks on many file systems (default none)");
+        System.out.println("--chunk-threshold <MiB> - compare files of this size and larger block by block, all copies are read at once");
+        System.out.println("       and reading stops at the first differing block, which is reported in the difference column;");
+        System.out.println("       identical copies get the checksum of their block checksums");
+        System.out.println("--chunk-size <KiB> - size of a block of the block comparison (default 4096)");
+        System.out.println("--workers <host:port>[,<host:port>...] - split repositories among running workers, the repositories");
+        System.out.println("       must be accessible to the workers under the same paths; limits of reading, the cache, sidecars,");
+        System.out.println("       --mmap-threshold and --read-ahead are given to the workers");
+        System.out.println("--local-workers <count> - split repositories among workers started in new JVMs on this machine, threads");
+        System.out.println("       and limits of reading are split among the workers, options of hashing are passed on, every");
+        System.out.println("       worker keeps its own cache <file>.worker<number> next to the --cache file");
+        System.out.println("--worker [<host>:]<port> [<directory>...] - run as a worker of a distributed scan, port 0 chooses a");
+        System.out.println("       free port; without a host only the loopback interface is listened on, 0.0.0.0 listens on all");
+        System.out.println("       interfaces; coordinators are not authenticated, given directories restrict the repositories");
+        System.out.println("       which coordinators may scan");
+        System.out.println("--max-read-mbps <MiB/s> - limit of reading files for checksums and comparison");
+        System.out.println("--max-files-per-sec <count> - limit of files found per second");
+        System.out.println("--throttle-file <file> - properties file with max-read-mbps and max-files-per-sec which replace the");
+        System.out.println("       limits of a running scan, it is checked every 5 seconds; a missing key restores the limit of");
+        System.out.println("       the command line, 0 means no limit");
+        System.out.println("--checkpoint <file> - journal computed files and completed repositories, so an interrupted scan can be resumed");
+        System.out.println("--resume <file> - resume a scan from its journal, completed repositories are not read again and files");
+        System.out.println("       which did not change keep their journaled checksums; the journal is continued");
+        System.out.println("--format csv|jsonl|columnar - format of the report (default csv); columnar is a binary format with");
+        System.out.println("       row groups of columns and a dictionary of repositories for downstream tooling");
+        System.out.println("--compress gzip|none - compress the report (default none)");
+        System.out.println("--watch <event log> - after the scan and the report keep watching the repositories, changed files");
+        System.out.println("       are hashed again and changes, new and resolved discrepancies are appended to the event log");
+        System.out.println("--sweep-interval <seconds> - interval of comparing all files in the watch mode, it finds changes");
+        System.out.println("       on file systems without change notifications like NFS (default 60)");
+        System.out.println("--serve [<host>:]<port> - after the scan and the report answer queries over HTTP: GET /files with");
+        System.out.println("       prefix, checksum or repository, GET /conflicts, /repositories and /status; POST /rescan scans");
+        System.out.println("       the repositories again, in the watch mode the answers follow the changes instead; requests are");
+        System.out.println("       not authenticated, without a host only the loopback interface is listened on");
+        System.out.println("--gav-report <file> - compare files in the Maven layout by versions of artifacts: the POM first, then");
+        System.out.println("       the main artifact, the rest is not read once a version conflicts; one row per version is");
+        System.out.println("       written to the file, only the first conflicting file of a version is reported as a discrepancy");
+        System.out.println("--progress <seconds> - print progress, rates and ETA in this interval and a summary at the end");
+        System.out.println("--metrics-file <file> - periodically write metrics in the Prometheus text format to the file");
+        System.out.println("--jmx - expose the metrics over JMX as com.redhat.maven:type=ScanMetrics");
+        System.out.println("There can be multiple --include, --exclude, --manifest and --store parameters");
     }
 }
@@ -0,0 +1,169 @@
+package com.redhat.maven;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/** Compares copies of a zip archive by their content. Rebuilt jars often differ only in timestamps of their entries
+ * or in build metadata, so their bytes differ although the same classes and resources are packed.
+ *
+ * The central directory of every copy is read through random access and the entries are matched by name. Entries
+ * with the same CRC-32 and size are considered identical without inflating them, timestamps, the order of entries,
+ * compression and directory entries are ignored. An entry with a different CRC-32 is a real change unless it is
+ * build metadata: META-INF/MANIFEST.MF is inflated and compared without the attributes describing the build,
+ * pom.properties without its comment with the build time.
+ */
+class ArchiveComparison {
+    static final String CONTENT_IDENTICAL = "content-identical";
+    static final String CONTENT_CHANGED = "content-changed";
+
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+    private static final String POM_PROPERTIES = "/pom.properties";
+    private static final Set<String> ARCHIVE_EXTENSIONS = new HashSet<>(Arrays.asList("jar", "war", "ear", "zip", "aar", "rar"));
+    private static final Set<String> BUILD_ATTRIBUTES = new HashSet<>(Arrays.asList("build-jdk", "build-jdk-spec", "built-by",
+            "created-by", "build-time", "build-timestamp", "build-date", "bnd-lastmodified", "tool", "originally-created-by"));
+
+    /** Tells whether a file can be compared as an archive
+     *
+     * @param relativePath path of the file
+     * @return true for zip based archives like jars
+     */
+    static boolean isArchive(String relativePath) {
+        int dot = relativePath.lastIndexOf('.');
+        return dot >= 0 && ARCHIVE_EXTENSIONS.contains(relativePath.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /** Compares all copies with the first one
+     *
+     * @param copies paths of the copies, at least two
+     * @return whether the content is identical, otherwise the first changed entry
+     * @throws IOException when a copy is not a readable archive
+     */
+    Result compare(List<Path> copies) throws IOException {
+        try (ZipFile first = new ZipFile(copies.get(0).toFile())) {
+            Map<String, ZipEntry> entries = entries(first);
+            for(int i = 1; i < copies.size(); i++) {
+                try (ZipFile other = new ZipFile(copies.get(i).toFile())) {
+                    String changed = compare(first, entries, other);
+                    if(changed != null)
+                        return new Result(changed);
+                }
+            }
+        }
+        return new Result(null);
+    }
+
+    /** Compares an archive with the first copy
+     *
+     * @param first the first copy
+     * @param entries file entries of the first copy by name
+     * @param other the compared archive
+     * @return name of the first changed entry, null if the content is identical
+     * @throws IOException when an entry can not be inflated
+     */
+    private static String compare(ZipFile first, Map<String, ZipEntry> entries, ZipFile other) throws IOException {
+        Map<String, ZipEntry> otherEntries = entries(other);
+        for(ZipEntry entry : entries.values()) {
+            ZipEntry otherEntry = otherEntries.get(entry.getName());
+            if(otherEntry == null)
+                return entry.getName();
+            if(entry.getCrc() == otherEntry.getCrc() && entry.getSize() == otherEntry.getSize())
+                continue;
+
+            if(isMetadata(entry.getName())) {
+                if(!normalize(first, entry).equals(normalize(other, otherEntry)))
+                    return entry.getName();
+            } else
+                return entry.getName();
+        }
+
+        for(String name : otherEntries.keySet()) {
+            if(!entries.containsKey(name))
+                return name;
+        }
+        return null;
+    }
+
+    /** Reads the central directory of an archive
+     *
+     * @param archive the archive
+     * @return file entries sorted by name, directories are skipped
+     */
+    private static Map<String, ZipEntry> entries(ZipFile archive) {
+        Map<String, ZipEntry> entries = new TreeMap<>();
+        Enumeration<? extends ZipEntry> enumeration = archive.entries();
+        while(enumeration.hasMoreElements()) {
+            ZipEntry entry = enumeration.nextElement();
+            if(!entry.isDirectory())
+                entries.put(entry.getName(), entry);
+        }
+        return entries;
+    }
+
+    private static boolean isMetadata(String name) {
+        return name.equals(MANIFEST) || name.startsWith("META-INF/maven/") && name.endsWith(POM_PROPERTIES);
+    }
+
+    /** Inflates build metadata and removes what describes the build
+     *
+     * @param archive archive of the entry
+     * @param entry the manifest or pom.properties
+     * @return remaining lines, the order of lines does not matter
+     * @throws IOException when the entry can not be inflated
+     */
+    private static List<String> normalize(ZipFile archive, ZipEntry entry) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(archive.getInputStream(entry), StandardCharsets.UTF_8))) {
+            boolean manifest = entry.getName().equals(MANIFEST);
+            String line;
+            while((line = reader.readLine()) != null) {
+                if(manifest && line.startsWith(" ") && !lines.isEmpty())
+                    lines.set(lines.size() - 1, lines.get(lines.size() - 1) + line.substring(1)); // continuation
+                else if(!line.isEmpty())
+                    lines.add(line);
+            }
+            if(manifest)
+                lines.removeIf(attribute -> BUILD_ATTRIBUTES.contains(attribute.substring(0, Math.max(0, attribute.indexOf(':'))).trim().toLowerCase(Locale.ROOT)));
+            else
+                lines.removeIf(property -> property.startsWith("#"));
+        }
+        Collections.sort(lines);
+        return lines;
+    }
+
+    /** Result of the comparison of an archive
+     */
+    static class Result {
+        private final String changedEntry;
+
+        private Result(String changedEntry) {
+            this.changedEntry = changedEntry;
+        }
+
+        /** Tells whether the copies contain the same entries with the same content, apart from build metadata
+         *
+         * @return true if the copies differ only in bytes
+         */
+        boolean isContentIdentical() {
+            return changedEntry == null;
+        }
+
+        /** Returns the first entry whose content changed
+         *
+         * @return name of the entry, null if the content is identical
+         */
+        String getChangedEntry() {
+            return changedEntry;
+        }
+
+        @Override
+        public String toString() {
+            return changedEntry == null ? CONTENT_IDENTICAL : CONTENT_CHANGED + " " + changedEntry;
+        }
+    }
+}
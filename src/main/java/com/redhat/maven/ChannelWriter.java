@@ -0,0 +1,280 @@
+package com.redhat.maven;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/** Buffered writer of reports into a channel. Text is encoded to UTF-8 and numbers are formatted directly into
+ * a large buffer, which is written to the channel only when it is full, so no intermediate strings are created
+ * for the millions of lines of a large report.
+ *
+ * Writing methods throw {@link UncheckedIOException}, so they can be called from consumers of files.
+ */
+class ChannelWriter implements Closeable {
+    static final int BUFFER_SIZE = 1 << 20;
+
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final byte[] digits = new byte[20];
+    private long position = 0;
+
+    /** Constructor
+     *
+     * @param channel target channel, it is closed with the writer
+     * @param bufferSize size of the buffer in bytes, at least 4
+     */
+    ChannelWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /** Opens a file for writing, an existing file is overwritten
+     *
+     * @param file the file
+     * @param gzip whether the content is compressed by gzip
+     * @return the writer
+     * @throws IOException when the file can not be opened
+     */
+    static ChannelWriter open(Path file, boolean gzip) throws IOException {
+        if(gzip)
+            return new ChannelWriter(Channels.newChannel(new GZIPOutputStream(Files.newOutputStream(file), GZIP_BUFFER_SIZE)), BUFFER_SIZE);
+
+        return new ChannelWriter(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE), BUFFER_SIZE);
+    }
+
+    /** Opens a file for appending, a missing file is created
+     *
+     * @param file the file
+     * @return the writer
+     * @throws IOException when the file can not be opened
+     */
+    static ChannelWriter append(Path file) throws IOException {
+        return new ChannelWriter(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND,
+                StandardOpenOption.WRITE), BUFFER_SIZE);
+    }
+
+    /** Opens the standard output for writing, closing the writer only flushes the standard output
+     *
+     * @param gzip whether the content is compressed by gzip
+     * @return the writer
+     * @throws IOException when the compression can not be started
+     */
+    static ChannelWriter standardOutput(boolean gzip) throws IOException {
+        OutputStream output = new FilterOutputStream(System.out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        return new ChannelWriter(Channels.newChannel(gzip ? new GZIPOutputStream(output, GZIP_BUFFER_SIZE) : output), BUFFER_SIZE);
+    }
+
+    /** Returns number of bytes written by this writer, including the buffered bytes
+     *
+     * @return position in the output
+     */
+    long getPosition() {
+        return position + buffer.position();
+    }
+
+    /** Writes a single byte
+     *
+     * @param value the byte
+     * @return this writer
+     */
+    ChannelWriter raw(int value) {
+        ensure(1);
+        buffer.put((byte) value);
+        return this;
+    }
+
+    /** Writes bytes
+     *
+     * @param bytes source array
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @return this writer
+     */
+    ChannelWriter raw(byte[] bytes, int offset, int length) {
+        while(length > 0) {
+            ensure(1);
+            int count = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, count);
+            offset += count;
+            length -= count;
+        }
+        return this;
+    }
+
+    /** Writes text in UTF-8, an unpaired surrogate is written as '?'
+     *
+     * @param text the text
+     * @return this writer
+     */
+    ChannelWriter text(String text) {
+        for(int i = 0; i < text.length(); i++)
+            i = character(text, i);
+        return this;
+    }
+
+    /** Writes a decimal number
+     *
+     * @param value the number
+     * @return this writer
+     */
+    ChannelWriter number(long value) {
+        if(value == Long.MIN_VALUE)
+            return text(Long.toString(value));
+
+        boolean negative = value < 0;
+        if(negative)
+            value = -value;
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while(value > 0);
+        if(negative)
+            digits[--start] = '-';
+        return raw(digits, start, digits.length - start);
+    }
+
+    /** Writes text as a CSV field in double quotes, quotes in the text are doubled
+     *
+     * @param text the text
+     * @return this writer
+     */
+    ChannelWriter csvQuoted(String text) {
+        raw('"');
+        for(int i = 0; i < text.length(); i++) {
+            if(text.charAt(i) == '"')
+                raw('"');
+            i = character(text, i);
+        }
+        return raw('"');
+    }
+
+    /** Writes text as a JSON string, null is written as JSON null
+     *
+     * @param text the text, may be null
+     * @return this writer
+     */
+    ChannelWriter jsonQuoted(String text) {
+        if(text == null)
+            return raw('n').raw('u').raw('l').raw('l');
+
+        raw('"');
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if(c == '"' || c == '\\') {
+                raw('\\').raw(c);
+            } else if(c == '\n') {
+                raw('\\').raw('n');
+            } else if(c == '\r') {
+                raw('\\').raw('r');
+            } else if(c == '\t') {
+                raw('\\').raw('t');
+            } else if(c < 0x20) {
+                raw('\\').raw('u').raw('0').raw('0').raw(HEX_DIGITS[c >> 4]).raw(HEX_DIGITS[c & 0xF]);
+            } else {
+                i = character(text, i);
+            }
+        }
+        return raw('"');
+    }
+
+    /** Writes the line separator of the platform
+     *
+     * @return this writer
+     */
+    ChannelWriter newLine() {
+        return raw(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+    }
+
+    /** Encodes a character of the text to UTF-8
+     *
+     * @param text the text
+     * @param index index of the character
+     * @return index of the last encoded char, a surrogate pair takes two chars
+     */
+    private int character(String text, int index) {
+        ensure(4);
+        char c = text.charAt(index);
+        if(c < 0x80) {
+            buffer.put((byte) c);
+        } else if(c < 0x800) {
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        } else if(Character.isHighSurrogate(c) && index + 1 < text.length() && Character.isLowSurrogate(text.charAt(index + 1))) {
+            int code = Character.toCodePoint(c, text.charAt(++index));
+            buffer.put((byte) (0xF0 | (code >> 18)));
+            buffer.put((byte) (0x80 | ((code >> 12) & 0x3F)));
+            buffer.put((byte) (0x80 | ((code >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (code & 0x3F)));
+        } else if(Character.isSurrogate(c)) {
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xE0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+        return index;
+    }
+
+    /** Makes room in the buffer, it is written to the channel when the room is not left
+     *
+     * @param bytes number of bytes needed
+     */
+    private void ensure(int bytes) {
+        if(buffer.remaining() < bytes)
+            flush();
+    }
+
+    /** Writes the buffer to the channel
+     *
+     * @throws UncheckedIOException when the channel can not be written
+     */
+    void flush() {
+        buffer.flip();
+        try {
+            while(buffer.hasRemaining())
+                position += channel.write(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } catch (UncheckedIOException e) {
+            channel.close();
+            throw e.getCause();
+        }
+        channel.close();
+    }
+}
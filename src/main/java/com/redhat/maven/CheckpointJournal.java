@@ -0,0 +1,298 @@
+package com.redhat.maven;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/** Append-only journal of a scan, used to resume an interrupted scan.
+ *
+ * Every computed file is appended as a record, a repository whose files are all computed gets a completion record.
+ * Records are collected in memory and written in batches, when the batch is large or old enough, when a repository
+ * is completed and when the JVM exits. A resumed scan reuses completed repositories without walking them and takes
+ * checksums of other journaled files whose size and time of modification did not change.
+ *
+ * The journal starts with a header with the checksum algorithm. Paths share their prefix with the path of the
+ * previous file record and numbers are variable length integers. An incomplete record at the end, left by a crash,
+ * is dropped when the journal is resumed.
+ */
+class CheckpointJournal implements Closeable {
+    private static final int MAGIC = 0x5241434a;
+    private static final int VERSION = 1;
+    private static final int REPOSITORY = 1;
+    private static final int FILE = 2;
+    private static final int COMPLETED = 3;
+    private static final int BATCH_SIZE = 1 << 16;
+    private static final long BATCH_AGE = TimeUnit.SECONDS.toNanos(1);
+
+    private final FileChannel channel;
+    private final ByteArrayOutputStream batch = new ByteArrayOutputStream(BATCH_SIZE);
+    private final DataOutputStream records = new DataOutputStream(batch);
+    private final Map<String, Integer> repositoryIds = new HashMap<>();
+    private final Map<String, Map<String, FileInfo>> journaled = new HashMap<>();
+    private final Set<String> completed = new HashSet<>();
+    private final Thread shutdownHook = new Thread(this::flushQuietly, "checkpoint-journal");
+    private byte[] previousPath = new byte[0];
+    private long batchStart = System.nanoTime();
+
+    private CheckpointJournal(FileChannel channel) {
+        this.channel = channel;
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /** Creates a new journal, an existing file is overwritten
+     *
+     * @param file the journal
+     * @param algorithm name of the checksum algorithm
+     * @return the journal
+     * @throws IOException when the journal can not be written
+     */
+    static CheckpointJournal create(Path file, String algorithm) throws IOException {
+        CheckpointJournal journal = new CheckpointJournal(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        journal.records.writeInt(MAGIC);
+        journal.records.writeInt(VERSION);
+        journal.records.writeUTF(algorithm);
+        journal.flush();
+        return journal;
+    }
+
+    /** Opens an existing journal to resume the scan, new records are appended to it
+     *
+     * @param file the journal
+     * @param algorithm name of the checksum algorithm of the resumed scan
+     * @return the journal with the journaled files
+     * @throws IOException when the journal can not be read, it is not a journal or it contains other checksums
+     */
+    static CheckpointJournal resume(Path file, String algorithm) throws IOException {
+        Map<Integer, String> repositories = new HashMap<>();
+        Map<String, Map<String, FileInfo>> files = new HashMap<>();
+        Set<String> completed = new HashSet<>();
+        long valid;
+
+        try (CountingInputStream counting = new CountingInputStream(new BufferedInputStream(Files.newInputStream(file), BATCH_SIZE))) {
+            DataInputStream data = new DataInputStream(counting);
+            if(data.readInt() != MAGIC || data.readInt() != VERSION)
+                throw new IOException("Not a checkpoint journal");
+            String journalAlgorithm = data.readUTF();
+            if(!journalAlgorithm.equals(algorithm))
+                throw new IOException("Journal contains "+journalAlgorithm+" checksums, not "+algorithm);
+
+            valid = counting.count;
+            byte[] path = new byte[256];
+            try {
+                int type;
+                while((type = data.read()) >= 0) {
+                    switch (type) {
+                        case REPOSITORY:
+                            int id = (int) RepositoryInfo.readNumber(data);
+                            repositories.put(id, data.readUTF());
+                            break;
+                        case FILE:
+                            String repository = repositories.get((int) RepositoryInfo.readNumber(data));
+                            int prefix = (int) RepositoryInfo.readNumber(data);
+                            int length = prefix + (int) RepositoryInfo.readNumber(data);
+                            if(length > path.length)
+                                path = Arrays.copyOf(path, Math.max(length, 2 * path.length));
+                            data.readFully(path, prefix, length - prefix);
+                            long size = RepositoryInfo.readNumber(data);
+                            long lastModified = RepositoryInfo.readNumber(data);
+                            byte[] checksum = new byte[data.readUnsignedByte()];
+                            data.readFully(checksum);
+                            if(repository == null)
+                                throw new IOException("File of an unknown repository");
+
+                            String relativePath = new String(path, 0, length, StandardCharsets.UTF_8);
+                            files.computeIfAbsent(repository, key -> new HashMap<>()).put(relativePath, new FileInfo(size, relativePath,
+                                    checksum.length == 0 ? null : FileInfo.toHex(checksum), new File(repository).getName(), lastModified));
+                            break;
+                        case COMPLETED:
+                            String done = repositories.get((int) RepositoryInfo.readNumber(data));
+                            if(done == null)
+                                throw new IOException("Completion of an unknown repository");
+                            completed.add(done);
+                            break;
+                        default:
+                            throw new IOException("Unknown record "+type);
+                    }
+                    valid = counting.count;
+                }
+            } catch (IOException e) {
+                System.err.println("Warning: Dropping the end of the checkpoint journal from byte "+valid+": "+e.getMessage());
+            }
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        channel.truncate(valid);
+        channel.position(valid);
+        CheckpointJournal journal = new CheckpointJournal(channel);
+        journal.journaled.putAll(files);
+        journal.completed.addAll(completed);
+        return journal;
+    }
+
+    /** Returns true when all files of the repository were journaled
+     *
+     * @param repository root directory of the repository
+     * @return true for a completed repository
+     */
+    boolean isCompleted(File repository) {
+        return completed.contains(repository.getAbsolutePath());
+    }
+
+    /** Returns journaled files of a repository
+     *
+     * @param repository root directory of the repository
+     * @return the files
+     */
+    Collection<FileInfo> getFiles(File repository) {
+        return journaled.getOrDefault(repository.getAbsolutePath(), Collections.emptyMap()).values();
+    }
+
+    /** Finds a journaled file, which was not changed since it was journaled
+     *
+     * @param entry the file
+     * @return information about the file or null if it was not journaled or it changed
+     */
+    FileInfo find(FileEntry entry) {
+        Map<String, FileInfo> files = journaled.get(entry.getRepository().getAbsolutePath());
+        FileInfo fileInfo = files == null ? null : files.get(entry.getRelativePath());
+        return fileInfo != null && fileInfo.getSize() == entry.getSize() && fileInfo.getLastModified() == entry.getLastModified() ? fileInfo : null;
+    }
+
+    /** Appends a computed file
+     *
+     * @param entry the file
+     * @param fileInfo information about the file
+     * @throws UncheckedIOException when the journal can not be written
+     */
+    synchronized void fileDone(FileEntry entry, FileInfo fileInfo) {
+        try {
+            int repository = repositoryId(entry.getRepository());
+            byte[] path = fileInfo.getRelativePath().getBytes(StandardCharsets.UTF_8);
+            int prefix = 0;
+            while(prefix < previousPath.length && prefix < path.length && previousPath[prefix] == path[prefix])
+                prefix++;
+
+            records.writeByte(FILE);
+            RepositoryInfo.writeNumber(records, repository);
+            RepositoryInfo.writeNumber(records, prefix);
+            RepositoryInfo.writeNumber(records, path.length - prefix);
+            records.write(path, prefix, path.length - prefix);
+            RepositoryInfo.writeNumber(records, fileInfo.getSize());
+            RepositoryInfo.writeNumber(records, fileInfo.getLastModified());
+            if(fileInfo.getChecksum() == null) {
+                records.writeByte(0);
+            } else {
+                byte[] checksum = FileInfo.fromHex(fileInfo.getChecksum());
+                records.writeByte(checksum.length);
+                records.write(checksum);
+            }
+            previousPath = path;
+
+            if(batch.size() >= BATCH_SIZE || System.nanoTime() - batchStart >= BATCH_AGE)
+                flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Appends completion of a repository and writes the batch to the disk
+     *
+     * @param repository root directory of the repository
+     * @throws UncheckedIOException when the journal can not be written
+     */
+    synchronized void repositoryDone(File repository) {
+        try {
+            int id = repositoryId(repository);
+            records.writeByte(COMPLETED);
+            RepositoryInfo.writeNumber(records, id);
+            flush();
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int repositoryId(File repository) throws IOException {
+        Integer id = repositoryIds.get(repository.getAbsolutePath());
+        if(id == null) {
+            id = repositoryIds.size();
+            repositoryIds.put(repository.getAbsolutePath(), id);
+            records.writeByte(REPOSITORY);
+            RepositoryInfo.writeNumber(records, id);
+            records.writeUTF(repository.getAbsolutePath());
+        }
+        return id;
+    }
+
+    /** Writes the batch of records
+     *
+     * @throws IOException when the journal can not be written
+     */
+    synchronized void flush() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+        while(buffer.hasRemaining())
+            channel.write(buffer);
+        batch.reset();
+        batchStart = System.nanoTime();
+    }
+
+    private void flushQuietly() {
+        try {
+            if(channel.isOpen())
+                flush();
+        } catch (IOException e) {
+            System.err.println("Error: Can not write the checkpoint journal: "+e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // the JVM is exiting, the hook flushes the journal
+        }
+        flush();
+        channel.close();
+    }
+
+    /** Counts read bytes, so the end of the last complete record is known
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream input) {
+            super(input);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if(result >= 0)
+                count++;
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int result = super.read(b, off, len);
+            if(result > 0)
+                count += result;
+            return result;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long result = super.skip(n);
+            count += result;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.redhat.maven;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Checksums computed during previous runs, kept in a binary file between runs.
+ *
+ * A checksum is reused only if size and time of the last modification of the file did not change.
+ * The file contains entries sorted by the absolute path, each path is stored as the length of the prefix
+ * shared with the previous path and the rest of the path. When the cache is saved, entries of files in the walked
+ * repositories which no longer exist or changed are removed, entries of other files are kept.
+ */
+class ChecksumCache {
+    private static final int MAGIC = 0x52414343;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path file;
+    private final String algorithm;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> verified = ConcurrentHashMap.newKeySet();
+    private final Set<String> roots = ConcurrentHashMap.newKeySet();
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), stored = new LongAdder();
+
+    private static class Entry {
+        private final long size;
+        private final long lastModified;
+        private final byte[] checksum;
+
+        private Entry(long size, long lastModified, byte[] checksum) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.checksum = checksum;
+        }
+    }
+
+    ChecksumCache(Path file, String algorithm) {
+        this.file = file;
+        this.algorithm = algorithm;
+    }
+
+    /** Loads the cache. A missing file means an empty cache, a cache for another algorithm is ignored.
+     *
+     * @param file file with the cache
+     * @param algorithm checksum algorithm used in this run
+     * @return loaded cache
+     * @throws IOException when the file can not be read or is corrupted
+     */
+    static ChecksumCache load(Path file, String algorithm) throws IOException {
+        ChecksumCache cache = new ChecksumCache(file, algorithm);
+        if(!Files.isRegularFile(file))
+            return cache;
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            if(input.readInt() != MAGIC || input.readInt() != VERSION)
+                throw new IOException("File "+file+" is not a checksum cache");
+
+            if(!algorithm.equals(input.readUTF()))
+                return cache; // checksums of another algorithm are useless
+
+            int count = input.readInt();
+            String previous = "";
+            for(int i = 0; i < count; i++) {
+                String path = previous.substring(0, input.readUnsignedShort()) + input.readUTF();
+                long size = input.readLong();
+                long lastModified = input.readLong();
+                byte[] checksum = new byte[input.readUnsignedByte()];
+                input.readFully(checksum);
+
+                cache.entries.put(path, new Entry(size, lastModified, checksum));
+                previous = path;
+            }
+        } catch (EOFException e) {
+            throw new IOException("Checksum cache "+file+" is truncated", e);
+        }
+        return cache;
+    }
+
+    /** Returns the cached checksum of an unchanged file.
+     *
+     * @param path absolute path of the file
+     * @param size current size of the file
+     * @param lastModified current time of the last modification
+     * @return checksum or null if the file is not cached or was changed
+     */
+    byte[] get(String path, long size, long lastModified) {
+        Entry entry = entries.get(path);
+        if(entry != null && entry.size == size && entry.lastModified == lastModified) {
+            verified.add(path);
+            hits.increment();
+            return entry.checksum;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /** Returns the cached checksum of an unchanged file without counting a hit or a miss, the file is not hashed
+     *
+     * @param path absolute path of the file
+     * @param size current size of the file
+     * @param lastModified current time of the last modification
+     * @return checksum or null if the file is not cached or was changed
+     */
+    byte[] peek(String path, long size, long lastModified) {
+        Entry entry = entries.get(path);
+        if(entry == null || entry.size != size || entry.lastModified != lastModified)
+            return null;
+        verified.add(path);
+        return entry.checksum;
+    }
+
+    /** Stores a newly computed checksum.
+     *
+     * @param path absolute path of the file
+     * @param size size of the file
+     * @param lastModified time of the last modification
+     * @param checksum computed checksum
+     */
+    void put(String path, long size, long lastModified, byte[] checksum) {
+        verified.add(path);
+        entries.put(path, new Entry(size, lastModified, checksum));
+        stored.increment();
+    }
+
+    /** Registers walked repositories, their cached files which were not seen unchanged in this run are checked
+     * when the cache is saved
+     *
+     * @param repositories root directories of the repositories
+     */
+    void addRoots(Collection<File> repositories) {
+        for(File repository : repositories)
+            roots.add(repository.getAbsolutePath() + File.separator);
+    }
+
+    /** Writes the cache to its file when a checksum was stored in this run. Entries of files in the walked
+     * repositories are removed when the file no longer exists or its size or time of modification changed. A temporary
+     * file is written first, so an interrupted run does not destroy the previous cache.
+     *
+     * @throws IOException when the file can not be written
+     */
+    void save() throws IOException {
+        if(stored.sum() == 0)
+            return; // nothing new, the file is left as it is
+        entries.keySet().removeIf(this::isStale);
+
+        List<String> paths = new ArrayList<>(entries.keySet());
+        paths.sort(null);
+
+        Path temporary = file.resolveSibling(file.getFileName()+".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeUTF(algorithm);
+            output.writeInt(paths.size());
+
+            String previous = "";
+            for(String path : paths) {
+                int prefix = commonPrefix(previous, path);
+                output.writeShort(prefix);
+                output.writeUTF(path.substring(prefix));
+
+                Entry entry = entries.get(path);
+                output.writeLong(entry.size);
+                output.writeLong(entry.lastModified);
+                output.writeByte(entry.checksum.length);
+                output.write(entry.checksum);
+                previous = path;
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Tells whether the file of an entry in a walked repository no longer exists or changed
+     *
+     * @param path absolute path of the file
+     * @return true if the entry has to be removed
+     */
+    private boolean isStale(String path) {
+        if(verified.contains(path) || roots.stream().noneMatch(path::startsWith))
+            return false;
+        Entry entry = entries.get(path);
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+            return !attrs.isRegularFile() || attrs.size() != entry.size || attrs.lastModifiedTime().toMillis() != entry.lastModified;
+        } catch (NoSuchFileException e) {
+            return true;
+        } catch (IOException e) {
+            return false; // can not tell, the entry is checked again when the file is hashed
+        }
+    }
+
+    private static int commonPrefix(String first, String second) {
+        int max = Math.min(Math.min(first.length(), second.length()), 0xFFFF);
+        int i = 0;
+        while(i < max && first.charAt(i) == second.charAt(i))
+            i++;
+        return i;
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /** Returns human readable statistics of the cache usage
+     *
+     * @return statistics
+     */
+    String getStatistics() {
+        long total = getHits() + getMisses();
+        return String.format("Checksum cache: %d hits, %d misses (%.1f%% hit rate)", getHits(), getMisses(), total == 0 ? 0.0 : 100.0 * getHits() / total);
+    }
+}
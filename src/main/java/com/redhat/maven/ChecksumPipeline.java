@@ -0,0 +1,105 @@
+package com.redhat.maven;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/** Computes checksums of files found by the directory walker on a pool of worker threads.
+ *
+ * The walker submits files into a bounded queue, so it can not get arbitrarily ahead of the workers.
+ * Results are passed to the sink, which must be thread safe.
+ */
+class ChecksumPipeline implements AutoCloseable {
+    private static final FileEntry END_OF_WORK = new FileEntry(null, null, 0, 0);
+
+    private final BlockingQueue<FileEntry> queue;
+    private final ExecutorService workers;
+    private final int threads;
+    private final Function<FileEntry, FileInfo> hasher;
+    private final Consumer<FileInfo> sink;
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    /** Constructor, starts the worker threads.
+     *
+     * @param threads number of worker threads
+     * @param queueCapacity maximal number of files waiting for a worker
+     * @param hasher computes information about a file, may return null if the file can not be processed
+     * @param sink receives computed information
+     */
+    ChecksumPipeline(int threads, int queueCapacity, Function<FileEntry, FileInfo> hasher, Consumer<FileInfo> sink) {
+        this.threads = threads;
+        this.hasher = hasher;
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "checksum-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for(int i = 0; i < threads; i++)
+            workers.execute(this::work);
+    }
+
+    /** Adds a file to the queue. Blocks while the queue is full.
+     *
+     * @param entry file to be processed
+     */
+    void submit(FileEntry entry) {
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for checksum workers", e);
+        }
+    }
+
+    /** Returns number of files waiting for a worker
+     *
+     * @return current length of the queue
+     */
+    int queueSize() {
+        return queue.size();
+    }
+
+    private void work() {
+        try {
+            FileEntry entry;
+            while ((entry = queue.take()) != END_OF_WORK) {
+                if(failure.get() != null)
+                    continue; // drain the queue, the results will be thrown away anyway
+
+                try {
+                    FileInfo fileInfo = hasher.apply(entry);
+                    if (fileInfo != null)
+                        sink.accept(fileInfo);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Waits until all submitted files are processed and stops the workers.
+     * A failure of any worker is rethrown here, in the thread which feeds the pipeline.
+     */
+    @Override
+    public void close() {
+        for(int i = 0; i < threads; i++)
+            submit(END_OF_WORK);
+
+        workers.shutdown();
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.MINUTES)) ; // large files can take long
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        if(failure.get() != null)
+            throw failure.get();
+    }
+}
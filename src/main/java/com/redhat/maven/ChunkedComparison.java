@@ -0,0 +1,151 @@
+package com.redhat.maven;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.List;
+
+/** Compares copies of a large file block by block. All copies are read in lock-step and the comparison stops
+ * at the first block which is not the same in all copies, so only the common prefix of the files is read.
+ *
+ * When all copies are identical, the result carries the root of a two-level hash tree: the digest of the
+ * digests of all blocks. It is a checksum of the content, but it differs from the checksum of the whole file.
+ * Without an algorithm the copies are only compared byte by byte and nothing is hashed.
+ */
+class ChunkedComparison {
+    static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    /** Largest number of copies compared directly, more copies are hashed as each copy is then read only once */
+    static final int MAX_DIRECT_COPIES = 3;
+
+    private final DigestAlgorithm algorithm;
+    private final int chunkSize;
+    private final RateLimiter limiter;
+
+    /** Constructor
+     *
+     * @param algorithm checksum algorithm of the blocks and of the root, null to compare without hashing
+     * @param chunkSize size of a block in bytes
+     */
+    ChunkedComparison(DigestAlgorithm algorithm, int chunkSize) {
+        this(algorithm, chunkSize, null);
+    }
+
+    /** Constructor
+     *
+     * @param algorithm checksum algorithm of the blocks and of the root, null to compare without hashing
+     * @param chunkSize size of a block in bytes
+     * @param limiter limiter of read bytes, null for no limit
+     */
+    ChunkedComparison(DigestAlgorithm algorithm, int chunkSize, RateLimiter limiter) {
+        this.algorithm = algorithm;
+        this.chunkSize = chunkSize;
+        this.limiter = limiter;
+    }
+
+    /** Compares the copies of a file
+     *
+     * @param copies paths of the copies, at least two
+     * @return the root checksum or the first differing range
+     * @throws IOException when a copy can not be read
+     */
+    Result compare(List<Path> copies) throws IOException {
+        FileChannel[] channels = new FileChannel[copies.size()];
+        try {
+            ByteBuffer[] buffers = new ByteBuffer[copies.size()];
+            for(int i = 0; i < channels.length; i++) {
+                channels[i] = FileChannel.open(copies.get(i), StandardOpenOption.READ);
+                buffers[i] = ByteBuffer.allocate(chunkSize);
+            }
+
+            MessageDigest block = algorithm == null ? null : algorithm.newDigest(), root = algorithm == null ? null : algorithm.newDigest();
+            long offset = 0;
+            while(true) {
+                int longest = 0;
+                boolean same = true;
+                for(int i = 0; i < channels.length; i++) {
+                    readBlock(channels[i], buffers[i]);
+                    if(limiter != null)
+                        limiter.acquire(buffers[i].remaining());
+                    longest = Math.max(longest, buffers[i].remaining());
+                    same &= buffers[i].equals(buffers[0]);
+                }
+                if(!same)
+                    return new Result(false, null, offset, offset + longest - 1);
+                if(longest == 0)
+                    return new Result(true, root == null ? null : root.digest(), -1, -1);
+
+                if(root != null) {
+                    block.update(buffers[0]);
+                    root.update(block.digest());
+                }
+                offset += longest;
+            }
+        } finally {
+            for(FileChannel channel : channels) {
+                if(channel != null)
+                    channel.close();
+            }
+        }
+    }
+
+    /** Reads the next block, shorter only at the end of the file
+     *
+     * @param channel the file
+     * @param buffer target buffer, it is flipped for reading
+     * @throws IOException when the file can not be read
+     */
+    private static void readBlock(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while(buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // fill the whole block
+        }
+        buffer.flip();
+    }
+
+    /** Result of the comparison
+     */
+    static class Result {
+        private final boolean identical;
+        private final byte[] root;
+        private final long differenceStart;
+        private final long differenceEnd;
+
+        private Result(boolean identical, byte[] root, long differenceStart, long differenceEnd) {
+            this.identical = identical;
+            this.root = root;
+            this.differenceStart = differenceStart;
+            this.differenceEnd = differenceEnd;
+        }
+
+        boolean isIdentical() {
+            return identical;
+        }
+
+        /** Returns the root checksum of identical copies
+         *
+         * @return the checksum or null if the copies differ or they were compared without hashing
+         */
+        byte[] getRoot() {
+            return root;
+        }
+
+        /** Returns offset of the first byte of the first differing block
+         *
+         * @return the offset or -1 if the copies are identical
+         */
+        long getDifferenceStart() {
+            return differenceStart;
+        }
+
+        /** Returns offset of the last byte of the first differing block
+         *
+         * @return the offset or -1 if the copies are identical
+         */
+        long getDifferenceEnd() {
+            return differenceEnd;
+        }
+    }
+}
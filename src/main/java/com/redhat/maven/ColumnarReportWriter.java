@@ -0,0 +1,209 @@
+package com.redhat.maven;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/** Binary report for downstream tooling, organized in columns like Parquet.
+ *
+ * Files are collected into row groups. A row group is written as a sequence of columns, each prefixed by its length
+ * in bytes, so a reader can skip columns it does not need: repository ids, relative paths sharing their prefix with
+ * the previous path, raw checksums, sizes and optionally the differing ranges. Numbers are variable length integers.
+ * The footer at the end of the report holds the dictionary of repository names and the offsets of the row groups,
+ * followed by the length of the footer and the magic number.
+ */
+class ColumnarReportWriter extends ReportWriter {
+    static final int MAGIC = 0x52414346;
+    static final int ROW_GROUP_SIZE = 1 << 16;
+
+    private static final int VERSION = 1;
+
+    private final Map<String, Integer> repositoryIds = new HashMap<>();
+    private final List<String> repositoryNames = new ArrayList<>();
+    private final List<long[]> rowGroups = new ArrayList<>();
+    private final Column repositories = new Column();
+    private final Column paths = new Column();
+    private final Column checksums = new Column();
+    private final Column sizes = new Column();
+    private final Column differences = new Column();
+    private byte[] previousPath = new byte[0];
+    private int rows = 0;
+
+    ColumnarReportWriter(ChannelWriter output, boolean withDifference) {
+        super(output, withDifference);
+        writeInt(MAGIC);
+        writeInt(VERSION);
+    }
+
+    @Override
+    void write(FileInfo fileInfo, String difference) {
+        try {
+            Integer repository = repositoryIds.get(fileInfo.getRepositoryName());
+            if(repository == null) {
+                repository = repositoryNames.size();
+                repositoryIds.put(fileInfo.getRepositoryName(), repository);
+                repositoryNames.add(fileInfo.getRepositoryName());
+            }
+            RepositoryInfo.writeNumber(repositories.data, repository);
+
+            byte[] path = fileInfo.getRelativePath().getBytes(StandardCharsets.UTF_8);
+            int prefix = 0;
+            while(prefix < previousPath.length && prefix < path.length && previousPath[prefix] == path[prefix])
+                prefix++;
+            RepositoryInfo.writeNumber(paths.data, prefix);
+            RepositoryInfo.writeNumber(paths.data, path.length - prefix);
+            paths.data.write(path, prefix, path.length - prefix);
+            previousPath = path;
+
+            byte[] checksum = fileInfo.getChecksum() == null ? new byte[0] : FileInfo.fromHex(fileInfo.getChecksum());
+            checksums.data.writeByte(checksum.length);
+            checksums.data.write(checksum);
+
+            RepositoryInfo.writeNumber(sizes.data, fileInfo.getSize());
+
+            if(withDifference) {
+                byte[] range = (difference == null ? "" : difference).getBytes(StandardCharsets.UTF_8);
+                RepositoryInfo.writeNumber(differences.data, range.length);
+                differences.data.write(range);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // columns are in memory
+        }
+
+        if(++rows == ROW_GROUP_SIZE)
+            writeRowGroup();
+    }
+
+    /** Writes collected rows as a row group
+     */
+    private void writeRowGroup() {
+        rowGroups.add(new long[]{output.getPosition(), rows});
+        repositories.writeTo(output);
+        paths.writeTo(output);
+        checksums.writeTo(output);
+        sizes.writeTo(output);
+        if(withDifference)
+            differences.writeTo(output);
+        previousPath = new byte[0];
+        rows = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(rows > 0)
+            writeRowGroup();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream footer = new DataOutputStream(bytes);
+        footer.writeBoolean(withDifference);
+        RepositoryInfo.writeNumber(footer, repositoryNames.size());
+        for(String name : repositoryNames)
+            footer.writeUTF(name);
+        RepositoryInfo.writeNumber(footer, rowGroups.size());
+        for(long[] rowGroup : rowGroups) {
+            RepositoryInfo.writeNumber(footer, rowGroup[0]);
+            RepositoryInfo.writeNumber(footer, rowGroup[1]);
+        }
+        output.raw(bytes.toByteArray(), 0, bytes.size());
+        writeInt(bytes.size());
+        writeInt(MAGIC);
+        super.close();
+    }
+
+    private void writeInt(int value) {
+        output.raw(value >>> 24).raw(value >>> 16).raw(value >>> 8).raw(value);
+    }
+
+    /** Reads a report written by this writer
+     *
+     * @param input the report, it is read into memory
+     * @param consumer receives files of the report with the differing range, the range is null without the difference column
+     * @throws IOException when the report can not be read or it is malformed
+     */
+    static void read(InputStream input, BiConsumer<FileInfo, String> consumer) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1 << 16];
+        int count;
+        while((count = input.read(buffer)) >= 0)
+            content.write(buffer, 0, count);
+        byte[] report = content.toByteArray();
+
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(report));
+        if(report.length < 16 || header.readInt() != MAGIC || header.readInt() != VERSION)
+            throw new IOException("Not a columnar report");
+        DataInputStream trailer = new DataInputStream(new ByteArrayInputStream(report, report.length - 8, 8));
+        int footerLength = trailer.readInt();
+        if(trailer.readInt() != MAGIC || footerLength < 0 || footerLength > report.length - 16)
+            throw new IOException("Incomplete columnar report");
+
+        DataInputStream footer = new DataInputStream(new ByteArrayInputStream(report, report.length - 8 - footerLength, footerLength));
+        boolean withDifference = footer.readBoolean();
+        String[] names = new String[(int) RepositoryInfo.readNumber(footer)];
+        for(int i = 0; i < names.length; i++)
+            names[i] = footer.readUTF();
+
+        for(long groups = RepositoryInfo.readNumber(footer); groups > 0; groups--) {
+            int offset = (int) RepositoryInfo.readNumber(footer);
+            int rows = (int) RepositoryInfo.readNumber(footer);
+            DataInputStream group = new DataInputStream(new ByteArrayInputStream(report, offset, report.length - offset));
+            DataInputStream repositories = readColumn(group), paths = readColumn(group), checksums = readColumn(group),
+                    sizes = readColumn(group), differences = withDifference ? readColumn(group) : null;
+
+            byte[] path = new byte[256];
+            for(int row = 0; row < rows; row++) {
+                String repository = names[(int) RepositoryInfo.readNumber(repositories)];
+                int prefix = (int) RepositoryInfo.readNumber(paths);
+                int length = prefix + (int) RepositoryInfo.readNumber(paths);
+                if(length > path.length)
+                    path = Arrays.copyOf(path, Math.max(length, 2 * path.length));
+                paths.readFully(path, prefix, length - prefix);
+                byte[] checksum = new byte[checksums.readUnsignedByte()];
+                checksums.readFully(checksum);
+                long size = RepositoryInfo.readNumber(sizes);
+                String difference = null;
+                if(differences != null) {
+                    byte[] range = new byte[(int) RepositoryInfo.readNumber(differences)];
+                    differences.readFully(range);
+                    difference = new String(range, StandardCharsets.UTF_8);
+                }
+                consumer.accept(new FileInfo(size, new String(path, 0, length, StandardCharsets.UTF_8),
+                        checksum.length == 0 ? null : FileInfo.toHex(checksum), repository), difference);
+            }
+        }
+    }
+
+    private static DataInputStream readColumn(DataInputStream group) throws IOException {
+        byte[] column = new byte[group.readInt()];
+        group.readFully(column);
+        return new DataInputStream(new ByteArrayInputStream(column));
+    }
+
+    /** Values of a column of the current row group
+     */
+    private static class Column {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream data = new DataOutputStream(bytes);
+
+        /** Writes the column prefixed by its length and starts a new one
+         *
+         * @param output target of the report
+         */
+        private void writeTo(ChannelWriter output) {
+            int length = bytes.size();
+            output.raw(length >>> 24).raw(length >>> 16).raw(length >>> 8).raw(length);
+            output.raw(bytes.toByteArray(), 0, length);
+            bytes.reset();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.redhat.maven;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/** Memory efficient replacement of the map of file infos for very large repositories.
+ *
+ * Records are kept in primitive arrays: repository names are replaced by small ids, relative paths by ids
+ * from a {@link PathDictionary} and checksums are stored as raw bytes packed into longs. {@link FileInfo}
+ * objects are created only for the reported discrepancies.
+ */
+class CompactFileIndex {
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    private final PathDictionary paths = new PathDictionary();
+    private final Map<String, Integer> repositoryIds = new HashMap<>();
+    private final List<String> repositoryNames = new ArrayList<>();
+
+    private int count = 0;
+    private int[] repositories = new int[INITIAL_CAPACITY];
+    private int[] pathIds = new int[INITIAL_CAPACITY];
+    private long[] sizes = new long[INITIAL_CAPACITY];
+    private final BitSet withChecksum = new BitSet();
+    private int checksumLength = -1;
+    private int stride = 0;
+    private long[] checksums = new long[0];
+
+    private int[] errors = new int[0];
+
+    /** Adds a file. Can be called from multiple threads.
+     *
+     * @param fileInfo information about the file, it is not referenced afterwards
+     */
+    synchronized void add(FileInfo fileInfo) {
+        byte[] checksum = fileInfo.getChecksum() == null ? null : FileInfo.fromHex(fileInfo.getChecksum());
+        if(checksum != null && checksumLength < 0) {
+            checksumLength = checksum.length;
+            stride = (checksumLength + Long.BYTES - 1) / Long.BYTES;
+            checksums = new long[repositories.length * stride];
+        }
+        if(checksum != null && checksum.length != checksumLength)
+            throw new IllegalArgumentException("Checksums of different length can not be mixed");
+
+        if(count == repositories.length) {
+            int capacity = count + (count >> 1);
+            repositories = Arrays.copyOf(repositories, capacity);
+            pathIds = Arrays.copyOf(pathIds, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            checksums = Arrays.copyOf(checksums, capacity * stride);
+        }
+
+        repositories[count] = repositoryIds.computeIfAbsent(fileInfo.getRepositoryName(), name -> {
+            repositoryNames.add(name);
+            return repositoryNames.size() - 1;
+        });
+        pathIds[count] = paths.add(fileInfo.getRelativePath());
+        sizes[count] = fileInfo.getSize();
+        if(checksum != null) {
+            withChecksum.set(count);
+            for(int i = 0; i < checksum.length; i++)
+                checksums[count * stride + i / Long.BYTES] |= (checksum[i] & 0xFFL) << (8 * (i % Long.BYTES));
+        }
+        count++;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /** Finds paths where the files differ, in the same way as {@link FileInfo#compareInfos(FileInfo...)}.
+     *
+     * @return relative paths of the discrepancies
+     */
+    synchronized List<String> compare() {
+        int[] order = orderByPath();
+        int[] found = new int[16];
+        int foundCount = 0;
+
+        for(int start = 0; start < count; ) {
+            int end = start + 1;
+            while(end < count && pathIds[order[end]] == pathIds[order[start]])
+                end++;
+
+            for(int i = start; i < end - 1; i++) {
+                if(!sameContent(order[i], order[i + 1])) {
+                    if(foundCount == found.length)
+                        found = Arrays.copyOf(found, foundCount * 2);
+                    found[foundCount++] = pathIds[order[start]];
+                    break;
+                }
+            }
+            start = end;
+        }
+
+        errors = Arrays.copyOf(found, foundCount);
+        List<String> result = new ArrayList<>(foundCount);
+        for(int path : errors)
+            result.add(paths.get(path));
+        return result;
+    }
+
+    /** Passes all files of the discrepancies found by {@link #compare()} to the consumer, sorted by path and
+     * repository name.
+     *
+     * @param consumer receives the files
+     */
+    synchronized void forEachDiscrepancy(Consumer<FileInfo> consumer) {
+        Map<String, Integer> errorPaths = new TreeMap<>();
+        for(int path : errors)
+            errorPaths.put(paths.get(path), path);
+
+        int[] order = orderByPath();
+        int[] firstRecord = new int[paths.size() + 1];
+        for(int i = count - 1; i >= 0; i--)
+            firstRecord[pathIds[order[i]]] = i;
+
+        for(Map.Entry<String, Integer> error : errorPaths.entrySet()) {
+            List<FileInfo> infos = new ArrayList<>();
+            for(int i = firstRecord[error.getValue()]; i < count && pathIds[order[i]] == error.getValue(); i++)
+                infos.add(toFileInfo(order[i], error.getKey()));
+            infos.stream().sorted().forEach(consumer);
+        }
+    }
+
+    /** Sorts records by path id using counting sort, which needs no objects.
+     *
+     * @return indexes of records with equal paths next to each other
+     */
+    private int[] orderByPath() {
+        int[] positions = new int[paths.size() + 1];
+        for(int i = 0; i < count; i++)
+            positions[pathIds[i] + 1]++;
+        for(int i = 1; i < positions.length; i++)
+            positions[i] += positions[i - 1];
+
+        int[] order = new int[count];
+        for(int i = 0; i < count; i++)
+            order[positions[pathIds[i]]++] = i;
+        return order;
+    }
+
+    private boolean sameContent(int first, int second) {
+        if(sizes[first] != sizes[second] || withChecksum.get(first) != withChecksum.get(second))
+            return false;
+        for(int i = 0; withChecksum.get(first) && i < stride; i++) {
+            if(checksums[first * stride + i] != checksums[second * stride + i])
+                return false;
+        }
+        return true;
+    }
+
+    private FileInfo toFileInfo(int record, String path) {
+        String checksum = null;
+        if(withChecksum.get(record)) {
+            byte[] bytes = new byte[checksumLength];
+            for(int i = 0; i < checksumLength; i++)
+                bytes[i] = (byte) (checksums[record * stride + i / Long.BYTES] >>> (8 * (i % Long.BYTES)));
+            checksum = FileInfo.toHex(bytes);
+        }
+        return new FileInfo(sizes[record], path, checksum, repositoryNames.get(repositories[record]));
+    }
+}
@@ -0,0 +1,75 @@
+package com.redhat.maven;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/** Checksum algorithms which can be selected by the --digest switch
+ */
+enum DigestAlgorithm {
+    MD5("md5", "MD5", ".md5"),
+    SHA1("sha1", "SHA-1", ".sha1"),
+    SHA256("sha256", "SHA-256", ".sha256"),
+    MURMUR3("murmur3", Murmur3Digest.ALGORITHM, null);
+
+    private final String option;
+    private final String name;
+    private final String sidecarExtension;
+
+    DigestAlgorithm(String option, String name, String sidecarExtension) {
+        this.option = option;
+        this.name = name;
+        this.sidecarExtension = sidecarExtension;
+    }
+
+    /** Returns value of the --digest switch selecting this algorithm
+     *
+     * @return lower case name of the algorithm
+     */
+    String getOption() {
+        return option;
+    }
+
+    /** Returns standard name of the algorithm
+     *
+     * @return name of the algorithm
+     */
+    String getName() {
+        return name;
+    }
+
+    /** Returns extension of sidecar files with this checksum written by Maven and Nexus next to artifacts
+     *
+     * @return extension including the dot or null if there are no such files
+     */
+    String getSidecarExtension() {
+        return sidecarExtension;
+    }
+
+    /** Creates a new instance of the digest
+     *
+     * @return message digest computing this algorithm
+     */
+    MessageDigest newDigest() {
+        if(this == MURMUR3)
+            return new Murmur3Digest();
+
+        try {
+            return MessageDigest.getInstance(name);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every Java platform has to support MD5, SHA-1 and SHA-256
+        }
+    }
+
+    /** Finds algorithm by value of the --digest switch
+     *
+     * @param option value of the switch, case does not matter
+     * @return the algorithm or null if there is no such algorithm
+     */
+    static DigestAlgorithm fromOption(String option) {
+        for(DigestAlgorithm algorithm : values()) {
+            if(algorithm.option.equalsIgnoreCase(option) || algorithm.name.equalsIgnoreCase(option))
+                return algorithm;
+        }
+        return null;
+    }
+}
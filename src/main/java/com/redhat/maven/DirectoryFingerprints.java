@@ -0,0 +1,457 @@
+package com.redhat.maven;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/** Fingerprints of directory trees, a Merkle tree over the directory structure of every repository.
+ *
+ * The fingerprint of a file is computed from its name, size and its checksum from the checksum cache, or the time
+ * of its last modification when it is not cached. The fingerprint of a directory is computed from names and
+ * fingerprints of its children. Only metadata is read, no file is opened.
+ *
+ * Repositories are compared top-down: a directory with the same fingerprint in all repositories containing it is
+ * skipped with its whole subtree, otherwise its children are compared and only files with different fingerprints
+ * are passed on to be hashed. Copies made by cp -p, rsync or tar keep the size and the time of modification, so
+ * equal fingerprints prove equal content across repositories only when they are computed from cached checksums,
+ * all other files are hashed. The time of modification only tells that a file did not change since the previous run. Fingerprints of the compared directories are kept in a file between runs together
+ * with the discrepancies found in them, so a directory which differs across repositories, but did not change in
+ * any of them since the previous run, is not compared again and its discrepancies are taken from the file.
+ */
+class DirectoryFingerprints {
+    private static final int MAGIC = 0x52414650;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte FILE = 1, DIRECTORY = 2, CHECKSUM = 3, LAST_MODIFIED = 4;
+
+    private final DigestAlgorithm algorithm;
+    private final ChecksumCache cache;
+    private final TreeMap<String, Record> previous = new TreeMap<>();
+    private final Map<String, Record> current = new HashMap<>();
+    private long skippedDirectories = 0, skippedFiles = 0, reusedDirectories = 0, comparedDirectories = 0;
+
+    /** Constructor
+     *
+     * @param algorithm algorithm of the fingerprints
+     * @param cache cached checksums of files, null if there is no cache
+     */
+    DirectoryFingerprints(DigestAlgorithm algorithm, ChecksumCache cache) {
+        this.algorithm = algorithm;
+        this.cache = cache;
+    }
+
+    /** Loads fingerprints of a previous run. A missing file means no previous run, fingerprints of another
+     * algorithm are ignored.
+     *
+     * @param file file with the fingerprints
+     * @param algorithm algorithm of the fingerprints
+     * @param cache cached checksums of files, null if there is no cache
+     * @return the fingerprints
+     * @throws IOException when the file can not be read or is corrupted
+     */
+    static DirectoryFingerprints load(Path file, DigestAlgorithm algorithm, ChecksumCache cache) throws IOException {
+        DirectoryFingerprints fingerprints = new DirectoryFingerprints(algorithm, cache);
+        if(!Files.isRegularFile(file))
+            return fingerprints;
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            if(input.readInt() != MAGIC || input.readInt() != VERSION)
+                throw new IOException("File "+file+" does not contain directory fingerprints");
+            if(!algorithm.getName().equals(input.readUTF()))
+                return fingerprints;
+
+            int count = input.readInt();
+            for(int i = 0; i < count; i++) {
+                String path = input.readUTF();
+                Record record = new Record(new HashMap<>());
+                int repositories = (int) RepositoryInfo.readNumber(input);
+                for(int j = 0; j < repositories; j++) {
+                    String repository = input.readUTF();
+                    byte[] fingerprint = new byte[input.readUnsignedByte()];
+                    input.readFully(fingerprint);
+                    record.fingerprints.put(repository, fingerprint);
+                }
+                int discrepancies = (int) RepositoryInfo.readNumber(input);
+                for(int j = 0; j < discrepancies; j++) {
+                    String repositoryName = input.readUTF(), relativePath = input.readUTF();
+                    long size = RepositoryInfo.readNumber(input), lastModified = input.readLong();
+                    String checksum = input.readBoolean() ? input.readUTF() : null;
+                    record.discrepancies.add(new FileInfo(size, relativePath, checksum, repositoryName, lastModified));
+                }
+                fingerprints.previous.put(path, record);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Directory fingerprints "+file+" are truncated", e);
+        }
+        return fingerprints;
+    }
+
+    /** Reads metadata of a repository and computes fingerprints of all its files and directories
+     *
+     * @param repository root directory of the repository
+     * @param accessDenied called for directories and files which can not be read
+     * @return the root of the tree
+     */
+    Node build(File repository, Consumer<Path> accessDenied) {
+        return build(repository.toPath(), "", algorithm.newDigest(), accessDenied);
+    }
+
+    private Node build(Path directory, String name, MessageDigest digest, Consumer<Path> accessDenied) {
+        List<Node> children = new ArrayList<>();
+        boolean readable = true;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for(Path entry : entries) {
+                String childName = entry.getFileName().toString();
+                if(RepositoryWalker.isIgnored(childName))
+                    continue;
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+                    if(attrs.isDirectory())
+                        children.add(build(entry, childName, digest, accessDenied));
+                    else if(attrs.isRegularFile())
+                        children.add(file(entry, childName, attrs, digest));
+                } catch (IOException e) {
+                    fail(entry, e, accessDenied);
+                    readable = false;
+                }
+            }
+        } catch (IOException e) {
+            fail(directory, e, accessDenied);
+            readable = false;
+        }
+
+        children.sort(Comparator.comparing(node -> node.name));
+        long files = 0;
+        boolean content = true;
+        for(Node child : children) {
+            content &= child.content;
+            if(child.fingerprint == null)
+                readable = false;
+            digest.update(child.isDirectory() ? DIRECTORY : FILE);
+            update(digest, child.name);
+            if(child.fingerprint != null)
+                digest.update(child.fingerprint);
+            files += child.isDirectory() ? child.files : 1;
+        }
+        byte[] fingerprint = digest.digest();
+        // a directory which was not read completely never matches, so it is compared file by file
+        return new Node(name, 0, 0, readable ? fingerprint : null, readable && content, children.toArray(new Node[0]), files);
+    }
+
+    private Node file(Path file, String name, BasicFileAttributes attrs, MessageDigest digest) {
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        byte[] checksum = cache == null ? null : cache.peek(file.toAbsolutePath().toString(), attrs.size(), lastModified);
+        update(digest, name);
+        digest.update(longBytes(attrs.size()));
+        if(checksum != null) {
+            digest.update(CHECKSUM);
+            digest.update(checksum);
+        } else {
+            digest.update(LAST_MODIFIED);
+            digest.update(longBytes(lastModified));
+        }
+        return new Node(name, attrs.size(), lastModified, digest.digest(), checksum != null, null, 1);
+    }
+
+    /** Compares the trees of the repositories top-down
+     *
+     * @param repositories root directories of the repositories
+     * @param roots trees of the repositories in the same order
+     * @param consumer receives copies of files whose fingerprints differ, they have to be hashed
+     * @param reused receives files of discrepancies found in the previous run in directories which did not change
+     */
+    void compare(List<File> repositories, List<Node> roots, Consumer<FileEntry> consumer, Consumer<FileInfo> reused) {
+        compareDirectory("", repositories, roots.toArray(new Node[0]), consumer, reused);
+    }
+
+    private void compareDirectory(String path, List<File> repositories, Node[] nodes, Consumer<FileEntry> consumer, Consumer<FileInfo> reused) {
+        if(same(nodes)) {
+            skippedDirectories++;
+            for(Node node : nodes)
+                skippedFiles += node == null ? 0 : node.files;
+            return;
+        }
+
+        Map<String, byte[]> fingerprints = new HashMap<>();
+        for(int i = 0; i < nodes.length; i++) {
+            if(nodes[i] != null && nodes[i].fingerprint != null)
+                fingerprints.put(repositories.get(i).getAbsolutePath(), nodes[i].fingerprint);
+        }
+        Record last = previous.get(path);
+        if(last != null && fingerprints.size() == count(nodes) && last.matches(fingerprints)) {
+            reuse(path, reused);
+            return;
+        }
+        current.put(path, new Record(fingerprints));
+        comparedDirectories++;
+
+        SortedSet<String> names = new TreeSet<>();
+        for(Node node : nodes) {
+            if(node != null)
+                Arrays.stream(node.children).forEach(child -> names.add(child.name));
+        }
+        for(String name : names) {
+            Node[] directories = new Node[nodes.length], files = new Node[nodes.length];
+            for(int i = 0; i < nodes.length; i++) {
+                Node child = nodes[i] == null ? null : nodes[i].child(name);
+                if(child != null)
+                    (child.isDirectory() ? directories : files)[i] = child;
+            }
+            String childPath = path.isEmpty() ? name : path + File.separator + name;
+            if(count(directories) > 0)
+                compareDirectory(childPath, repositories, directories, consumer, reused);
+            if(count(files) > 0)
+                compareFiles(childPath, repositories, files, consumer);
+        }
+    }
+
+    private void compareFiles(String path, List<File> repositories, Node[] nodes, Consumer<FileEntry> consumer) {
+        if(same(nodes)) {
+            skippedFiles += count(nodes);
+            return;
+        }
+        for(int i = 0; i < nodes.length; i++) {
+            if(nodes[i] != null)
+                consumer.accept(new FileEntry(new File(repositories.get(i), path), repositories.get(i), nodes[i].size, nodes[i].lastModified));
+        }
+    }
+
+    /** Takes over discrepancies of an unchanged directory and of all its subdirectories from the previous run
+     *
+     * @param path the directory
+     * @param reused receives the files of the discrepancies
+     */
+    private void reuse(String path, Consumer<FileInfo> reused) {
+        reusedDirectories++;
+        reuse(path, previous.get(path), reused);
+        // siblings like a-b sort between a and a/..., so the subdirectories are taken by their prefix
+        Map<String, Record> subdirectories = path.isEmpty() ? previous.tailMap(path, false)
+                : previous.subMap(path + File.separator, path + File.separator + Character.MAX_VALUE);
+        subdirectories.forEach((subdirectory, record) -> reuse(subdirectory, record, reused));
+    }
+
+    private void reuse(String path, Record record, Consumer<FileInfo> reused) {
+        if(record == null)
+            return;
+        record.reused = true;
+        record.discrepancies.forEach(reused);
+        current.put(path, record);
+    }
+
+    /** Tells whether a directory or a file needs no comparison: it is in a single repository or it has
+     * the same fingerprint computed from checksums everywhere
+     *
+     * @param nodes copies of the directory or the file, null where it is missing
+     * @return true if it is skipped
+     */
+    private static boolean same(Node[] nodes) {
+        byte[] first = null;
+        int present = 0;
+        boolean content = true;
+        for(Node node : nodes) {
+            if(node == null)
+                continue;
+            if(node.fingerprint == null)
+                return false;
+            content &= node.content;
+            if(present++ == 0)
+                first = node.fingerprint;
+            else if(!Arrays.equals(first, node.fingerprint))
+                return false;
+        }
+        // equal sizes and times of modification do not prove equal content of copies
+        return present < 2 || content;
+    }
+
+    private static int count(Node[] nodes) {
+        int count = 0;
+        for(Node node : nodes) {
+            if(node != null)
+                count++;
+        }
+        return count;
+    }
+
+    /** Remembers discrepancies of the compared directories for the next run, called when the comparison is done
+     *
+     * @param discrepancies relative paths of the discrepancies
+     * @param files copies of a discrepancy
+     */
+    void recordDiscrepancies(Collection<String> discrepancies, Function<String, ? extends List<FileInfo>> files) {
+        for(String path : discrepancies) {
+            int separator = path.lastIndexOf(File.separatorChar);
+            Record record = current.get(separator < 0 ? "" : path.substring(0, separator));
+            if(record != null && !record.reused)
+                record.discrepancies.addAll(files.apply(path));
+        }
+    }
+
+    /** Writes fingerprints of the compared directories. A temporary file is written first, so an interrupted run
+     * does not destroy the previous fingerprints.
+     *
+     * @param file target file
+     * @throws IOException when the file can not be written
+     */
+    void save(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName()+".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeUTF(algorithm.getName());
+            output.writeInt(current.size());
+            for(Map.Entry<String, Record> entry : new TreeMap<>(current).entrySet()) {
+                output.writeUTF(entry.getKey());
+                Record record = entry.getValue();
+                RepositoryInfo.writeNumber(output, record.fingerprints.size());
+                for(Map.Entry<String, byte[]> fingerprint : record.fingerprints.entrySet()) {
+                    output.writeUTF(fingerprint.getKey());
+                    output.writeByte(fingerprint.getValue().length);
+                    output.write(fingerprint.getValue());
+                }
+                RepositoryInfo.writeNumber(output, record.discrepancies.size());
+                for(FileInfo fileInfo : record.discrepancies) {
+                    output.writeUTF(fileInfo.getRepositoryName());
+                    output.writeUTF(fileInfo.getRelativePath());
+                    RepositoryInfo.writeNumber(output, fileInfo.getSize());
+                    output.writeLong(fileInfo.getLastModified());
+                    output.writeBoolean(fileInfo.getChecksum() != null);
+                    if(fileInfo.getChecksum() != null)
+                        output.writeUTF(fileInfo.getChecksum());
+                }
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    long getSkippedDirectories() {
+        return skippedDirectories;
+    }
+
+    long getSkippedFiles() {
+        return skippedFiles;
+    }
+
+    long getReusedDirectories() {
+        return reusedDirectories;
+    }
+
+    long getComparedDirectories() {
+        return comparedDirectories;
+    }
+
+    private static void update(MessageDigest digest, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        digest.update(longBytes(bytes.length), 4, 4);
+        digest.update(bytes);
+    }
+
+    private static byte[] longBytes(long value) {
+        byte[] bytes = new byte[8];
+        for(int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        return bytes;
+    }
+
+    private static void fail(Path path, IOException e, Consumer<Path> accessDenied) {
+        if(e instanceof AccessDeniedException)
+            accessDenied.accept(path);
+        else
+            System.err.println("Error reading "+path+": "+e);
+    }
+
+    /** A file or a directory with its fingerprint
+     */
+    static class Node {
+        private final String name;
+        private final long size;
+        private final long lastModified;
+        private final byte[] fingerprint;
+        private final boolean content;
+        private final Node[] children;
+        private final long files;
+
+        private Node(String name, long size, long lastModified, byte[] fingerprint, boolean content, Node[] children, long files) {
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.fingerprint = fingerprint;
+            this.content = content;
+            this.children = children;
+            this.files = files;
+        }
+
+        boolean isDirectory() {
+            return children != null;
+        }
+
+        /** Returns the fingerprint
+         *
+         * @return the fingerprint, null for a directory which could not be read completely
+         */
+        byte[] getFingerprint() {
+            return fingerprint;
+        }
+
+        /** Tells whether the fingerprint is computed from checksums of all files, only then equal fingerprints
+         * of different repositories mean equal content
+         *
+         * @return false if a file is not in the checksum cache or a directory could not be read completely
+         */
+        boolean isContent() {
+            return content;
+        }
+
+        /** Finds a child by name, children are sorted by name
+         *
+         * @param name name of the child
+         * @return the child, null if there is none
+         */
+        Node child(String name) {
+            int low = 0, high = children.length - 1;
+            while(low <= high) {
+                int middle = (low + high) >>> 1;
+                int result = children[middle].name.compareTo(name);
+                if(result < 0)
+                    low = middle + 1;
+                else if(result > 0)
+                    high = middle - 1;
+                else
+                    return children[middle];
+            }
+            return null;
+        }
+    }
+
+    /** Fingerprints of a compared directory in all repositories containing it and discrepancies of its files
+     */
+    private static class Record {
+        private final Map<String, byte[]> fingerprints;
+        private final List<FileInfo> discrepancies = new ArrayList<>();
+        private boolean reused = false;
+
+        private Record(Map<String, byte[]> fingerprints) {
+            this.fingerprints = fingerprints;
+        }
+
+        private boolean matches(Map<String, byte[]> other) {
+            if(!fingerprints.keySet().equals(other.keySet()))
+                return false;
+            for(Map.Entry<String, byte[]> entry : fingerprints.entrySet()) {
+                if(!Arrays.equals(entry.getValue(), other.get(entry.getKey())))
+                    return false;
+            }
+            return true;
+        }
+    }
+}
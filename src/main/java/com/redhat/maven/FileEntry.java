@@ -0,0 +1,59 @@
+package com.redhat.maven;
+
+import java.io.File;
+
+/** A file found by the directory walker which waits for its checksum
+ */
+class FileEntry {
+    private final File file;
+    private final File repository;
+    private final long size;
+    private final long lastModified;
+
+    /** Constructor
+     *
+     * @param file the file to be processed
+     * @param repository root directory of the repository the file belongs to
+     * @param size file size
+     * @param lastModified time of the last modification of the file
+     */
+    FileEntry(File file, File repository, long size, long lastModified) {
+        this.file = file;
+        this.repository = repository;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    File getRepository() {
+        return repository;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    long getLastModified() {
+        return lastModified;
+    }
+
+    /** Returns path of the file relative to the root of its repository.
+     *
+     * @return relative path
+     */
+    String getRelativePath() {
+        return file.getAbsolutePath().substring(repository.getAbsolutePath().length()+1);
+    }
+
+    /** Creates information about the file for comparison
+     *
+     * @param checksum hexadecimal checksum, null if it was not computed
+     * @return information about the file
+     */
+    FileInfo toFileInfo(String checksum) {
+        return new FileInfo(size, getRelativePath(), checksum, repository.getName(), lastModified);
+    }
+}
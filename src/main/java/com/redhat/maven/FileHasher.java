@@ -0,0 +1,101 @@
+package com.redhat.maven;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/** Computes checksums of files through file channels.
+ *
+ * Small files are streamed through a direct buffer, large files are memory mapped. Every thread owns one
+ * buffer and one message digest, which are reused for all its files, so no memory is allocated per file
+ * except the resulting checksum.
+ */
+class FileHasher {
+    static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+    static final long DEFAULT_MAPPING_THRESHOLD = 64L * 1024 * 1024;
+    private static final long MAPPING_WINDOW = 1L << 30;
+
+    private final DigestAlgorithm algorithm;
+    private final long mappingThreshold;
+    private final ThreadLocal<ByteBuffer> buffers;
+    private final ThreadLocal<MessageDigest> digests;
+    private final int bufferSize;
+    private final RateLimiter limiter;
+
+    /** Constructor
+     *
+     * @param algorithm checksum algorithm
+     * @param bufferSize size of the buffer for streamed files
+     * @param mappingThreshold files of this size and larger are memory mapped
+     */
+    FileHasher(DigestAlgorithm algorithm, int bufferSize, long mappingThreshold) {
+        this(algorithm, bufferSize, mappingThreshold, null);
+    }
+
+    /** Constructor
+     *
+     * @param algorithm checksum algorithm
+     * @param bufferSize size of the buffer for streamed files, also the unit of throttling
+     * @param mappingThreshold files of this size and larger are memory mapped
+     * @param limiter limiter of read bytes, null for no limit
+     */
+    FileHasher(DigestAlgorithm algorithm, int bufferSize, long mappingThreshold, RateLimiter limiter) {
+        this.algorithm = algorithm;
+        this.mappingThreshold = mappingThreshold;
+        this.bufferSize = bufferSize;
+        this.limiter = limiter;
+        this.buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(bufferSize));
+        this.digests = ThreadLocal.withInitial(algorithm::newDigest);
+    }
+
+    DigestAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /** Computes the checksum of a file
+     *
+     * @param file file to be read
+     * @return checksum of the whole file
+     * @throws IOException when the file can not be read
+     */
+    byte[] hash(Path file) throws IOException {
+        MessageDigest digest = digests.get();
+        digest.reset();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if(size >= mappingThreshold) {
+                for(long position = 0; position < size; position += MAPPING_WINDOW) {
+                    ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Long.min(MAPPING_WINDOW, size - position));
+                    if(limiter == null || limiter.getRate() <= 0) {
+                        digest.update(window);
+                        continue;
+                    }
+                    while(window.hasRemaining()) { // throttled by buffer sized slices
+                        int length = Math.min(bufferSize, window.remaining());
+                        limiter.acquire(length);
+                        ByteBuffer slice = window.duplicate();
+                        slice.limit(slice.position() + length);
+                        digest.update(slice);
+                        window.position(window.position() + length);
+                    }
+                }
+            } else {
+                ByteBuffer buffer = buffers.get();
+                buffer.clear();
+                int read;
+                while((read = channel.read(buffer)) >= 0) {
+                    if(limiter != null)
+                        limiter.acquire(read);
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+            }
+        }
+        return digest.digest();
+    }
+}
@@ -7,27 +7,42 @@ import java.util.Objects;
 /** Information about specific file
  */
 class FileInfo implements Comparable<FileInfo> {
-    private String md5;
+    private String checksum;
     private String relativePath;
     private long size;
     private String repositoryName;
+    private long lastModified;
 
     /** Constructor
      *
      * @param size file size
      * @param relativePath relative path of the file within the repository
-     * @param md5 MD5 checksum
+     * @param checksum hexadecimal checksum, null if it was not computed
+     * @param repositoryName name of the repository the file belongs to
      */
-    public FileInfo(long size, String relativePath, String md5, String repositoryName) {
-        this.md5 = md5;
+    public FileInfo(long size, String relativePath, String checksum, String repositoryName) {
+        this(size, relativePath, checksum, repositoryName, 0);
+    }
+
+    /** Constructor
+     *
+     * @param size file size
+     * @param relativePath relative path of the file within the repository
+     * @param checksum hexadecimal checksum, null if it was not computed
+     * @param repositoryName name of the repository the file belongs to
+     * @param lastModified time of the last modification of the file, 0 if it is not known
+     */
+    public FileInfo(long size, String relativePath, String checksum, String repositoryName, long lastModified) {
+        this.checksum = checksum;
         this.relativePath = relativePath;
         this.size = size;
         this.repositoryName = repositoryName;
+        this.lastModified = lastModified;
     }
 
 
-    public String getMd5() {
-        return md5;
+    public String getChecksum() {
+        return checksum;
     }
 
     public long getSize() {
@@ -38,6 +53,10 @@ class FileInfo implements Comparable<FileInfo> {
         return relativePath;
     }
 
+    public long getLastModified() {
+        return lastModified;
+    }
+
     /** Compares if files are similar
      *
      * @param infos file infos to
@@ -54,13 +73,48 @@ class FileInfo implements Comparable<FileInfo> {
         for(int i = 0; i < (infos.length-1); i++) {
             if( infos[i].getSize() != infos[i+1].getSize() ||
                     !Objects.equals(infos[i].getRelativePath(), infos[i+1].getRelativePath()) ||
-                    !Objects.equals(infos[i].getMd5(), infos[i+1].getMd5()))
+                    !Objects.equals(infos[i].getChecksum(), infos[i+1].getChecksum()))
                 return false;
         }
         return true;
 
     }
 
+    /** Converts a checksum to its hexadecimal representation
+     *
+     * @param digest raw checksum
+     * @return upper case hexadecimal string
+     */
+    static String toHex(byte[] digest) {
+        char[] result = new char[digest.length * 2];
+        for(int i = 0; i < digest.length; i++) {
+            result[2*i] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+            result[2*i+1] = HEX_DIGITS[digest[i] & 0xF];
+        }
+        return new String(result);
+    }
+
+    /** Converts hexadecimal representation of a checksum back to bytes
+     *
+     * @param hex hexadecimal string as created by {@link #toHex(byte[])}, case does not matter
+     * @return raw checksum
+     */
+    static byte[] fromHex(String hex) {
+        if(hex.length() % 2 != 0)
+            throw new IllegalArgumentException("Invalid checksum: "+hex);
+
+        byte[] result = new byte[hex.length() / 2];
+        for(int i = 0; i < result.length; i++) {
+            int high = Character.digit(hex.charAt(2*i), 16), low = Character.digit(hex.charAt(2*i+1), 16);
+            if(high < 0 || low < 0)
+                throw new IllegalArgumentException("Invalid checksum: "+hex);
+            result[i] = (byte) ((high << 4) | low);
+        }
+        return result;
+    }
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
     public String getRepositoryName() {
         return repositoryName;
     }
@@ -0,0 +1,253 @@
+package com.redhat.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/** Compares repositories by versions of artifacts instead of single files.
+ *
+ * Files in the Maven layout are collected by their {@link MavenCoordinate.Gav} while the repositories are walked.
+ * When all copies are known, the files of a version are compared in the order POM, main artifact, the rest. Copies
+ * with different sizes conflict without reading them, copies with the same size are hashed. The first conflicting
+ * file decides the version, the remaining files of the version are stored without checksum, so they are neither
+ * read nor reported. Files found in a single repository are not hashed either, there is nothing to compare them with.
+ */
+class GavComparison {
+    static final String IDENTICAL = "identical";
+    static final String CONFLICT = "conflict";
+    static final String SIZE = "size";
+    static final String CHECKSUM = "checksum";
+
+    private final MavenCoordinate.Parser parser = new MavenCoordinate.Parser();
+    private final Map<MavenCoordinate.Gav, Map<String, Artifact>> versions = new ConcurrentHashMap<>();
+    private final Function<FileEntry, FileInfo> hasher;
+    private final Consumer<FileInfo> consumer;
+    private final Consumer<FileEntry> skipped;
+    private final List<Result> results = new ArrayList<>();
+
+    /** Constructor
+     *
+     * @param hasher computes the checksum of a file, returns null when the file can not be read
+     * @param consumer receives information about all collected files
+     * @param skipped receives files which are not hashed
+     */
+    GavComparison(Function<FileEntry, FileInfo> hasher, Consumer<FileInfo> consumer, Consumer<FileEntry> skipped) {
+        this.hasher = hasher;
+        this.consumer = consumer;
+        this.skipped = skipped;
+    }
+
+    /** Collects a file in the Maven layout. Can be called from multiple threads at once.
+     *
+     * @param entry the file
+     * @return false if the path does not follow the Maven layout and the file has to be processed as usual
+     */
+    boolean add(FileEntry entry) {
+        String path = entry.getRelativePath();
+        MavenCoordinate coordinate = parser.parse(path);
+        if(coordinate == null)
+            return false;
+
+        versions.computeIfAbsent(coordinate.getGav(), key -> new ConcurrentHashMap<>())
+                .compute(path, (key, artifact) -> {
+                    if(artifact == null)
+                        artifact = new Artifact(coordinate, path);
+                    artifact.copies.add(entry);
+                    return artifact;
+                });
+        return true;
+    }
+
+    /** Number of collected versions
+     *
+     * @return the number of GAVs
+     */
+    int size() {
+        return versions.size();
+    }
+
+    /** Compares all collected versions, the collected files are released
+     *
+     * @param threads number of versions compared at once
+     */
+    void compare(int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for(Map.Entry<MavenCoordinate.Gav, Map<String, Artifact>> version : versions.entrySet())
+                futures.add(executor.submit(() -> compare(version.getKey(), version.getValue().values())));
+            for(Future<Result> future : futures)
+                results.add(future.get());
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Comparison of versions failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while comparing versions", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        versions.clear();
+        results.sort(Comparator.comparing(Result::getGav));
+    }
+
+    /** Compares files of a single version
+     *
+     * @param gav the version
+     * @param artifacts files of the version with all their copies
+     * @return result of the comparison
+     */
+    Result compare(MavenCoordinate.Gav gav, Collection<Artifact> artifacts) {
+        List<Artifact> ordered = new ArrayList<>(artifacts);
+        ordered.sort(Comparator.comparingInt((Artifact artifact) -> artifact.coordinate.getPriority()).thenComparing(artifact -> artifact.path));
+
+        Result result = new Result(gav);
+        Set<File> repositories = new HashSet<>();
+        for(Artifact artifact : ordered) {
+            result.files += artifact.copies.size();
+            artifact.copies.forEach(entry -> repositories.add(entry.getRepository()));
+            if(result.conflictingFile != null || artifact.copies.size() < 2) {
+                artifact.copies.forEach(this::skip);
+                continue;
+            }
+
+            final long size = artifact.copies.get(0).getSize();
+            if(!artifact.copies.stream().allMatch(entry -> entry.getSize() == size)) {
+                result.conflict(artifact.path, SIZE);
+                artifact.copies.forEach(this::skip);
+                continue;
+            }
+
+            Set<String> checksums = new HashSet<>();
+            for(FileEntry entry : artifact.copies) {
+                FileInfo fileInfo = hasher.apply(entry);
+                result.hashed++;
+                if(fileInfo != null) {
+                    checksums.add(fileInfo.getChecksum());
+                    consumer.accept(fileInfo);
+                }
+            }
+            if(checksums.size() > 1)
+                result.conflict(artifact.path, CHECKSUM);
+        }
+        result.repositories = repositories.size();
+        return result;
+    }
+
+    private void skip(FileEntry entry) {
+        skipped.accept(entry);
+        consumer.accept(entry.toFileInfo(null));
+    }
+
+    /** Returns results of {@link #compare(int)}
+     *
+     * @return results sorted by GAV
+     */
+    List<Result> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    /** Writes one CSV row per version: its coordinates, whether it conflicts, the number of repositories containing it,
+     * the numbers of its files and of hashed files and the first conflicting file with the reason
+     *
+     * @param output target of the report
+     * @return number of conflicting versions
+     * @throws IOException when the report can not be written
+     */
+    int writeReport(ChannelWriter output) throws IOException {
+        output.csvQuoted("groupId").raw(',').csvQuoted("artifactId").raw(',').csvQuoted("version").raw(',')
+                .csvQuoted("status").raw(',').csvQuoted("repositories").raw(',').csvQuoted("files").raw(',')
+                .csvQuoted("hashed").raw(',').csvQuoted("file").raw(',').csvQuoted("reason").newLine();
+        int conflicts = 0;
+        for(Result result : results) {
+            MavenCoordinate.Gav gav = result.getGav();
+            output.csvQuoted(gav.getGroupId()).raw(',').csvQuoted(gav.getArtifactId()).raw(',').csvQuoted(gav.getVersion()).raw(',')
+                    .text(result.isConflict() ? CONFLICT : IDENTICAL).raw(',').number(result.getRepositories()).raw(',')
+                    .number(result.getFiles()).raw(',').number(result.getHashed()).raw(',');
+            if(result.isConflict()) {
+                output.csvQuoted(result.getConflictingFile().replace(File.separatorChar, '/')).raw(',').text(result.getReason());
+                conflicts++;
+            } else
+                output.raw(',');
+            output.newLine();
+        }
+        return conflicts;
+    }
+
+    /** Copies of a file of a version
+     */
+    static class Artifact {
+        private final MavenCoordinate coordinate;
+        private final String path;
+        private final List<FileEntry> copies = new ArrayList<>(); // added in the compute of the map
+
+        Artifact(MavenCoordinate coordinate, String path) {
+            this.coordinate = coordinate;
+            this.path = path;
+        }
+    }
+
+    /** Result of the comparison of a version
+     */
+    static class Result {
+        private final MavenCoordinate.Gav gav;
+        private String conflictingFile;
+        private String reason;
+        private int repositories;
+        private int files;
+        private int hashed;
+
+        private Result(MavenCoordinate.Gav gav) {
+            this.gav = gav;
+        }
+
+        private void conflict(String path, String reason) {
+            conflictingFile = path;
+            this.reason = reason;
+        }
+
+        MavenCoordinate.Gav getGav() {
+            return gav;
+        }
+
+        boolean isConflict() {
+            return conflictingFile != null;
+        }
+
+        /** Returns the first conflicting file, the files are compared in the order POM, main artifact, the rest
+         *
+         * @return relative path of the file, null if the version does not conflict
+         */
+        String getConflictingFile() {
+            return conflictingFile;
+        }
+
+        /** Returns why the copies of the conflicting file differ
+         *
+         * @return {@link #SIZE} or {@link #CHECKSUM}, null if the version does not conflict
+         */
+        String getReason() {
+            return reason;
+        }
+
+        int getRepositories() {
+            return repositories;
+        }
+
+        int getFiles() {
+            return files;
+        }
+
+        int getHashed() {
+            return hashed;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.redhat.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/** Schedules reading of files per device. Every file store gets its own checksum pipeline with its own number of
+ * threads and read-ahead, so a slow network mount does not hold threads needed by a local disk, and a rotating disk
+ * is not read by more threads than it can serve without seeking.
+ *
+ * Without the per-store scheduling all files go to a single pipeline.
+ */
+class IoScheduler implements AutoCloseable {
+    private static final String DEFAULT_STORE = "";
+
+    private final boolean perStore;
+    private final int threads;
+    private final int readAhead;
+    private final int queueSizePerThread;
+    private final Map<String, StoreSettings> settings;
+    private final IntFunction<Function<FileEntry, FileInfo>> hashers;
+    private final Consumer<FileInfo> sink;
+    private final Map<File, String> repositoryStores = new ConcurrentHashMap<>();
+    private final Map<String, String> storeTypes = new ConcurrentHashMap<>();
+    private final Map<String, ChecksumPipeline> pipelines = new ConcurrentHashMap<>();
+
+    /** Constructor
+     *
+     * @param perStore whether every file store gets its own pipeline
+     * @param threads number of threads of a pipeline without its own settings
+     * @param readAhead size of the read buffer of a pipeline without its own settings
+     * @param queueSizePerThread number of files waiting in the queue of a pipeline per its thread
+     * @param settings settings of file stores by their name, type or mount point
+     * @param hashers creates the function computing information about files for a read buffer size
+     * @param sink receives computed information, must be thread safe
+     */
+    IoScheduler(boolean perStore, int threads, int readAhead, int queueSizePerThread, Map<String, StoreSettings> settings,
+                IntFunction<Function<FileEntry, FileInfo>> hashers, Consumer<FileInfo> sink) {
+        this.perStore = perStore;
+        this.threads = threads;
+        this.readAhead = readAhead;
+        this.queueSizePerThread = queueSizePerThread;
+        this.settings = settings;
+        this.hashers = hashers;
+        this.sink = sink;
+    }
+
+    /** Adds a file to the pipeline of its store. Blocks while the queue of the pipeline is full.
+     *
+     * @param entry file to be processed
+     */
+    void submit(FileEntry entry) {
+        String store = storeOf(entry.getRepository());
+        pipelines.computeIfAbsent(store, this::createPipeline).submit(entry);
+    }
+
+    /** Returns the store a repository lives on, the whole repository is expected to be on a single store
+     *
+     * @param repository root directory of the repository
+     * @return description of the store
+     */
+    String storeOf(File repository) {
+        if(!perStore)
+            return DEFAULT_STORE;
+
+        return repositoryStores.computeIfAbsent(repository, key -> {
+            try {
+                FileStore store = Files.getFileStore(key.toPath());
+                storeTypes.put(store.toString(), store.type());
+                return store.toString();
+            } catch (IOException e) {
+                System.err.println("Warning: Can not find the file store of "+key+": "+e.getMessage());
+                return DEFAULT_STORE;
+            }
+        });
+    }
+
+    private ChecksumPipeline createPipeline(String store) {
+        StoreSettings storeSettings = findSettings(store);
+        int storeThreads = storeSettings != null ? storeSettings.getThreads() : threads;
+        int storeReadAhead = storeSettings != null && storeSettings.getReadAhead() > 0 ? storeSettings.getReadAhead() : readAhead;
+
+        if(perStore)
+            System.out.println("... reading "+store+" by "+storeThreads+" threads with "+storeReadAhead / 1024+" KiB read-ahead");
+        return new ChecksumPipeline(storeThreads, storeThreads * queueSizePerThread, hashers.apply(storeReadAhead), sink);
+    }
+
+    /** Finds settings of a store by its name, type or mount point
+     *
+     * @param store description of the store in the form "mount point (name)"
+     * @return the settings or null if the store has no own settings
+     */
+    private StoreSettings findSettings(String store) {
+        if(DEFAULT_STORE.equals(store))
+            return null;
+
+        for(Map.Entry<String, StoreSettings> entry : settings.entrySet()) {
+            String key = entry.getKey();
+            if(store.equals(key) || store.startsWith(key + " (") || store.endsWith("(" + key + ")") || key.equals(storeTypes.get(store)))
+                return entry.getValue();
+        }
+        return null;
+    }
+
+    /** Returns number of files waiting for a worker in all pipelines
+     *
+     * @return current length of all queues
+     */
+    int queueSize() {
+        return pipelines.values().stream().mapToInt(ChecksumPipeline::queueSize).sum();
+    }
+
+    /** Waits until all submitted files are processed and stops all pipelines.
+     * The first failure of any pipeline is rethrown when all are closed.
+     */
+    @Override
+    public void close() {
+        RuntimeException failure = null;
+        for(ChecksumPipeline pipeline : pipelines.values()) {
+            try {
+                pipeline.close();
+            } catch (RuntimeException e) {
+                if(failure == null)
+                    failure = e;
+            }
+        }
+        if(failure != null)
+            throw failure;
+    }
+
+    /** Concurrency and read-ahead of a single file store
+     */
+    static class StoreSettings {
+        private final int threads;
+        private final int readAhead;
+
+        /** Constructor
+         *
+         * @param threads number of threads reading the store
+         * @param readAhead size of the read buffer in bytes, 0 for the default size
+         */
+        StoreSettings(int threads, int readAhead) {
+            this.threads = threads;
+            this.readAhead = readAhead;
+        }
+
+        int getThreads() {
+            return threads;
+        }
+
+        int getReadAhead() {
+            return readAhead;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.redhat.maven;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/** Coordinates of a file in the Maven repository layout
+ * {@code <groupId as path>/<artifactId>/<version>/<artifactId>-<version>[-<classifier>].<extension>}.
+ *
+ * Coordinates are created by a {@link Parser}, which interns the identifiers and the {@link Gav} objects, so all
+ * files of an artifact version share one instance and the coordinates of millions of files take little memory.
+ */
+class MavenCoordinate {
+    private static final String SNAPSHOT = "SNAPSHOT";
+    private static final String[] CHECKSUM_EXTENSIONS = {".md5", ".sha1", ".sha256", ".sha512", ".asc"};
+
+    private final Gav gav;
+    private final String classifier;
+    private final String extension;
+
+    private MavenCoordinate(Gav gav, String classifier, String extension) {
+        this.gav = gav;
+        this.classifier = classifier;
+        this.extension = extension;
+    }
+
+    Gav getGav() {
+        return gav;
+    }
+
+    /** Returns the classifier
+     *
+     * @return the classifier, empty for the main artifact and the POM
+     */
+    String getClassifier() {
+        return classifier;
+    }
+
+    /** Returns the extension, checksums and signatures have the extension of their file appended, like jar.sha1
+     *
+     * @return the extension
+     */
+    String getExtension() {
+        return extension;
+    }
+
+    boolean isPom() {
+        return classifier.isEmpty() && extension.equals("pom");
+    }
+
+    /** Tells whether the file is the main artifact, a file without classifier which is neither the POM
+     * nor a checksum or a signature
+     *
+     * @return true for the main artifact
+     */
+    boolean isMainArtifact() {
+        if(!classifier.isEmpty() || isPom())
+            return false;
+        for(String checksum : CHECKSUM_EXTENSIONS) {
+            if(extension.endsWith(checksum))
+                return false;
+        }
+        return true;
+    }
+
+    /** Returns the order in which files of a version are compared: the POM, the main artifact, the rest
+     *
+     * @return 0 for the POM, 1 for the main artifact, 2 otherwise
+     */
+    int getPriority() {
+        return isPom() ? 0 : isMainArtifact() ? 1 : 2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o)
+            return true;
+        if(o == null || getClass() != o.getClass())
+            return false;
+        MavenCoordinate that = (MavenCoordinate) o;
+        return gav == that.gav && classifier.equals(that.classifier) && extension.equals(that.extension);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(gav, classifier, extension);
+    }
+
+    @Override
+    public String toString() {
+        return gav + (classifier.isEmpty() ? "" : ":" + classifier) + ":" + extension;
+    }
+
+    /** Group, artifact and version, shared by all files of an artifact version
+     */
+    static final class Gav implements Comparable<Gav> {
+        private static final Comparator<Gav> ORDER = Comparator.comparing((Gav gav) -> gav.groupId)
+                .thenComparing(gav -> gav.artifactId).thenComparing(gav -> gav.version);
+
+        private final String groupId;
+        private final String artifactId;
+        private final String version;
+
+        Gav(String groupId, String artifactId, String version) {
+            this.groupId = groupId;
+            this.artifactId = artifactId;
+            this.version = version;
+        }
+
+        String getGroupId() {
+            return groupId;
+        }
+
+        String getArtifactId() {
+            return artifactId;
+        }
+
+        String getVersion() {
+            return version;
+        }
+
+        @Override
+        public int compareTo(Gav o) {
+            return ORDER.compare(this, o);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o)
+                return true;
+            if(o == null || getClass() != o.getClass())
+                return false;
+            Gav that = (Gav) o;
+            return groupId.equals(that.groupId) && artifactId.equals(that.artifactId) && version.equals(that.version);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(groupId, artifactId, version);
+        }
+
+        @Override
+        public String toString() {
+            return groupId + ":" + artifactId + ":" + version;
+        }
+    }
+
+    /** Parses relative paths into coordinates, can be used from multiple threads at once
+     */
+    static class Parser {
+        private final ConcurrentMap<String, String> names = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Gav, Gav> gavs = new ConcurrentHashMap<>();
+
+        /** Parses a relative path of a file
+         *
+         * @param relativePath path relative to the root of the repository, separated by / or the separator of the system
+         * @return coordinates of the file, null if the path does not follow the Maven layout, like maven-metadata.xml
+         */
+        MavenCoordinate parse(String relativePath) {
+            String[] segments = relativePath.split("[/\\\\]");
+            if(segments.length < 4)
+                return null;
+
+            String fileName = segments[segments.length - 1];
+            String version = segments[segments.length - 2];
+            String artifactId = segments[segments.length - 3];
+            if(!fileName.startsWith(artifactId + "-"))
+                return null;
+
+            int end = versionEnd(fileName, artifactId.length() + 1, version);
+            if(end < 0)
+                return null;
+
+            String classifier = "";
+            int dot;
+            if(fileName.startsWith("-", end)) {
+                dot = fileName.indexOf('.', end + 1);
+                if(dot < 0)
+                    return null;
+                classifier = fileName.substring(end + 1, dot);
+            } else if(fileName.startsWith(".", end)) {
+                dot = end;
+            } else
+                return null;
+            if(classifier.isEmpty() && dot != end || dot == fileName.length() - 1)
+                return null;
+
+            StringBuilder groupId = new StringBuilder(segments[0]);
+            for(int i = 1; i < segments.length - 3; i++)
+                groupId.append('.').append(segments[i]);
+
+            Gav gav = new Gav(intern(groupId.toString()), intern(artifactId), intern(version));
+            Gav interned = gavs.putIfAbsent(gav, gav);
+            return new MavenCoordinate(interned != null ? interned : gav, intern(classifier), intern(fileName.substring(dot + 1)));
+        }
+
+        /** Number of distinct versions of artifacts seen by the parser
+         *
+         * @return the number of interned GAVs
+         */
+        int size() {
+            return gavs.size();
+        }
+
+        /** Finds the end of the version in the file name, a snapshot may be deployed with a timestamp instead of
+         * SNAPSHOT, like a-1.0-20200101.120000-1.jar in the version 1.0-SNAPSHOT
+         *
+         * @param fileName name of the file
+         * @param start position of the version in the file name
+         * @param version the version from the directory name
+         * @return position after the version, -1 if the file name does not contain the version
+         */
+        private static int versionEnd(String fileName, int start, String version) {
+            if(fileName.startsWith(version, start))
+                return start + version.length();
+            if(!version.endsWith(SNAPSHOT))
+                return -1;
+
+            String base = version.substring(0, version.length() - SNAPSHOT.length());
+            if(!fileName.startsWith(base, start))
+                return -1;
+            int position = start + base.length();
+            // yyyyMMdd.HHmmss-build
+            for(int i = 0; i < 15; i++) {
+                if(position + i >= fileName.length())
+                    return -1;
+                char c = fileName.charAt(position + i);
+                if(i == 8 ? c != '.' : !Character.isDigit(c))
+                    return -1;
+            }
+            position += 15;
+            if(position >= fileName.length() || fileName.charAt(position) != '-')
+                return -1;
+            int build = ++position;
+            while(position < fileName.length() && Character.isDigit(fileName.charAt(position)))
+                position++;
+            return position > build ? position : -1;
+        }
+
+        private String intern(String name) {
+            String interned = names.putIfAbsent(name, name);
+            return interned != null ? interned : name;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.redhat.maven;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+
+/** 128-bit MurmurHash3 (x64 variant, seed 0) as a message digest.
+ *
+ * It is not a cryptographic hash, but it is several times faster than MD5 and good enough to find out whether
+ * two copies of an artifact are identical. The result is the same as of Guava's {@code Hashing.murmur3_128()}.
+ */
+class Murmur3Digest extends MessageDigest {
+    static final String ALGORITHM = "MURMUR3-128";
+    private static final int BLOCK_SIZE = 16;
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private long h1, h2;
+    private long length;
+    private final byte[] pending = new byte[BLOCK_SIZE];
+    private int pendingLength;
+
+    Murmur3Digest() {
+        super(ALGORITHM);
+    }
+
+    @Override
+    protected int engineGetDigestLength() {
+        return BLOCK_SIZE;
+    }
+
+    @Override
+    protected void engineUpdate(byte input) {
+        pending[pendingLength++] = input;
+        length++;
+        if(pendingLength == BLOCK_SIZE)
+            processPending();
+    }
+
+    @Override
+    protected void engineUpdate(byte[] input, int offset, int len) {
+        length += len;
+        int end = offset + len;
+        while(pendingLength > 0 && offset < end) {
+            pending[pendingLength++] = input[offset++];
+            if(pendingLength == BLOCK_SIZE)
+                processPending();
+        }
+        for(; end - offset >= BLOCK_SIZE; offset += BLOCK_SIZE)
+            processBlock(littleEndian(input, offset), littleEndian(input, offset + Long.BYTES));
+
+        while(offset < end)
+            pending[pendingLength++] = input[offset++];
+    }
+
+    @Override
+    protected void engineUpdate(ByteBuffer input) {
+        int remaining = input.remaining();
+        length += remaining;
+        while(pendingLength > 0 && input.hasRemaining()) {
+            pending[pendingLength++] = input.get();
+            if(pendingLength == BLOCK_SIZE)
+                processPending();
+        }
+
+        // absolute reads do not allocate and work for both heap and direct buffers
+        boolean swap = input.order() != ByteOrder.LITTLE_ENDIAN;
+        int position = input.position();
+        for(; input.limit() - position >= BLOCK_SIZE; position += BLOCK_SIZE) {
+            long k1 = input.getLong(position), k2 = input.getLong(position + Long.BYTES);
+            processBlock(swap ? Long.reverseBytes(k1) : k1, swap ? Long.reverseBytes(k2) : k2);
+        }
+        input.position(position);
+
+        while(input.hasRemaining())
+            pending[pendingLength++] = input.get();
+    }
+
+    @Override
+    protected byte[] engineDigest() {
+        long k1 = 0, k2 = 0;
+        for(int i = pendingLength - 1; i >= Long.BYTES; i--)
+            k2 = (k2 << 8) | (pending[i] & 0xFFL);
+        for(int i = Math.min(pendingLength, Long.BYTES) - 1; i >= 0; i--)
+            k1 = (k1 << 8) | (pending[i] & 0xFFL);
+
+        h2 ^= mixK2(k2);
+        h1 ^= mixK1(k1);
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = finalMix(h1);
+        h2 = finalMix(h2);
+        h1 += h2;
+        h2 += h1;
+
+        byte[] result = new byte[BLOCK_SIZE];
+        for(int i = 0; i < Long.BYTES; i++) {
+            result[i] = (byte) (h1 >>> (8 * i));
+            result[i + Long.BYTES] = (byte) (h2 >>> (8 * i));
+        }
+        engineReset();
+        return result;
+    }
+
+    @Override
+    protected void engineReset() {
+        h1 = 0;
+        h2 = 0;
+        length = 0;
+        pendingLength = 0;
+    }
+
+    private void processPending() {
+        processBlock(littleEndian(pending, 0), littleEndian(pending, Long.BYTES));
+        pendingLength = 0;
+    }
+
+    private void processBlock(long k1, long k2) {
+        h1 ^= mixK1(k1);
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        h2 ^= mixK2(k2);
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    private static long mixK1(long k1) {
+        return Long.rotateLeft(k1 * C1, 31) * C2;
+    }
+
+    private static long mixK2(long k2) {
+        return Long.rotateLeft(k2 * C2, 33) * C1;
+    }
+
+    private static long finalMix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static long littleEndian(byte[] bytes, int offset) {
+        long result = 0;
+        for(int i = Long.BYTES - 1; i >= 0; i--)
+            result = (result << 8) | (bytes[offset + i] & 0xFFL);
+        return result;
+    }
+}
@@ -0,0 +1,181 @@
+package com.redhat.maven;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** Deduplicated storage of relative paths.
+ *
+ * Every path is a node of a tree of path segments, identified by a small integer. A node stores only the id
+ * of its parent and the id of its name, names are stored once as UTF-8 bytes in a single array. All lookups
+ * use open addressing tables over primitive arrays, so a path costs a few bytes instead of a string.
+ */
+class PathDictionary {
+    static final int ROOT = 0;
+    private static final int EMPTY = -1;
+    private static final char SEPARATOR = '/';
+
+    // names of path segments
+    private byte[] nameBytes = new byte[1 << 16];
+    private int nameBytesUsed = 0;
+    private int[] nameOffsets = new int[1 << 10];
+    private int nameCount = 0;
+    private int[] nameTable = newTable(1 << 11);
+
+    // nodes of the tree, node 0 is the root
+    private int[] parents = new int[1 << 10];
+    private int[] names = new int[1 << 10];
+    private int nodeCount = 1;
+    private int[] nodeTable = newTable(1 << 11);
+
+    /** Returns id of a path, the path is added if it is not known yet.
+     *
+     * @param path relative path with segments separated by '/'
+     * @return id of the path
+     */
+    int add(String path) {
+        int node = ROOT;
+        int start = 0;
+        while(start <= path.length()) {
+            int end = path.indexOf(SEPARATOR, start);
+            if(end < 0)
+                end = path.length();
+            node = child(node, name(path.substring(start, end).getBytes(StandardCharsets.UTF_8)));
+            start = end + 1;
+        }
+        return node;
+    }
+
+    /** Reconstructs the path
+     *
+     * @param id id of the path
+     * @return relative path
+     */
+    String get(int id) {
+        int length = 0;
+        int[] segments = new int[16];
+        for(int node = id; node != ROOT; node = parents[node]) {
+            if(length == segments.length)
+                segments = Arrays.copyOf(segments, length * 2);
+            segments[length++] = names[node];
+        }
+
+        StringBuilder result = new StringBuilder();
+        for(int i = length - 1; i >= 0; i--) {
+            int name = segments[i];
+            result.append(new String(nameBytes, nameOffsets[name], nameLength(name), StandardCharsets.UTF_8));
+            if(i > 0)
+                result.append(SEPARATOR);
+        }
+        return result.toString();
+    }
+
+    /** Returns number of nodes, all ids are lower than this number
+     *
+     * @return number of nodes including directories
+     */
+    int size() {
+        return nodeCount;
+    }
+
+    private int child(int parent, int name) {
+        long key = ((long) parent << 32) | name;
+        int mask = nodeTable.length - 1;
+        for(int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int node = nodeTable[slot];
+            if(node == EMPTY) {
+                node = nodeCount++;
+                if(node == parents.length) {
+                    parents = Arrays.copyOf(parents, node + (node >> 1));
+                    names = Arrays.copyOf(names, parents.length);
+                }
+                parents[node] = parent;
+                names[node] = name;
+                nodeTable[slot] = node;
+                if(nodeCount * 2 > nodeTable.length)
+                    nodeTable = rehash(nodeTable, this::nodeHash);
+                return node;
+            }
+            if(parents[node] == parent && names[node] == name)
+                return node;
+        }
+    }
+
+    private int name(byte[] bytes) {
+        int mask = nameTable.length - 1;
+        for(int slot = Arrays.hashCode(bytes) & mask; ; slot = (slot + 1) & mask) {
+            int name = nameTable[slot];
+            if(name == EMPTY) {
+                name = nameCount++;
+                if(nameBytesUsed + bytes.length > nameBytes.length)
+                    nameBytes = Arrays.copyOf(nameBytes, Math.max(nameBytes.length + (nameBytes.length >> 1), nameBytesUsed + bytes.length));
+                if(name + 1 >= nameOffsets.length)
+                    nameOffsets = Arrays.copyOf(nameOffsets, nameOffsets.length + (nameOffsets.length >> 1));
+                System.arraycopy(bytes, 0, nameBytes, nameBytesUsed, bytes.length);
+                nameOffsets[name] = nameBytesUsed;
+                nameBytesUsed += bytes.length;
+                nameOffsets[name + 1] = nameBytesUsed;
+                nameTable[slot] = name;
+                if(nameCount * 2 > nameTable.length)
+                    nameTable = rehash(nameTable, this::nameHash);
+                return name;
+            }
+            if(nameEquals(name, bytes))
+                return name;
+        }
+    }
+
+    private int nameLength(int name) {
+        return nameOffsets[name + 1] - nameOffsets[name];
+    }
+
+    private boolean nameEquals(int name, byte[] bytes) {
+        if(nameLength(name) != bytes.length)
+            return false;
+        int offset = nameOffsets[name];
+        for(int i = 0; i < bytes.length; i++) {
+            if(nameBytes[offset + i] != bytes[i])
+                return false;
+        }
+        return true;
+    }
+
+    private int nameHash(int name) {
+        int result = 1;
+        for(int i = nameOffsets[name]; i < nameOffsets[name + 1]; i++)
+            result = 31 * result + nameBytes[i];
+        return result;
+    }
+
+    private int nodeHash(int node) {
+        return hash(((long) parents[node] << 32) | names[node]);
+    }
+
+    private static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    private static int[] newTable(int size) {
+        int[] table = new int[size];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private interface Hash {
+        int of(int id);
+    }
+
+    private static int[] rehash(int[] table, Hash hash) {
+        int[] result = newTable(table.length * 2);
+        int mask = result.length - 1;
+        for(int id : table) {
+            if(id == EMPTY)
+                continue;
+            int slot = hash.of(id) & mask;
+            while(result[slot] != EMPTY)
+                slot = (slot + 1) & mask;
+            result[slot] = id;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,167 @@
+package com.redhat.maven;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/** Immutable snapshot of analyzed files for queries.
+ *
+ * All files are kept in sorted arrays, each sorted for one kind of lookup: by path, by repository and path,
+ * by checksum and the files of discrepancies by path. A lookup is a binary search for the first matching file
+ * followed by a scan of the matching range, so no query walks the whole index.
+ */
+class QueryIndex {
+    private static final Comparator<FileInfo> BY_REPOSITORY = Comparator.comparing(FileInfo::getRepositoryName)
+            .thenComparing(FileInfo::getRelativePath);
+    private static final Comparator<FileInfo> BY_CHECKSUM = Comparator.comparing(FileInfo::getChecksum)
+            .thenComparing(Comparator.naturalOrder());
+
+    private final FileInfo[] byPath;
+    private final FileInfo[] byRepository;
+    private final FileInfo[] byChecksum;
+    private final FileInfo[] conflicts;
+    private final String[] repositories;
+    private final int paths;
+    private final int conflictPaths;
+    private final long created = System.currentTimeMillis();
+
+    /** Builds the index, the files are copied
+     *
+     * @param files files grouped by relative path
+     * @param discrepancies relative paths of discrepancies
+     */
+    QueryIndex(Collection<? extends List<FileInfo>> files, Set<String> discrepancies) {
+        List<FileInfo> all = new ArrayList<>();
+        List<FileInfo> conflicting = new ArrayList<>();
+        int conflictCount = 0;
+        for(List<FileInfo> infos : files) {
+            all.addAll(infos);
+            if(!infos.isEmpty() && discrepancies.contains(infos.get(0).getRelativePath())) {
+                conflicting.addAll(infos);
+                conflictCount++;
+            }
+        }
+        this.paths = files.size();
+        this.conflictPaths = conflictCount;
+
+        byPath = all.toArray(new FileInfo[0]);
+        Arrays.sort(byPath);
+        byRepository = byPath.clone();
+        Arrays.sort(byRepository, BY_REPOSITORY);
+        byChecksum = all.stream().filter(fileInfo -> fileInfo.getChecksum() != null).sorted(BY_CHECKSUM).toArray(FileInfo[]::new);
+        conflicts = conflicting.toArray(new FileInfo[0]);
+        Arrays.sort(conflicts);
+        repositories = Arrays.stream(byRepository).map(FileInfo::getRepositoryName).distinct().toArray(String[]::new);
+    }
+
+    /** Finds files whose relative path starts with the prefix
+     *
+     * @param prefix start of the relative path, empty for all files
+     * @param limit maximal number of returned files
+     * @param consumer receives the files sorted by path and repository
+     * @return true if there are more files than the limit
+     */
+    boolean findByPrefix(String prefix, int limit, Consumer<FileInfo> consumer) {
+        return scan(byPath, lowerBound(byPath, fileInfo -> fileInfo.getRelativePath().compareTo(prefix)),
+                fileInfo -> fileInfo.getRelativePath().startsWith(prefix), limit, consumer);
+    }
+
+    /** Finds files of a repository whose relative path starts with the prefix
+     *
+     * @param repository name of the repository
+     * @param prefix start of the relative path, empty for all files of the repository
+     * @param limit maximal number of returned files
+     * @param consumer receives the files sorted by path
+     * @return true if there are more files than the limit
+     */
+    boolean findByRepository(String repository, String prefix, int limit, Consumer<FileInfo> consumer) {
+        int start = lowerBound(byRepository, fileInfo -> {
+            int result = fileInfo.getRepositoryName().compareTo(repository);
+            return result != 0 ? result : fileInfo.getRelativePath().compareTo(prefix);
+        });
+        return scan(byRepository, start, fileInfo -> fileInfo.getRepositoryName().equals(repository)
+                && fileInfo.getRelativePath().startsWith(prefix), limit, consumer);
+    }
+
+    /** Finds files with the checksum
+     *
+     * @param checksum hexadecimal checksum, case does not matter
+     * @param limit maximal number of returned files
+     * @param consumer receives the files sorted by path and repository
+     * @return true if there are more files than the limit
+     */
+    boolean findByChecksum(String checksum, int limit, Consumer<FileInfo> consumer) {
+        String key = checksum.toUpperCase(Locale.ROOT);
+        return scan(byChecksum, lowerBound(byChecksum, fileInfo -> fileInfo.getChecksum().compareTo(key)),
+                fileInfo -> fileInfo.getChecksum().equals(key), limit, consumer);
+    }
+
+    /** Finds files of discrepancies whose relative path starts with the prefix
+     *
+     * @param prefix start of the relative path, empty for all discrepancies
+     * @param limit maximal number of returned files
+     * @param consumer receives the files sorted by path and repository
+     * @return true if there are more files than the limit
+     */
+    boolean findConflicts(String prefix, int limit, Consumer<FileInfo> consumer) {
+        return scan(conflicts, lowerBound(conflicts, fileInfo -> fileInfo.getRelativePath().compareTo(prefix)),
+                fileInfo -> fileInfo.getRelativePath().startsWith(prefix), limit, consumer);
+    }
+
+    /** Returns names of all repositories
+     *
+     * @return sorted names
+     */
+    List<String> getRepositories() {
+        return Collections.unmodifiableList(Arrays.asList(repositories));
+    }
+
+    int getFiles() {
+        return byPath.length;
+    }
+
+    int getPaths() {
+        return paths;
+    }
+
+    int getConflicts() {
+        return conflictPaths;
+    }
+
+    /** Returns time of building the index
+     *
+     * @return milliseconds since the epoch
+     */
+    long getCreated() {
+        return created;
+    }
+
+    /** Finds the first file which is not lower than the searched key
+     *
+     * @param files sorted files
+     * @param compareToKey compares a file to the key
+     * @return index of the first file not lower than the key, the length of the array if there is none
+     */
+    private static int lowerBound(FileInfo[] files, ToIntFunction<FileInfo> compareToKey) {
+        int low = 0, high = files.length;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(compareToKey.applyAsInt(files[middle]) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private static boolean scan(FileInfo[] files, int start, Predicate<FileInfo> matches, int limit, Consumer<FileInfo> consumer) {
+        int count = 0;
+        for(int i = start; i < files.length && matches.test(files[i]); i++) {
+            if(count++ == limit)
+                return true;
+            consumer.accept(files[i]);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,257 @@
+package com.redhat.maven;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/** HTTP service answering queries over the analyzed files. The files are held in a {@link QueryIndex}, which is
+ * replaced at once when the repositories are scanned again, so a query always sees a single complete scan.
+ *
+ * All responses are JSON. Files are listed by
+ * <ul>
+ *     <li>GET /files?prefix=&lt;path prefix&gt;</li>
+ *     <li>GET /files?checksum=&lt;checksum&gt;</li>
+ *     <li>GET /files?repository=&lt;name&gt;[&amp;prefix=&lt;path prefix&gt;]</li>
+ *     <li>GET /conflicts[?prefix=&lt;path prefix&gt;] for files of discrepancies</li>
+ * </ul>
+ * with an optional limit parameter. GET /repositories lists the repositories, GET /status describes the index and
+ * POST /rescan starts a new scan when it is supported.
+ *
+ * Requests are not authenticated, every client which can connect reads all paths and checksums and can start scans,
+ * so the server should listen on the loopback interface unless the network is trusted.
+ */
+class QueryServer implements Closeable {
+    static final String LISTENING = "Serving queries on port ";
+    static final int DEFAULT_LIMIT = 1000;
+
+    private static final int RESPONSE_BUFFER_SIZE = 1 << 16;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicReference<QueryIndex> index = new AtomicReference<>();
+    private final Runnable rescan;
+    private final AtomicBoolean rescanning = new AtomicBoolean(false);
+
+    /** Constructor, binds the socket and starts serving
+     *
+     * @param address address to listen on, port 0 chooses a free port
+     * @param threads number of threads answering queries, every query gets a virtual thread when the runtime supports them
+     * @param index the first index
+     * @param rescan scans the repositories again and calls {@link #reload(QueryIndex)}, null if it is not supported
+     * @throws IOException when the socket can not be bound
+     */
+    QueryServer(InetSocketAddress address, int threads, QueryIndex index, Runnable rescan) throws IOException {
+        this.index.set(index);
+        this.rescan = rescan;
+        ExecutorService virtual = VirtualThreads.newPerTaskExecutor();
+        this.executor = virtual != null ? virtual : Executors.newFixedThreadPool(threads);
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/files", exchange -> handle(exchange, this::files));
+        server.createContext("/conflicts", exchange -> handle(exchange, this::conflicts));
+        server.createContext("/repositories", exchange -> handle(exchange, this::repositories));
+        server.createContext("/status", exchange -> handle(exchange, this::status));
+        server.createContext("/rescan", this::rescan);
+        server.start();
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /** Replaces the index, queries in progress finish with the previous one
+     *
+     * @param index the new index
+     */
+    void reload(QueryIndex index) {
+        this.index.set(index);
+    }
+
+    private void files(Query query) {
+        QueryIndex current = index.get();
+        String checksum = query.parameters.get("checksum"), repository = query.parameters.get("repository");
+        String prefix = query.parameters.getOrDefault("prefix", "");
+        boolean truncated;
+        if(checksum != null)
+            truncated = current.findByChecksum(checksum, query.limit, query::file);
+        else if(repository != null)
+            truncated = current.findByRepository(repository, prefix, query.limit, query::file);
+        else
+            truncated = current.findByPrefix(prefix, query.limit, query::file);
+        query.finish(truncated);
+    }
+
+    private void conflicts(Query query) {
+        query.finish(index.get().findConflicts(query.parameters.getOrDefault("prefix", ""), query.limit, query::file));
+    }
+
+    private void repositories(Query query) {
+        query.output.text("{\"repositories\":[");
+        boolean first = true;
+        for(String repository : index.get().getRepositories()) {
+            if(!first)
+                query.output.raw(',');
+            query.output.jsonQuoted(repository);
+            first = false;
+        }
+        query.output.text("]}\n");
+    }
+
+    private void status(Query query) {
+        QueryIndex current = index.get();
+        query.output.text("{\"files\":").number(current.getFiles())
+                .text(",\"paths\":").number(current.getPaths())
+                .text(",\"conflicts\":").number(current.getConflicts())
+                .text(",\"repositories\":").number(current.getRepositories().size())
+                .text(",\"created\":").jsonQuoted(Instant.ofEpochMilli(current.getCreated()).toString())
+                .text(",\"rescanning\":").text(String.valueOf(rescanning.get()))
+                .text("}\n");
+    }
+
+    /** Starts a new scan in the background, at most one scan runs at once
+     *
+     * @param exchange the request
+     * @throws IOException when the response can not be sent
+     */
+    private void rescan(HttpExchange exchange) throws IOException {
+        try {
+            if(!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+            } else if(rescan == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else if(!rescanning.compareAndSet(false, true)) {
+                exchange.sendResponseHeaders(409, -1);
+            } else {
+                Thread thread = new Thread(() -> {
+                    try {
+                        rescan.run();
+                    } finally {
+                        rescanning.set(false);
+                    }
+                }, "rescan");
+                thread.start();
+                exchange.sendResponseHeaders(202, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /** Answers a GET request by the handler
+     *
+     * @param exchange the request
+     * @param handler writes the response
+     * @throws IOException when the response can not be sent
+     */
+    private void handle(HttpExchange exchange, Consumer<Query> handler) throws IOException {
+        try {
+            if(!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            Query query;
+            try {
+                query = new Query(exchange);
+            } catch (IllegalArgumentException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (ChannelWriter output = new ChannelWriter(Channels.newChannel(exchange.getResponseBody()), RESPONSE_BUFFER_SIZE)) {
+                query.output = output;
+                handler.accept(query);
+            } catch (UncheckedIOException e) {
+                throw e.getCause(); // the client went away
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /** Stops serving, queries in progress are finished
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /** Parameters of a query and the writer of its response
+     */
+    private static class Query {
+        private final Map<String, String> parameters = new HashMap<>();
+        private final int limit;
+        private ChannelWriter output;
+        private boolean first = true;
+
+        /** Parses the query string
+         *
+         * @param exchange the request
+         * @throws IllegalArgumentException when the query is malformed
+         */
+        private Query(HttpExchange exchange) {
+            String query = exchange.getRequestURI().getRawQuery();
+            if(query != null) {
+                for(String parameter : query.split("&")) {
+                    int separator = parameter.indexOf('=');
+                    if(separator > 0)
+                        parameters.put(decode(parameter.substring(0, separator)), decode(parameter.substring(separator + 1)));
+                }
+            }
+            limit = parameters.containsKey("limit") ? Integer.parseInt(parameters.get("limit")) : DEFAULT_LIMIT;
+            if(limit < 0)
+                throw new IllegalArgumentException("Negative limit");
+        }
+
+        private static String decode(String value) {
+            try {
+                return URLDecoder.decode(value, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /** Writes a file of the response, the first file starts the response
+         *
+         * @param fileInfo the file
+         */
+        private void file(FileInfo fileInfo) {
+            output.text(first ? "{\"files\":[" : ",");
+            first = false;
+            output.text("{\"repository\":").jsonQuoted(fileInfo.getRepositoryName())
+                    .text(",\"file\":").jsonQuoted(fileInfo.getRelativePath())
+                    .text(",\"checksum\":").jsonQuoted(fileInfo.getChecksum())
+                    .text(",\"size\":").number(fileInfo.getSize()).raw('}');
+        }
+
+        /** Ends the list of files
+         *
+         * @param truncated whether there are more files than the limit
+         */
+        private void finish(boolean truncated) {
+            output.text(first ? "{\"files\":[" : "").text("],\"truncated\":").text(String.valueOf(truncated)).text("}\n");
+        }
+    }
+}
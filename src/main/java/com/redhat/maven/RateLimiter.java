@@ -0,0 +1,69 @@
+package com.redhat.maven;
+
+import java.util.concurrent.TimeUnit;
+
+/** Token bucket limiting a rate of bytes or files. The bucket holds tokens for one second, so short bursts are
+ * allowed. Acquiring more tokens than available puts the bucket into debt which later callers pay off by waiting,
+ * so a large request does not starve and the long-term rate is kept.
+ *
+ * The rate can be changed at any time, a rate of 0 means no limit and costs only a volatile read.
+ */
+class RateLimiter {
+    private volatile double rate;
+    private double available;
+    private long lastRefill = System.nanoTime();
+
+    /** Constructor
+     *
+     * @param rate tokens per second, 0 for no limit
+     */
+    RateLimiter(double rate) {
+        this.rate = rate;
+        this.available = rate;
+    }
+
+    double getRate() {
+        return rate;
+    }
+
+    /** Changes the rate
+     *
+     * @param rate tokens per second, 0 for no limit
+     */
+    synchronized void setRate(double rate) {
+        refill(System.nanoTime());
+        this.rate = rate;
+        available = Math.min(available, rate);
+    }
+
+    /** Takes tokens, waits until they are paid off when the bucket does not have enough of them
+     *
+     * @param tokens number of tokens, for example bytes just read
+     */
+    void acquire(long tokens) {
+        if(rate <= 0)
+            return;
+
+        long wait;
+        synchronized (this) {
+            refill(System.nanoTime());
+            if(rate <= 0)
+                return;
+            available -= tokens;
+            wait = available >= 0 ? 0 : (long) (-available / rate * TimeUnit.SECONDS.toNanos(1));
+        }
+
+        if(wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void refill(long now) {
+        available = Math.min(rate, available + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+        lastRefill = now;
+    }
+}
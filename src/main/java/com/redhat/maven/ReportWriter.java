@@ -0,0 +1,131 @@
+package com.redhat.maven;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/** Writer of the discrepancy report in one of the supported formats. Files are written as they come, the caller
+ * passes them in the order of the report.
+ */
+abstract class ReportWriter implements Closeable {
+
+    /** Format of the report
+     */
+    enum Format {
+        CSV("csv"),
+        JSON_LINES("jsonl"),
+        COLUMNAR("columnar");
+
+        private final String option;
+
+        Format(String option) {
+            this.option = option;
+        }
+
+        String getOption() {
+            return option;
+        }
+
+        /** Finds the format by its command line option
+         *
+         * @param option value of the option
+         * @return the format or null if there is no such format
+         */
+        static Format fromOption(String option) {
+            for(Format format : values()) {
+                if(format.option.equalsIgnoreCase(option))
+                    return format;
+            }
+            return null;
+        }
+    }
+
+    protected final ChannelWriter output;
+    protected final boolean withDifference;
+
+    /** Constructor
+     *
+     * @param output target of the report, it is closed with the report
+     * @param withDifference whether the report has the column with the first differing range
+     */
+    protected ReportWriter(ChannelWriter output, boolean withDifference) {
+        this.output = output;
+        this.withDifference = withDifference;
+    }
+
+    /** Creates a writer of the report and writes the header of the report
+     *
+     * @param format format of the report
+     * @param output target of the report, it is closed with the report
+     * @param withDifference whether the report has the column with the first differing range
+     * @return the writer
+     */
+    static ReportWriter create(Format format, ChannelWriter output, boolean withDifference) {
+        switch (format) {
+            case JSON_LINES:
+                return new JsonLines(output, withDifference);
+            case COLUMNAR:
+                return new ColumnarReportWriter(output, withDifference);
+            default:
+                return new Csv(output, withDifference);
+        }
+    }
+
+    /** Writes a file of a discrepancy
+     *
+     * @param fileInfo information about the file
+     * @param difference first differing byte range or the classification of an archive, empty if it is not known;
+     *                   ignored without the difference column
+     * @throws UncheckedIOException when the report can not be written
+     */
+    abstract void write(FileInfo fileInfo, String difference);
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+
+    /** Comma separated values with a header line, checksum and size are not quoted
+     */
+    static class Csv extends ReportWriter {
+
+        Csv(ChannelWriter output, boolean withDifference) {
+            super(output, withDifference);
+            output.csvQuoted("repository").raw(',').csvQuoted("file").raw(',').csvQuoted("checksum").raw(',').csvQuoted("size");
+            if(withDifference)
+                output.raw(',').csvQuoted("difference");
+            output.newLine();
+        }
+
+        @Override
+        void write(FileInfo fileInfo, String difference) {
+            output.csvQuoted(fileInfo.getRepositoryName()).raw(',').csvQuoted(fileInfo.getRelativePath()).raw(',');
+            if(fileInfo.getChecksum() != null)
+                output.text(fileInfo.getChecksum());
+            output.raw(',').number(fileInfo.getSize());
+            if(withDifference)
+                output.raw(',').csvQuoted(difference == null ? "" : difference);
+            output.newLine();
+        }
+    }
+
+    /** One JSON object per line, a file without checksum has null checksum
+     */
+    static class JsonLines extends ReportWriter {
+
+        JsonLines(ChannelWriter output, boolean withDifference) {
+            super(output, withDifference);
+        }
+
+        @Override
+        void write(FileInfo fileInfo, String difference) {
+            output.text("{\"repository\":").jsonQuoted(fileInfo.getRepositoryName())
+                    .text(",\"file\":").jsonQuoted(fileInfo.getRelativePath())
+                    .text(",\"checksum\":").jsonQuoted(fileInfo.getChecksum())
+                    .text(",\"size\":").number(fileInfo.getSize());
+            if(withDifference)
+                output.text(",\"difference\":").jsonQuoted(difference == null ? "" : difference);
+            output.raw('}').raw('\n');
+        }
+    }
+}
@@ -1,17 +1,45 @@
 package com.redhat.maven;
 
-import java.io.File;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 /** Information about a Maven Repository
  *
+ * The information can be stored as a manifest, a binary file with path, size, checksum and time of the last
+ * modification of every file. Manifests are written sorted by path, each path shares its prefix with the
+ * previous one, and numbers are stored as variable length integers. A manifest is read as a stream, so it
+ * does not have to fit into memory.
  */
 public class RepositoryInfo {
-    private final File directory;
-    private List<FileInfo> files;
+    private static final int MAGIC = 0x52414d46;
+    private static final int VERSION = 1;
+    private static final int END_OF_FILES = 0;
+    private static final int NEXT_FILE = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String name;
+    private String algorithm;
+    private final List<FileInfo> files = new ArrayList<>();
 
     public RepositoryInfo(File directory) {
-        this.directory = directory;
+        this.name = directory.getName();
+    }
+
+    /** Constructor
+     *
+     * @param name name of the repository
+     * @param algorithm name of the checksum algorithm of the files
+     */
+    RepositoryInfo(String name, String algorithm) {
+        this.name = name;
+        this.algorithm = algorithm;
     }
 
     /** Returns name of the repository.
@@ -19,6 +47,158 @@ public class RepositoryInfo {
      * @return name of the directory the data are stored in
      */
     public String getName() {
-        return directory.getName();
+        return name;
+    }
+
+    String getAlgorithm() {
+        return algorithm;
+    }
+
+    void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    List<FileInfo> getFiles() {
+        return files;
+    }
+
+    void addFile(FileInfo fileInfo) {
+        files.add(fileInfo);
+    }
+
+    /** Writes the manifest of the repository
+     *
+     * @param output target stream, it is not closed
+     * @throws IOException when the manifest can not be written
+     */
+    void writeManifest(OutputStream output) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output, BUFFER_SIZE));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeUTF(name);
+        data.writeUTF(algorithm);
+
+        List<FileInfo> sorted = new ArrayList<>(files);
+        sorted.sort(Comparator.comparing(FileInfo::getRelativePath));
+
+        byte[] previous = new byte[0];
+        for(FileInfo fileInfo : sorted) {
+            byte[] path = fileInfo.getRelativePath().getBytes(StandardCharsets.UTF_8);
+            int prefix = 0;
+            while(prefix < previous.length && prefix < path.length && previous[prefix] == path[prefix])
+                prefix++;
+
+            data.writeByte(NEXT_FILE);
+            writeNumber(data, prefix);
+            writeNumber(data, path.length - prefix);
+            data.write(path, prefix, path.length - prefix);
+            writeNumber(data, fileInfo.getSize());
+            writeNumber(data, fileInfo.getLastModified());
+            if(fileInfo.getChecksum() == null) {
+                data.writeByte(0);
+            } else {
+                byte[] checksum = FileInfo.fromHex(fileInfo.getChecksum());
+                data.writeByte(checksum.length);
+                data.write(checksum);
+            }
+            previous = path;
+        }
+        data.writeByte(END_OF_FILES);
+        data.flush();
+    }
+
+    /** Reads a manifest, passing the files to the consumer one by one
+     *
+     * @param input stream with the manifest, it is not closed
+     * @param consumer receives the files
+     * @return the repository, without files
+     * @throws IOException when the manifest can not be read or it is corrupted
+     */
+    static RepositoryInfo readManifest(InputStream input, Consumer<FileInfo> consumer) throws IOException {
+        DataInputStream data = new DataInputStream(input);
+        try {
+            if(data.readInt() != MAGIC || data.readInt() != VERSION)
+                throw new IOException("Not a repository manifest");
+
+            RepositoryInfo repository = new RepositoryInfo(data.readUTF(), data.readUTF());
+            byte[] path = new byte[256];
+            while(data.readUnsignedByte() == NEXT_FILE) {
+                int prefix = (int) readNumber(data);
+                int length = prefix + (int) readNumber(data);
+                if(length > path.length) {
+                    byte[] larger = new byte[Math.max(length, 2 * path.length)];
+                    System.arraycopy(path, 0, larger, 0, prefix);
+                    path = larger;
+                }
+                data.readFully(path, prefix, length - prefix);
+                long size = readNumber(data);
+                long lastModified = readNumber(data);
+                byte[] checksum = new byte[data.readUnsignedByte()];
+                data.readFully(checksum);
+
+                consumer.accept(new FileInfo(size, new String(path, 0, length, StandardCharsets.UTF_8),
+                        checksum.length == 0 ? null : FileInfo.toHex(checksum), repository.getName(), lastModified));
+            }
+            return repository;
+        } catch (EOFException e) {
+            throw new IOException("Repository manifest is truncated", e);
+        }
+    }
+
+    /** Reads the whole manifest into memory
+     *
+     * @param input stream with the manifest, it is not closed
+     * @return the repository with all its files
+     * @throws IOException when the manifest can not be read or it is corrupted
+     */
+    static RepositoryInfo readManifest(InputStream input) throws IOException {
+        List<FileInfo> files = new ArrayList<>();
+        RepositoryInfo repository = readManifest(input, files::add);
+        repository.files.addAll(files);
+        return repository;
+    }
+
+    /** Groups file infos by repositories
+     *
+     * @param fileInfos information about files of any repositories
+     * @param algorithm name of the checksum algorithm of the files
+     * @return repositories sorted by name
+     */
+    static List<RepositoryInfo> groupByRepository(Iterable<FileInfo> fileInfos, String algorithm) {
+        Map<String, RepositoryInfo> repositories = new TreeMap<>();
+        for(FileInfo fileInfo : fileInfos)
+            repositories.computeIfAbsent(fileInfo.getRepositoryName(), key -> new RepositoryInfo(key, algorithm)).addFile(fileInfo);
+        return Collections.unmodifiableList(new ArrayList<>(repositories.values()));
+    }
+
+    /** Writes a number as a variable length integer, 7 bits per byte
+     *
+     * @param data target stream
+     * @param value the number
+     * @throws IOException when the number can not be written
+     */
+    static void writeNumber(DataOutputStream data, long value) throws IOException {
+        while((value & ~0x7FL) != 0) {
+            data.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        data.writeByte((int) value);
+    }
+
+    /** Reads a number written by {@link #writeNumber(DataOutputStream, long)}
+     *
+     * @param data source stream
+     * @return the number
+     * @throws IOException when the number can not be read or it is malformed
+     */
+    static long readNumber(DataInputStream data) throws IOException {
+        long result = 0;
+        for(int shift = 0; shift < 64; shift += 7) {
+            int b = data.readUnsignedByte();
+            result |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0)
+                return result;
+        }
+        throw new IOException("Malformed number in repository manifest");
     }
 }
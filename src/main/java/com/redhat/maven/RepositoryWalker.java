@@ -0,0 +1,353 @@
+package com.redhat.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/** Walks through a repository and passes all files to be analyzed to a consumer.
+ *
+ * Attributes read while listing a directory are reused, so every file is examined only once. The sequential
+ * walker uses {@link Files#walkFileTree}, which needs no recursion. The parallel walker lists sibling
+ * directories concurrently in a fork-join pool, which helps on network file systems where every listing
+ * waits for the server.
+ *
+ * With virtual threads every directory and every file is examined by its own task, so thousands of listings and
+ * reads of attributes wait for a network file system at once. A semaphore limits the number of file system calls
+ * in flight, tasks waiting for their subdirectories do not hold it.
+ *
+ * Files of a directory can be passed to the consumer ordered by size or by inode number, which is close to the order
+ * of the data on many local file systems and lowers seeking of rotating disks.
+ */
+class RepositoryWalker {
+    /** Order of files within a directory
+     */
+    enum Order {
+        NONE, SIZE, INODE
+    }
+
+    private final ForkJoinPool pool;
+    private final ExecutorService tasks;
+    private final Semaphore permits;
+    private final Consumer<FileEntry> consumer;
+    private final Consumer<Path> accessDenied;
+    private final Order order;
+
+    /** Constructor
+     *
+     * @param threads number of threads listing directories, 1 means sequential walking in the calling thread
+     * @param consumer receives found files, must be thread safe when more threads are used
+     * @param accessDenied called for files and directories which can not be read
+     */
+    RepositoryWalker(int threads, Consumer<FileEntry> consumer, Consumer<Path> accessDenied) {
+        this(threads, Order.NONE, consumer, accessDenied);
+    }
+
+    /** Constructor
+     *
+     * @param threads number of threads listing directories, 1 means sequential walking in the calling thread
+     * @param order order of files within a directory
+     * @param consumer receives found files, must be thread safe when more threads are used
+     * @param accessDenied called for files and directories which can not be read
+     */
+    RepositoryWalker(int threads, Order order, Consumer<FileEntry> consumer, Consumer<Path> accessDenied) {
+        this(threads, order, 0, consumer, accessDenied);
+    }
+
+    /** Constructor
+     *
+     * @param threads number of threads listing directories, 1 means sequential walking in the calling thread;
+     *                used when virtual threads are not requested or not supported by the runtime
+     * @param order order of files within a directory
+     * @param concurrency number of concurrent file system calls of virtual threads, 0 for platform threads
+     * @param consumer receives found files, must be thread safe when more threads are used
+     * @param accessDenied called for files and directories which can not be read
+     */
+    RepositoryWalker(int threads, Order order, int concurrency, Consumer<FileEntry> consumer, Consumer<Path> accessDenied) {
+        this(threads, concurrency > 0 ? VirtualThreads.newPerTaskExecutor() : null, concurrency, order, consumer, accessDenied);
+    }
+
+    /** Constructor of a walker running a task per directory and per file
+     *
+     * @param tasks executor of the tasks, it must not limit the number of threads, because tasks wait for their subtasks
+     * @param concurrency number of concurrent file system calls
+     * @param order order of files within a directory
+     * @param consumer receives found files, must be thread safe
+     * @param accessDenied called for files and directories which can not be read
+     */
+    RepositoryWalker(ExecutorService tasks, int concurrency, Order order, Consumer<FileEntry> consumer, Consumer<Path> accessDenied) {
+        this(1, tasks, concurrency, order, consumer, accessDenied);
+    }
+
+    private RepositoryWalker(int threads, ExecutorService tasks, int concurrency, Order order, Consumer<FileEntry> consumer, Consumer<Path> accessDenied) {
+        this.tasks = tasks;
+        this.permits = tasks != null ? new Semaphore(concurrency) : null;
+        this.pool = tasks == null && threads > 1 ? new ForkJoinPool(threads) : null;
+        this.consumer = consumer;
+        this.accessDenied = accessDenied;
+        this.order = order;
+    }
+
+    /** Tells whether directories and files are examined by tasks of their own
+     *
+     * @return true if the walker runs on virtual threads or another per task executor
+     */
+    boolean isPerTask() {
+        return tasks != null;
+    }
+
+    /** Returns true for files and directories which are not compared.
+     *
+     * @param name name of the file
+     * @return true for Nexus index files and directories, maven-metadata.xml generated by Nexus and checksum files
+     */
+    static boolean isIgnored(String name) {
+        return name.startsWith(".") || name.startsWith("maven-metadata.xml") || name.endsWith(".md5") || name.endsWith(".sha1")
+                || name.endsWith(".sha256") || name.endsWith(".sha512");
+    }
+
+    /** Walks through the whole repository
+     *
+     * @param repository root directory of the repository
+     */
+    void walk(File repository) {
+        if(tasks != null) {
+            walkDirectory(repository.toPath(), repository);
+            return;
+        }
+
+        if(pool != null) {
+            pool.invoke(new DirectoryTask(repository.toPath(), repository));
+            return;
+        }
+
+        Deque<List<Pending>> directories = new ArrayDeque<>();
+        try {
+            Files.walkFileTree(repository.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if(dir.getNameCount() > repository.toPath().getNameCount() && isIgnored(dir.getFileName().toString()))
+                        return FileVisitResult.SKIP_SUBTREE;
+                    directories.push(new ArrayList<>());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if(order == Order.NONE || directories.isEmpty())
+                        accept(file, attrs, repository);
+                    else
+                        add(directories.peek(), file, attrs, repository);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                    flush(directories.pop());
+                    if(exc != null)
+                        failed(dir, exc); // the listing broke off, the remaining directories are still walked
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    failed(file, exc);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            failed(repository.toPath(), e);
+        }
+    }
+
+    /** Stops threads of the parallel walker
+     */
+    void shutdown() {
+        if(pool != null)
+            pool.shutdown();
+        if(tasks != null)
+            tasks.shutdown();
+    }
+
+    /** Lists a directory and examines its entries by tasks of their own, returns when the whole tree is walked
+     *
+     * @param directory the directory
+     * @param repository root directory of the repository
+     */
+    private void walkDirectory(Path directory, File repository) {
+        List<Path> children = new ArrayList<>();
+        permits.acquireUninterruptibly();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for(Path entry : entries) {
+                if(!isIgnored(entry.getFileName().toString()))
+                    children.add(entry);
+            }
+        } catch (IOException e) {
+            failed(directory, e);
+            return;
+        } finally {
+            permits.release();
+        }
+
+        List<Pending> pending = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> results = new ArrayList<>(children.size());
+        for(Path child : children)
+            results.add(tasks.submit(() -> visit(child, repository, pending)));
+        try {
+            for(Future<?> result : results)
+                result.get();
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Walking "+directory+" failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while walking "+directory, e);
+        }
+        flush(pending);
+    }
+
+    /** Examines an entry of a directory, a subdirectory is walked by the same task
+     *
+     * @param entry the entry
+     * @param repository root directory of the repository
+     * @param pending files of the directory waiting for the order of the walker
+     */
+    private void visit(Path entry, File repository, List<Pending> pending) {
+        BasicFileAttributes attrs;
+        permits.acquireUninterruptibly();
+        try {
+            attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+            if(!attrs.isDirectory() && order != Order.NONE) {
+                add(pending, entry, attrs, repository);
+                return;
+            }
+        } catch (IOException e) {
+            failed(entry, e);
+            return;
+        } finally {
+            permits.release();
+        }
+
+        if(attrs.isDirectory())
+            walkDirectory(entry, repository);
+        else
+            accept(entry, attrs, repository);
+    }
+
+    private void accept(Path file, BasicFileAttributes attrs, File repository) {
+        if(attrs.isRegularFile() && !isIgnored(file.getFileName().toString()))
+            consumer.accept(new FileEntry(file.toFile(), repository, attrs.size(), attrs.lastModifiedTime().toMillis()));
+    }
+
+    /** Remembers a file to be passed to the consumer in the order of the walker
+     *
+     * @param pending files of the directory
+     * @param file the file
+     * @param attrs attributes of the file
+     * @param repository root directory of the repository
+     */
+    private void add(List<Pending> pending, Path file, BasicFileAttributes attrs, File repository) {
+        if(!attrs.isRegularFile() || isIgnored(file.getFileName().toString()))
+            return;
+
+        FileEntry entry = new FileEntry(file.toFile(), repository, attrs.size(), attrs.lastModifiedTime().toMillis());
+        pending.add(new Pending(entry, order == Order.SIZE ? attrs.size() : inode(file)));
+    }
+
+    /** Passes files of a directory to the consumer in the order of the walker
+     *
+     * @param pending files of the directory
+     */
+    private void flush(List<Pending> pending) {
+        pending.sort(Comparator.comparingLong(file -> file.key));
+        pending.forEach(file -> consumer.accept(file.entry));
+    }
+
+    /** Returns the inode number of a file
+     *
+     * @param file the file
+     * @return the number, 0 if the file system does not have inodes
+     */
+    private static long inode(Path file) {
+        try {
+            Object inode = Files.getAttribute(file, "unix:ino");
+            return inode instanceof Number ? ((Number) inode).longValue() : 0;
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return 0;
+        }
+    }
+
+    private void failed(Path file, IOException exc) {
+        if(exc instanceof AccessDeniedException) {
+            accessDenied.accept(file);
+        } else {
+            System.err.println("Error reading "+file+": "+exc);
+        }
+    }
+
+    /** Lists one directory, its subdirectories are listed by forked tasks
+     */
+    private class DirectoryTask extends RecursiveAction {
+        private final Path directory;
+        private final File repository;
+
+        private DirectoryTask(Path directory, File repository) {
+            this.directory = directory;
+            this.repository = repository;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            List<Pending> pending = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    if(isIgnored(entry.getFileName().toString()))
+                        continue;
+                    try {
+                        BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+                        if(attrs.isDirectory())
+                            subdirectories.add(new DirectoryTask(entry, repository));
+                        else if(order == Order.NONE)
+                            accept(entry, attrs, repository);
+                        else
+                            add(pending, entry, attrs, repository);
+                    } catch (IOException e) {
+                        failed(entry, e);
+                    }
+                }
+            } catch (IOException e) {
+                failed(directory, e);
+            }
+            flush(pending);
+            invokeAll(subdirectories);
+        }
+    }
+
+    /** File waiting until its whole directory is listed
+     */
+    private static class Pending {
+        private final FileEntry entry;
+        private final long key;
+
+        private Pending(FileEntry entry, long key) {
+            this.entry = entry;
+            this.key = key;
+        }
+    }
+}
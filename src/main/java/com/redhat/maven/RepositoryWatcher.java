@@ -0,0 +1,302 @@
+package com.redhat.maven;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/** Watches repositories for changed, added and deleted files.
+ *
+ * All directories of the repositories are registered in a {@link WatchService} and the size and time of modification
+ * of every file is remembered when the watcher starts, so changes made while the repositories are scanned for
+ * the first time are reported too. Events are collected until the repositories are quiet for a moment, then every
+ * touched file is compared with its remembered state, so a file being written is reported once it is complete.
+ * File systems which do not deliver events, like NFS, are covered by a periodic sweep comparing all files.
+ */
+class RepositoryWatcher implements Closeable {
+    static final long SETTLE_TIME = 200;
+
+    private static final long MAX_POLL = 1000;
+
+    private final List<File> repositories;
+    private final long sweepInterval;
+    private final Listener listener;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Set<Path> registered = new HashSet<>();
+    private final Map<Path, State> files = new HashMap<>();
+    private volatile boolean closed = false;
+    private long sweeps = 0;
+
+    /** Receives the changes, it is called by the thread running the watcher
+     */
+    interface Listener {
+        /** A file was added or its size or time of modification changed
+         *
+         * @param entry the file with its current size and time of modification
+         */
+        void changed(FileEntry entry);
+
+        /** A file was deleted
+         *
+         * @param entry the file with its last known size and time of modification
+         */
+        void deleted(FileEntry entry);
+
+        /** All changes found by an event or a sweep were passed to the listener
+         */
+        void batchDone();
+    }
+
+    /** Constructor
+     *
+     * @param repositories root directories of the watched repositories
+     * @param sweepInterval interval of comparing all files in milliseconds, 0 for no sweeps
+     * @param listener receives the changes
+     * @throws IOException when the watch service can not be created
+     */
+    RepositoryWatcher(List<File> repositories, long sweepInterval, Listener listener) throws IOException {
+        this.repositories = repositories;
+        this.sweepInterval = sweepInterval;
+        this.listener = listener;
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /** Registers all directories and remembers the state of all files, nothing is reported
+     *
+     * @throws IOException when a repository can not be walked
+     */
+    synchronized void start() throws IOException {
+        for(File repository : repositories)
+            walk(repository.toPath(), repository, false);
+        sweeps++;
+    }
+
+    /** Processes the changes until the watcher is closed
+     */
+    void run() {
+        Set<Path> touched = new LinkedHashSet<>();
+        long nextSweep = sweepInterval > 0 ? System.currentTimeMillis() + sweepInterval : Long.MAX_VALUE;
+        try {
+            while(!closed) {
+                long timeout = touched.isEmpty() ? Math.max(1, Math.min(MAX_POLL, nextSweep - System.currentTimeMillis())) : SETTLE_TIME;
+                WatchKey key = watchService.poll(timeout, TimeUnit.MILLISECONDS);
+                boolean overflow = false;
+                if(key != null) {
+                    overflow = collect(key, touched);
+                } else if(!touched.isEmpty()) {
+                    process(touched);
+                    touched.clear();
+                    listener.batchDone();
+                }
+
+                if(overflow || System.currentTimeMillis() >= nextSweep) {
+                    sweep();
+                    touched.clear();
+                    listener.batchDone();
+                    nextSweep = sweepInterval > 0 ? System.currentTimeMillis() + sweepInterval : Long.MAX_VALUE;
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // the watcher was closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Collects paths of the events of a directory
+     *
+     * @param key key of the directory
+     * @param touched paths to be compared with their state
+     * @return true when events were lost and all files have to be compared
+     */
+    private synchronized boolean collect(WatchKey key, Set<Path> touched) {
+        boolean overflow = false;
+        Path directory = directories.get(key);
+        for(WatchEvent<?> event : key.pollEvents()) {
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW)
+                overflow = true;
+            else if(directory != null)
+                touched.add(directory.resolve((Path) event.context()));
+        }
+        if(!key.reset()) {
+            directories.remove(key);
+            registered.remove(directory);
+        }
+        return overflow;
+    }
+
+    /** Compares touched paths with their state, new directories are registered and walked
+     *
+     * @param touched the paths
+     */
+    synchronized void process(Collection<Path> touched) {
+        for(Path path : touched) {
+            File repository = repositoryOf(path);
+            if(repository == null || RepositoryWalker.isIgnored(path.getFileName().toString()))
+                continue;
+
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (IOException e) {
+                attrs = null; // deleted
+            }
+
+            if(attrs == null) {
+                deleteTree(path);
+            } else if(attrs.isDirectory()) {
+                try {
+                    walk(path, repository, true);
+                } catch (IOException e) {
+                    System.err.println("Warning: Can not watch "+path+": "+e.getMessage());
+                }
+            } else if(attrs.isRegularFile()) {
+                compare(path, repository, attrs);
+            }
+        }
+    }
+
+    /** Compares all files with their state, reports deleted files and registers directories which were missed
+     */
+    synchronized void sweep() {
+        sweeps++;
+        for(File repository : repositories) {
+            try {
+                walk(repository.toPath(), repository, true);
+            } catch (IOException e) {
+                System.err.println("Warning: Can not sweep "+repository+": "+e.getMessage());
+                return; // files of the repository must not be reported as deleted
+            }
+        }
+
+        Iterator<Map.Entry<Path, State>> iterator = files.entrySet().iterator();
+        while(iterator.hasNext()) {
+            Map.Entry<Path, State> file = iterator.next();
+            if(file.getValue().sweep != sweeps) {
+                iterator.remove();
+                listener.deleted(file.getValue().toEntry(file.getKey()));
+            }
+        }
+    }
+
+    /** Walks a directory tree, registers its directories and compares its files with their state
+     *
+     * @param start root of the tree
+     * @param repository repository of the tree
+     * @param report whether changes are reported
+     * @throws IOException when the tree can not be walked
+     */
+    private void walk(Path start, File repository, boolean report) throws IOException {
+        Path root = repository.toPath();
+        Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if(dir.getNameCount() > root.getNameCount() && RepositoryWalker.isIgnored(dir.getFileName().toString()))
+                    return FileVisitResult.SKIP_SUBTREE;
+                if(registered.add(dir)) {
+                    directories.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if(attrs.isRegularFile() && !RepositoryWalker.isIgnored(file.getFileName().toString())) {
+                    if(report)
+                        compare(file, repository, attrs);
+                    else
+                        files.put(file, new State(repository, attrs.size(), attrs.lastModifiedTime().toMillis(), sweeps));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                System.err.println("Warning: Can not watch "+file+": "+exc.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /** Compares a file with its state and reports it when it changed
+     *
+     * @param file the file
+     * @param repository repository of the file
+     * @param attrs current attributes of the file
+     */
+    private void compare(Path file, File repository, BasicFileAttributes attrs) {
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        State state = files.get(file);
+        if(state == null || state.size != attrs.size() || state.lastModified != lastModified) {
+            state = new State(repository, attrs.size(), lastModified, sweeps);
+            files.put(file, state);
+            listener.changed(state.toEntry(file));
+        }
+        state.sweep = sweeps;
+    }
+
+    /** Reports a deleted file or all known files of a deleted directory
+     *
+     * @param path the deleted path
+     */
+    private void deleteTree(Path path) {
+        State state = files.remove(path);
+        if(state != null) {
+            listener.deleted(state.toEntry(path));
+            return;
+        }
+
+        Iterator<Map.Entry<Path, State>> iterator = files.entrySet().iterator();
+        while(iterator.hasNext()) {
+            Map.Entry<Path, State> file = iterator.next();
+            if(file.getKey().startsWith(path)) {
+                iterator.remove();
+                listener.deleted(file.getValue().toEntry(file.getKey()));
+            }
+        }
+        registered.removeIf(directory -> directory.startsWith(path));
+    }
+
+    private File repositoryOf(Path path) {
+        for(File repository : repositories) {
+            if(path.startsWith(repository.toPath()) && !path.equals(repository.toPath()))
+                return repository;
+        }
+        return null;
+    }
+
+    /** Stops the watcher, {@link #run()} returns
+     *
+     * @throws IOException when the watch service can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+    }
+
+    /** Last known size and time of modification of a file
+     */
+    private static class State {
+        private final File repository;
+        private final long size;
+        private final long lastModified;
+        private long sweep;
+
+        private State(File repository, long size, long lastModified, long sweep) {
+            this.repository = repository;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.sweep = sweep;
+        }
+
+        private FileEntry toEntry(Path file) {
+            return new FileEntry(file.toFile(), repository, size, lastModified);
+        }
+    }
+}
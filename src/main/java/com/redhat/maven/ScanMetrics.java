@@ -0,0 +1,393 @@
+package com.redhat.maven;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/** Counters and latency histograms of the walk, hash and compare stages.
+ *
+ * Updates are cheap and thread safe. A reporter thread can periodically print a progress line, write
+ * the counters in the Prometheus text format, and the counters can be exposed over JMX.
+ */
+class ScanMetrics implements ScanMetricsMBean {
+    static final String WALK = "walk";
+    static final String HASH = "hash";
+    static final String COMPARE = "compare";
+    private static final int SLOWEST_FILES = 10;
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+
+    private final long started = System.nanoTime();
+    private final LongAdder discoveredFiles = new LongAdder(), discoveredBytes = new LongAdder(),
+            processedFiles = new LongAdder(), processedBytes = new LongAdder();
+    private final Map<String, RepositoryCounters> repositories = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> stages = new ConcurrentHashMap<>();
+    private final PriorityQueue<SlowFile> slowestFiles = new PriorityQueue<>();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private volatile IntSupplier queue = () -> 0;
+    private volatile boolean walkFinished = false;
+    private ScheduledExecutorService reporter;
+
+    /** Latency histogram with buckets growing by the power of two, from 1 microsecond
+     */
+    static class LatencyHistogram {
+        private static final int BUCKETS = 40;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder(), total = new LongAdder();
+
+        void record(long nanos) {
+            int bucket = 0;
+            for(long limit = 1000; nanos > limit && bucket < BUCKETS - 1; limit <<= 1)
+                bucket++;
+            counts.incrementAndGet(bucket);
+            count.increment();
+            total.add(nanos);
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        /** Returns upper bound of the bucket containing the quantile
+         *
+         * @param quantile from 0 to 1
+         * @return latency in nanoseconds
+         */
+        long quantile(double quantile) {
+            long target = (long) Math.ceil(quantile * getCount()), seen = 0;
+            for(int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if(seen >= target && seen > 0)
+                    return upperBound(i);
+            }
+            return 0;
+        }
+
+        private static long upperBound(int bucket) {
+            return 1000L << bucket;
+        }
+    }
+
+    private static class RepositoryCounters {
+        private final LongAdder files = new LongAdder(), bytes = new LongAdder();
+
+        private void increment(long size) {
+            files.increment();
+            bytes.add(size);
+        }
+    }
+
+    private RepositoryCounters repositoryCounters(FileEntry entry) {
+        return repositories.computeIfAbsent(entry.getRepository().getName(), name -> new RepositoryCounters());
+    }
+
+    private static class SlowFile implements Comparable<SlowFile> {
+        private final String path;
+        private final long size;
+        private final long nanos;
+
+        private SlowFile(String path, long size, long nanos) {
+            this.path = path;
+            this.size = size;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public int compareTo(SlowFile o) {
+            return Long.compare(nanos, o.nanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%d bytes, %.3f s)", path, size, nanos / 1e9);
+        }
+    }
+
+    /** Records a file found by the walker
+     *
+     * @param entry the file
+     */
+    void fileDiscovered(FileEntry entry) {
+        discoveredFiles.increment();
+        discoveredBytes.add(entry.getSize());
+    }
+
+    /** Records a processed file
+     *
+     * @param entry the file
+     * @param nanos time spent on the file
+     */
+    void fileProcessed(FileEntry entry, long nanos) {
+        processedFiles.increment();
+        processedBytes.add(entry.getSize());
+
+        repositoryCounters(entry).increment(entry.getSize());
+
+        stage(HASH, nanos);
+
+        synchronized (slowestFiles) {
+            if(slowestFiles.size() < SLOWEST_FILES || slowestFiles.peek().nanos < nanos) {
+                slowestFiles.add(new SlowFile(entry.getFile().getPath(), entry.getSize(), nanos));
+                if(slowestFiles.size() > SLOWEST_FILES)
+                    slowestFiles.poll();
+            }
+        }
+
+        int depth = queue.getAsInt();
+        maxQueueDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    /** Records a file which did not need to be read
+     *
+     * @param entry the file
+     */
+    void fileSkipped(FileEntry entry) {
+        processedFiles.increment();
+        processedBytes.add(entry.getSize());
+        repositoryCounters(entry).increment(entry.getSize());
+    }
+
+    /** Records duration of a stage
+     *
+     * @param stage name of the stage
+     * @param nanos duration
+     */
+    void stage(String stage, long nanos) {
+        stages.computeIfAbsent(stage, key -> new LatencyHistogram()).record(nanos);
+    }
+
+    LatencyHistogram getStage(String stage) {
+        return stages.get(stage);
+    }
+
+    void setQueue(IntSupplier queue) {
+        this.queue = queue;
+    }
+
+    void walkFinished() {
+        walkFinished = true;
+    }
+
+    @Override
+    public long getDiscoveredFiles() {
+        return discoveredFiles.sum();
+    }
+
+    @Override
+    public long getDiscoveredBytes() {
+        return discoveredBytes.sum();
+    }
+
+    @Override
+    public long getProcessedFiles() {
+        return processedFiles.sum();
+    }
+
+    @Override
+    public long getProcessedBytes() {
+        return processedBytes.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queue.getAsInt();
+    }
+
+    @Override
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    @Override
+    public boolean isWalkFinished() {
+        return walkFinished;
+    }
+
+    private double elapsedSeconds() {
+        return Math.max(System.nanoTime() - started, 1) / 1e9;
+    }
+
+    @Override
+    public double getFilesPerSecond() {
+        return getProcessedFiles() / elapsedSeconds();
+    }
+
+    @Override
+    public double getMegabytesPerSecond() {
+        return getProcessedBytes() / MEGABYTE / elapsedSeconds();
+    }
+
+    /** Estimates the remaining time from the bytes not processed yet. Until the walk finishes it is only a lower
+     * bound.
+     *
+     * @return seconds or -1 if nothing was processed yet
+     */
+    @Override
+    public long getEstimatedSecondsRemaining() {
+        double rate = getProcessedBytes() / elapsedSeconds();
+        if(rate <= 0)
+            return -1;
+        return (long) (Math.max(getDiscoveredBytes() - getProcessedBytes(), 0) / rate);
+    }
+
+    @Override
+    public String[] getSlowestFiles() {
+        List<SlowFile> files;
+        synchronized (slowestFiles) {
+            files = new ArrayList<>(slowestFiles);
+        }
+        files.sort(Collections.reverseOrder());
+        return files.stream().map(SlowFile::toString).toArray(String[]::new);
+    }
+
+    /** Returns one line with the progress of the scan
+     *
+     * @return progress line
+     */
+    String getProgressLine() {
+        long eta = getEstimatedSecondsRemaining();
+        return String.format("Progress: %d/%d files, %.1f/%.1f MiB, %.1f files/s, %.1f MiB/s, queue %d, %s",
+                getProcessedFiles(), getDiscoveredFiles(), getProcessedBytes() / MEGABYTE, getDiscoveredBytes() / MEGABYTE,
+                getFilesPerSecond(), getMegabytesPerSecond(), getQueueDepth(),
+                eta < 0 ? "ETA unknown" : (walkFinished ? "ETA " : "walking, ETA at least ") + formatDuration(eta));
+    }
+
+    private static String formatDuration(long seconds) {
+        return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+    }
+
+    /** Prints summary of the finished scan, with latencies of the stages and the slowest files
+     *
+     * @param out target stream
+     */
+    void printSummary(PrintStream out) {
+        out.println(getProgressLine());
+        for(Map.Entry<String, LatencyHistogram> stage : new TreeMap<>(stages).entrySet()) {
+            LatencyHistogram histogram = stage.getValue();
+            out.println(String.format("Stage %s: %d measurements, p50 < %.3f ms, p99 < %.3f ms, total %.3f s", stage.getKey(),
+                    histogram.getCount(), histogram.quantile(0.5) / 1e6, histogram.quantile(0.99) / 1e6, histogram.total.sum() / 1e9));
+        }
+        for(Map.Entry<String, RepositoryCounters> repository : new TreeMap<>(repositories).entrySet()) {
+            out.println(String.format("Repository %s: %d files, %.1f MiB", repository.getKey(), repository.getValue().files.sum(), repository.getValue().bytes.sum() / MEGABYTE));
+        }
+        String[] slowest = getSlowestFiles();
+        if(slowest.length > 0) {
+            out.println("Slowest files:");
+            for(String file : slowest)
+                out.println("    " + file);
+        }
+    }
+
+    /** Formats the counters in the Prometheus text exposition format
+     *
+     * @return text of the metrics
+     */
+    String toPrometheus() {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        out.println("# TYPE repo_analyzer_discovered_files gauge");
+        out.println("repo_analyzer_discovered_files " + getDiscoveredFiles());
+        out.println("# TYPE repo_analyzer_discovered_bytes gauge");
+        out.println("repo_analyzer_discovered_bytes " + getDiscoveredBytes());
+        out.println("# TYPE repo_analyzer_queue_depth gauge");
+        out.println("repo_analyzer_queue_depth " + getQueueDepth());
+        out.println("# TYPE repo_analyzer_processed_files counter");
+        out.println("# TYPE repo_analyzer_processed_bytes counter");
+        for(Map.Entry<String, RepositoryCounters> repository : new TreeMap<>(repositories).entrySet()) {
+            String label = "{repository=\"" + repository.getKey().replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+            out.println("repo_analyzer_processed_files" + label + " " + repository.getValue().files.sum());
+            out.println("repo_analyzer_processed_bytes" + label + " " + repository.getValue().bytes.sum());
+        }
+        for(Map.Entry<String, LatencyHistogram> stage : new TreeMap<>(stages).entrySet()) {
+            LatencyHistogram histogram = stage.getValue();
+            String name = "repo_analyzer_" + stage.getKey() + "_seconds";
+            out.println("# TYPE " + name + " histogram");
+            long cumulative = 0;
+            for(int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+                cumulative += histogram.counts.get(i);
+                out.println(name + "_bucket{le=\"" + LatencyHistogram.upperBound(i) / 1e9 + "\"} " + cumulative);
+            }
+            out.println(name + "_bucket{le=\"+Inf\"} " + histogram.getCount());
+            out.println(name + "_sum " + histogram.total.sum() / 1e9);
+            out.println(name + "_count " + histogram.getCount());
+        }
+        out.flush();
+        return text.toString();
+    }
+
+    /** Writes the Prometheus text file, through a temporary file so that readers never see a partial file
+     *
+     * @param file target file
+     * @throws IOException when the file can not be written
+     */
+    void writePrometheus(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporary, toPrometheus().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Registers the counters in the platform MBean server
+     *
+     * @throws JMException when the registration fails
+     */
+    void registerMBean() throws JMException {
+        ObjectName name = new ObjectName("com.redhat.maven:type=ScanMetrics");
+        if(ManagementFactory.getPlatformMBeanServer().isRegistered(name))
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+    }
+
+    /** Starts the periodic reporting
+     *
+     * @param seconds interval of the reports
+     * @param printProgress print the progress line to the standard output
+     * @param prometheusFile file for the Prometheus metrics, may be null
+     */
+    void startReporting(int seconds, boolean printProgress, Path prometheusFile) {
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> report(printProgress, prometheusFile), seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    /** Stops the periodic reporting and reports the final state
+     *
+     * @param printProgress print the summary to the standard output
+     * @param prometheusFile file for the Prometheus metrics, may be null
+     */
+    void stopReporting(boolean printProgress, Path prometheusFile) {
+        if(reporter != null)
+            reporter.shutdownNow();
+        if(prometheusFile != null)
+            report(false, prometheusFile);
+        if(printProgress)
+            printSummary(System.out);
+    }
+
+    private void report(boolean printProgress, Path prometheusFile) {
+        if(printProgress)
+            System.out.println(getProgressLine());
+        if(prometheusFile != null) {
+            try {
+                writePrometheus(prometheusFile);
+            } catch (IOException e) {
+                System.err.println("Error: Can not write metrics to "+prometheusFile+": "+e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.redhat.maven;
+
+/** Counters of a running scan exposed over JMX
+ */
+public interface ScanMetricsMBean {
+    long getDiscoveredFiles();
+
+    long getDiscoveredBytes();
+
+    long getProcessedFiles();
+
+    long getProcessedBytes();
+
+    int getQueueDepth();
+
+    int getMaxQueueDepth();
+
+    boolean isWalkFinished();
+
+    double getFilesPerSecond();
+
+    double getMegabytesPerSecond();
+
+    long getEstimatedSecondsRemaining();
+
+    String[] getSlowestFiles();
+}
@@ -0,0 +1,188 @@
+package com.redhat.maven;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/** Worker of a distributed scan. It listens on a socket, scans the repositories the coordinator asks for and
+ * sends back the files of every repository as a manifest, see {@link RepositoryInfo#writeManifest(OutputStream)}.
+ *
+ * A request contains the checksum algorithm and the absolute paths of the repositories. The response is a status,
+ * followed either by one manifest per requested repository in the order of the request, or by an error message.
+ * Connections are served one after another, a single worker is expected to serve a single coordinator.
+ * Coordinators are not authenticated, a worker given root directories refuses repositories outside of them.
+ */
+class ScanWorker implements Closeable {
+    static final String LISTENING = "Worker listening on port ";
+
+    private static final int MAGIC = 0x52415752;
+    private static final int VERSION = 1;
+    private static final int STATUS_OK = 0;
+    private static final int STATUS_ERROR = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_REPOSITORIES = 1 << 16;
+    private static final int REQUEST_TIMEOUT = 60_000;
+
+    private final ServerSocket serverSocket;
+    private final String algorithm;
+    private final List<File> roots = new ArrayList<>();
+    private final Function<List<File>, List<RepositoryInfo>> scanner;
+
+    /** Constructor, binds the socket
+     *
+     * @param address address to listen on, port 0 chooses a free port
+     * @param algorithm name of the checksum algorithm of the worker, requests for other algorithms are refused
+     * @param roots directories containing the repositories coordinators may scan, empty for any directory
+     * @param scanner scans the repositories, returns them with their files in the order of the list
+     * @throws IOException when the socket can not be bound or a root can not be resolved
+     */
+    ScanWorker(InetSocketAddress address, String algorithm, List<File> roots, Function<List<File>, List<RepositoryInfo>> scanner) throws IOException {
+        for(File root : roots)
+            this.roots.add(root.getCanonicalFile());
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.bind(address);
+        this.algorithm = algorithm;
+        this.scanner = scanner;
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /** Serves coordinators until the worker is closed. A failed connection is reported and the worker keeps
+     * accepting the next ones.
+     *
+     * @throws IOException when the server socket fails
+     */
+    void serve() throws IOException {
+        while(!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                if(!serverSocket.isClosed())
+                    throw e;
+                return;
+            }
+            try (Socket connection = socket) {
+                handle(connection);
+            } catch (IOException e) {
+                if(!serverSocket.isClosed())
+                    System.err.println("Warning: Connection of a coordinator "+socket.getRemoteSocketAddress()+" failed: "+e);
+            }
+        }
+    }
+
+    private void handle(Socket socket) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+
+        socket.setSoTimeout(REQUEST_TIMEOUT); // connections are served one after another, a silent client would block the others
+        if(input.readInt() != MAGIC || input.readInt() != VERSION) {
+            System.err.println("Warning: Refused connection from "+socket.getRemoteSocketAddress()+", it is not a coordinator");
+            return;
+        }
+        String requestedAlgorithm = input.readUTF();
+        int count = input.readInt();
+        if(count < 0 || count > MAX_REPOSITORIES)
+            throw new IOException("Request for "+count+" repositories");
+        List<File> repositories = new ArrayList<>(count);
+        for(int i = 0; i < count; i++)
+            repositories.add(new File(input.readUTF()));
+        socket.setSoTimeout(0);
+
+        output.writeInt(MAGIC);
+        if(!algorithm.equals(requestedAlgorithm)) {
+            sendError(output, "Worker computes "+algorithm+" checksums, not "+requestedAlgorithm);
+            return;
+        }
+        for(File repository : repositories) {
+            if(!isAllowed(repository)) {
+                sendError(output, "Repository "+repository+" is not in a directory of the worker");
+                return;
+            }
+        }
+
+        List<RepositoryInfo> scanned;
+        try {
+            scanned = scanner.apply(repositories);
+        } catch (UncheckedIOException e) {
+            sendError(output, e.getCause().getMessage());
+            return;
+        }
+
+        output.writeByte(STATUS_OK);
+        for(RepositoryInfo repository : scanned)
+            repository.writeManifest(output);
+        output.flush();
+    }
+
+    /** Tells whether a repository is in one of the roots, links and .. are resolved first
+     *
+     * @param repository requested repository
+     * @return true if the repository may be scanned
+     * @throws IOException when the path can not be resolved
+     */
+    private boolean isAllowed(File repository) throws IOException {
+        if(roots.isEmpty())
+            return true;
+        for(File directory = repository.getCanonicalFile(); directory != null; directory = directory.getParentFile()) {
+            if(roots.contains(directory))
+                return true;
+        }
+        return false;
+    }
+
+    private static void sendError(DataOutputStream output, String message) throws IOException {
+        output.writeByte(STATUS_ERROR);
+        output.writeUTF(String.valueOf(message));
+        output.flush();
+    }
+
+    /** Stops serving, a scan in progress is finished first
+     *
+     * @throws IOException when the socket can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    /** Asks a worker to scan repositories, the files are passed to the consumer as they arrive
+     *
+     * @param worker address of the worker
+     * @param repositories repositories to be scanned, they must be accessible to the worker under the same paths
+     * @param algorithm name of the checksum algorithm
+     * @param consumer receives the files
+     * @throws IOException when the worker can not be reached or it failed
+     */
+    static void scan(InetSocketAddress worker, List<File> repositories, String algorithm, Consumer<FileInfo> consumer) throws IOException {
+        try (Socket socket = new Socket(worker.getAddress(), worker.getPort())) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeUTF(algorithm);
+            output.writeInt(repositories.size());
+            for(File repository : repositories)
+                output.writeUTF(repository.getAbsolutePath());
+            output.flush();
+
+            DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+            if(input.readInt() != MAGIC)
+                throw new IOException("Not a scan worker");
+            if(input.readUnsignedByte() != STATUS_OK)
+                throw new IOException(input.readUTF());
+
+            for(int i = 0; i < repositories.size(); i++)
+                RepositoryInfo.readManifest(input, consumer);
+        } catch (EOFException e) {
+            throw new IOException("Worker closed the connection", e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.redhat.maven;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Reads checksums from sidecar files (like artifact.jar.sha1) written by Maven and Nexus during deployment.
+ *
+ * A sidecar is trusted only if it is not older than its artifact and contains a well formed checksum.
+ * A configurable fraction of trusted sidecars is verified by computing the real checksum.
+ */
+class SidecarReader {
+    private static final int MAX_SIDECAR_SIZE = 1024;
+
+    private final String extension;
+    private final int checksumLength;
+    private final double verificationRate;
+    private final LongAdder used = new LongAdder(), missing = new LongAdder(), malformed = new LongAdder(),
+            verified = new LongAdder(), wrong = new LongAdder();
+
+    /** Constructor
+     *
+     * @param algorithm checksum algorithm, it must have sidecar files
+     * @param verificationRate fraction of sidecars verified by computing the checksum, from 0 to 1
+     */
+    SidecarReader(DigestAlgorithm algorithm, double verificationRate) {
+        this.extension = algorithm.getSidecarExtension();
+        this.checksumLength = algorithm.newDigest().getDigestLength();
+        this.verificationRate = verificationRate;
+    }
+
+    /** Reads checksum of an artifact from its sidecar
+     *
+     * @param artifact path of the artifact
+     * @param artifactModified time of the last modification of the artifact
+     * @return checksum or null if there is no usable sidecar
+     */
+    byte[] read(Path artifact, long artifactModified) {
+        Path sidecar = Paths.get(artifact.toString() + extension);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(sidecar, BasicFileAttributes.class);
+            if(!attributes.isRegularFile() || attributes.size() > MAX_SIDECAR_SIZE || attributes.lastModifiedTime().toMillis() < artifactModified) {
+                missing.increment();
+                return null;
+            }
+
+            byte[] checksum = parse(new String(Files.readAllBytes(sidecar), StandardCharsets.US_ASCII));
+            if(checksum == null) {
+                malformed.increment();
+                return null;
+            }
+            used.increment();
+            return checksum;
+        } catch (NoSuchFileException e) {
+            missing.increment();
+            return null;
+        } catch (IOException e) {
+            malformed.increment();
+            return null;
+        }
+    }
+
+    /** Parses the content of a sidecar, which is the checksum optionally followed by the file name.
+     *
+     * @param content content of the sidecar
+     * @return checksum or null if the content is not a checksum of the expected algorithm
+     */
+    byte[] parse(String content) {
+        String[] tokens = content.trim().split("\\s+", 2);
+        if(tokens[0].length() != 2 * checksumLength)
+            return null;
+        try {
+            return FileInfo.fromHex(tokens[0]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** Decides randomly whether the next trusted sidecar is to be verified
+     *
+     * @return true if the real checksum should be computed
+     */
+    boolean shouldVerify() {
+        return verificationRate > 0 && ThreadLocalRandom.current().nextDouble() < verificationRate;
+    }
+
+    /** Records result of a verification
+     *
+     * @param correct true if the sidecar contains the real checksum
+     */
+    void recordVerification(boolean correct) {
+        verified.increment();
+        if(!correct)
+            wrong.increment();
+    }
+
+    long getUsed() {
+        return used.sum();
+    }
+
+    long getWrong() {
+        return wrong.sum();
+    }
+
+    /** Returns human readable statistics of the sidecar usage
+     *
+     * @return statistics
+     */
+    String getStatistics() {
+        return String.format("Sidecar files: %d used, %d missing or outdated, %d malformed, %d verified, %d wrong",
+                used.sum(), missing.sum(), malformed.sum(), verified.sum(), wrong.sum());
+    }
+}
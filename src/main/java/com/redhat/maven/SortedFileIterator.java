@@ -0,0 +1,108 @@
+package com.redhat.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.function.Consumer;
+
+/** Iterates over files of a repository in the natural order of their relative paths.
+ *
+ * Only the listings of the directories on the path to the current file are kept in memory. Directories are
+ * sorted as if their names ended with the separator, so a depth-first walk returns the same order as sorting
+ * all relative paths as strings.
+ */
+class SortedFileIterator implements Iterator<FileEntry> {
+    private final File repository;
+    private final Consumer<Path> accessDenied;
+    private final Deque<Iterator<Child>> stack = new ArrayDeque<>();
+    private FileEntry next;
+
+    private static class Child implements Comparable<Child> {
+        private final Path path;
+        private final String sortKey;
+        private final BasicFileAttributes attrs;
+
+        private Child(Path path, BasicFileAttributes attrs) {
+            this.path = path;
+            this.attrs = attrs;
+            String name = path.getFileName().toString();
+            this.sortKey = attrs.isDirectory() ? name + File.separatorChar : name;
+        }
+
+        @Override
+        public int compareTo(Child o) {
+            return sortKey.compareTo(o.sortKey);
+        }
+    }
+
+    /** Constructor
+     *
+     * @param repository root directory of the repository
+     * @param accessDenied called for files and directories which can not be read
+     */
+    SortedFileIterator(File repository, Consumer<Path> accessDenied) {
+        this.repository = repository;
+        this.accessDenied = accessDenied;
+        stack.push(list(repository.toPath()));
+        next = advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public FileEntry next() {
+        if(next == null)
+            throw new NoSuchElementException();
+        FileEntry result = next;
+        next = advance();
+        return result;
+    }
+
+    private FileEntry advance() {
+        while(!stack.isEmpty()) {
+            Iterator<Child> children = stack.peek();
+            if(!children.hasNext()) {
+                stack.pop();
+                continue;
+            }
+
+            Child child = children.next();
+            if(child.attrs.isDirectory())
+                stack.push(list(child.path));
+            else if(child.attrs.isRegularFile())
+                return new FileEntry(child.path.toFile(), repository, child.attrs.size(), child.attrs.lastModifiedTime().toMillis());
+        }
+        return null;
+    }
+
+    private Iterator<Child> list(Path directory) {
+        List<Child> children = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for(Path entry : entries) {
+                if(RepositoryWalker.isIgnored(entry.getFileName().toString()))
+                    continue;
+                try {
+                    children.add(new Child(entry, Files.readAttributes(entry, BasicFileAttributes.class)));
+                } catch (IOException e) {
+                    failed(entry, e);
+                }
+            }
+        } catch (IOException e) {
+            failed(directory, e);
+        }
+        Collections.sort(children);
+        return children.iterator();
+    }
+
+    private void failed(Path path, IOException exc) {
+        if(exc instanceof AccessDeniedException)
+            accessDenied.accept(path);
+        else
+            System.err.println("Error reading "+path+": "+exc);
+    }
+}
@@ -0,0 +1,129 @@
+package com.redhat.maven;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/** Compares repositories by merging sorted streams of their files.
+ *
+ * Every repository is walked in the order of relative paths, so files with the same path from all
+ * repositories meet at the head of the merge. Each such group is compared and forgotten immediately, so the
+ * memory does not depend on the number of files. Like in the size-first mode, checksums are computed only for
+ * groups of files of the same size. Groups are hashed by worker threads, but reported in the sorted order.
+ * A copy which can not be hashed keeps no checksum and its group is reported as a discrepancy.
+ */
+class StreamingComparison {
+    private final List<File> repositories;
+    private final Function<FileEntry, FileInfo> hasher;
+    private final int threads;
+    private final Consumer<Path> accessDenied;
+
+    private static class Cursor {
+        private final Iterator<FileEntry> files;
+        private FileEntry current;
+
+        private Cursor(Iterator<FileEntry> files) {
+            this.files = files;
+            this.current = files.next();
+        }
+
+        private boolean advance() {
+            current = files.hasNext() ? files.next() : null;
+            return current != null;
+        }
+    }
+
+    /** Constructor
+     *
+     * @param repositories root directories of the compared repositories
+     * @param hasher computes information about a file, may return null if the file can not be processed
+     * @param threads number of threads computing checksums
+     * @param accessDenied called for files and directories which can not be read
+     */
+    StreamingComparison(List<File> repositories, Function<FileEntry, FileInfo> hasher, int threads, Consumer<Path> accessDenied) {
+        this.repositories = repositories;
+        this.hasher = hasher;
+        this.threads = threads;
+        this.accessDenied = accessDenied;
+    }
+
+    /** Runs the comparison
+     *
+     * @param discrepancy receives relative path and files of every discrepancy, in the order of paths
+     * @return number of compared files
+     */
+    long run(BiConsumer<String, List<FileInfo>> discrepancy) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Comparator.comparing((Cursor cursor) -> cursor.current.getRelativePath()));
+        for(File repository : repositories) {
+            Iterator<FileEntry> files = new SortedFileIterator(repository, accessDenied);
+            if(files.hasNext())
+                heads.add(new Cursor(files));
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "streaming-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Map.Entry<String, Future<List<FileInfo>>>> pending = new ArrayDeque<>();
+        long count = 0;
+        try {
+            while(!heads.isEmpty()) {
+                String path = heads.peek().current.getRelativePath();
+                List<FileEntry> group = new ArrayList<>();
+                while(!heads.isEmpty() && heads.peek().current.getRelativePath().equals(path)) {
+                    Cursor cursor = heads.poll();
+                    group.add(cursor.current);
+                    if(cursor.advance())
+                        heads.add(cursor);
+                }
+                count += group.size();
+
+                if(group.size() < 2)
+                    continue; // a single file can not differ
+
+                pending.add(new AbstractMap.SimpleEntry<>(path, workers.submit(() -> resolve(group))));
+                while(pending.size() > 2 * threads)
+                    report(pending.poll(), discrepancy);
+            }
+            while(!pending.isEmpty())
+                report(pending.poll(), discrepancy);
+        } finally {
+            workers.shutdownNow();
+        }
+        return count;
+    }
+
+    private List<FileInfo> resolve(List<FileEntry> group) {
+        List<FileInfo> infos = new ArrayList<>(group.size());
+        long size = group.get(0).getSize();
+        boolean sameSize = group.stream().allMatch(entry -> entry.getSize() == size);
+        for(FileEntry entry : group) {
+            FileInfo fileInfo = sameSize ? hasher.apply(entry) : null;
+            infos.add(fileInfo != null ? fileInfo : entry.toFileInfo(null));
+        }
+        return infos;
+    }
+
+    private static void report(Map.Entry<String, Future<List<FileInfo>>> group, BiConsumer<String, List<FileInfo>> discrepancy) {
+        List<FileInfo> infos;
+        try {
+            infos = group.getValue().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while comparing "+group.getKey(), e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+
+        // copies of the same size lack a checksum only when they could not be read, they can not be proven identical
+        if(infos.stream().anyMatch(fileInfo -> fileInfo.getChecksum() == null) || !FileInfo.compareInfos(infos.toArray(new FileInfo[0])))
+            discrepancy.accept(group.getKey(), infos);
+    }
+}
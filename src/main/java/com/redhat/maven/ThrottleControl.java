@@ -0,0 +1,119 @@
+package com.redhat.maven;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/** Adjusts the limits of a running scan from a control file. The file is checked periodically and reloaded when
+ * it changes, so a scan can slow down during business hours and speed up at night without a restart.
+ *
+ * The file is a properties file:
+ * <pre>
+ * max-read-mbps=50
+ * max-files-per-sec=2000
+ * </pre>
+ * A missing key or a missing file restores the limit given on the command line, 0 means no limit.
+ */
+class ThrottleControl {
+    static final String MAX_READ_MBPS = "max-read-mbps";
+    static final String MAX_FILES_PER_SEC = "max-files-per-sec";
+    static final long BYTES_PER_MEGABYTE = 1024L * 1024L;
+
+    private final Path file;
+    private final RateLimiter bytes;
+    private final RateLimiter files;
+    private final double defaultMegabytes;
+    private final double defaultFiles;
+    private long lastModified = -1;
+    private ScheduledExecutorService poller;
+
+    /** Constructor
+     *
+     * @param file the control file
+     * @param bytes limiter of read bytes
+     * @param files limiter of files
+     * @param defaultMegabytes limit of MiB per second given on the command line
+     * @param defaultFiles limit of files per second given on the command line
+     */
+    ThrottleControl(Path file, RateLimiter bytes, RateLimiter files, double defaultMegabytes, double defaultFiles) {
+        this.file = file;
+        this.bytes = bytes;
+        this.files = files;
+        this.defaultMegabytes = defaultMegabytes;
+        this.defaultFiles = defaultFiles;
+    }
+
+    /** Reads the control file now and then checks it periodically
+     *
+     * @param intervalMillis period of checking in milliseconds
+     */
+    void start(long intervalMillis) {
+        reload();
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "throttle-control");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::reload, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        if(poller != null)
+            poller.shutdownNow();
+    }
+
+    /** Applies the control file when it changed since the last check
+     */
+    synchronized void reload() {
+        long modified;
+        try {
+            modified = Files.getLastModifiedTime(file).toMillis();
+        } catch (NoSuchFileException e) {
+            modified = 0;
+        } catch (IOException e) {
+            System.err.println("Warning: Can not check throttle control file "+file+": "+e.getMessage());
+            return;
+        }
+        if(modified == lastModified)
+            return;
+        lastModified = modified;
+
+        Properties limits = new Properties();
+        if(modified != 0) {
+            try (InputStream input = Files.newInputStream(file)) {
+                limits.load(input);
+            } catch (IOException e) {
+                System.err.println("Warning: Can not read throttle control file "+file+": "+e.getMessage());
+                return;
+            }
+        }
+
+        double megabytes = parseLimit(limits, MAX_READ_MBPS, defaultMegabytes);
+        double perSecond = parseLimit(limits, MAX_FILES_PER_SEC, defaultFiles);
+        bytes.setRate(megabytes * BYTES_PER_MEGABYTE);
+        files.setRate(perSecond);
+        System.out.println("Throttling to "+(megabytes > 0 ? megabytes+" MiB/s" : "unlimited reading")+" and "
+                +(perSecond > 0 ? perSecond+" files/s" : "unlimited files"));
+    }
+
+    private double parseLimit(Properties limits, String key, double defaultValue) {
+        String value = limits.getProperty(key);
+        if(value == null)
+            return defaultValue;
+        try {
+            double limit = Double.parseDouble(value.trim());
+            if(limit >= 0)
+                return limit;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        System.err.println("Warning: Invalid "+key+" in "+file+": "+value);
+        return defaultValue;
+    }
+}
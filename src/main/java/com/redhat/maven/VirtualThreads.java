@@ -0,0 +1,52 @@
+package com.redhat.maven;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Access to virtual threads of Java 21 from code compiled for Java 8. The executor is looked up at run time,
+ * on older runtimes there is none and the callers keep their platform threads.
+ */
+final class VirtualThreads {
+    private static final Method NEW_EXECUTOR = findFactory();
+
+    private VirtualThreads() {
+    }
+
+    /** Tells whether the runtime can start virtual threads
+     *
+     * @return true on Java 21 and newer
+     */
+    static boolean isAvailable() {
+        return NEW_EXECUTOR != null;
+    }
+
+    /** Creates an executor starting a new virtual thread for every task
+     *
+     * @return the executor, null if the runtime does not support virtual threads
+     */
+    static ExecutorService newPerTaskExecutor() {
+        if(NEW_EXECUTOR == null)
+            return null;
+        try {
+            return (ExecutorService) NEW_EXECUTOR.invoke(null);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+
+    /** Finds the factory of virtual threads, it is a preview feature before Java 21 and fails unless previews are enabled
+     *
+     * @return the method, null if virtual threads can not be used
+     */
+    private static Method findFactory() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ((ExecutorService) method.invoke(null)).shutdown();
+            return method;
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+}
@@ -5,15 +5,32 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.Assert.*;
 
@@ -124,6 +141,743 @@ public class AppTest
         assertTrue(test.getErrorsFound().contains("com/redhat/something/different2.txt"));
     }
 
+    @Test
+    public void processCompareThreads() throws IOException {
+        initializeWithTestFiles();
+
+        String[] args = new String[]{"--threads", "1", sourceDirectory1, sourceDirectory2};
+        test.resolve(args);
+        assertEquals(1, test.getThreads());
+
+        App parallel = new App(new ExitResolverTest());
+        args = new String[]{"--threads", "4", sourceDirectory1, sourceDirectory2};
+        parallel.resolve(args);
+        assertEquals(4, parallel.getThreads());
+
+        assertEquals(test.getFileInfosMap().keySet(), parallel.getFileInfosMap().keySet());
+        for(String path : test.getFileInfosMap().keySet()) {
+            assertEquals(test.getFileInfosMap().get(path).stream().sorted().map(FileInfo::getChecksum).collect(Collectors.toList()),
+                    parallel.getFileInfosMap().get(path).stream().sorted().map(FileInfo::getChecksum).collect(Collectors.toList()));
+        }
+        assertEquals(test.getErrorsFound().stream().sorted().collect(Collectors.toList()),
+                parallel.getErrorsFound().stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void processCompareSizeFirst() throws IOException {
+        initializeWithTestFiles();
+
+        String[] args = new String[]{"--size-first", sourceDirectory1, sourceDirectory2};
+        test.resolve(args);
+
+        assertEquals("Detected artifacts", 6, test.getFileInfosMap().size());
+        assertEquals(4, test.getFileInfosMap().get("com/redhat/something/same1.txt").size());
+        assertTrue(test.getFileInfosMap().get("com/redhat/something/same1.txt").stream().allMatch(fileInfo -> fileInfo.getChecksum() != null));
+
+        // Neither a single file nor files with different sizes need a checksum
+        assertNull(test.getFileInfosMap().get("com/redhat/something/justOneFile.txt").get(0).getChecksum());
+        assertTrue(test.getFileInfosMap().get("com/redhat/something/different.txt").stream().allMatch(fileInfo -> fileInfo.getChecksum() == null));
+
+        assertEquals("Not matching file patterns found", 2, test.getErrorsFound().size());
+        assertTrue(test.getErrorsFound().contains("com/redhat/something/different.txt"));
+        assertTrue(test.getErrorsFound().contains("com/redhat/something/different2.txt"));
+    }
+
+    @Test
+    public void processCompareCache() throws IOException {
+        initializeWithTestFiles();
+        String cacheFile = new File(temporaryFolder.getRoot(), "cache.bin").getPath();
+
+        String[] args = new String[]{"--cache", cacheFile, sourceDirectory1, sourceDirectory2};
+        test.resolve(args);
+        assertEquals(0, test.getCache().getHits());
+        assertEquals(13, test.getCache().getMisses());
+
+        App cached = new App(new ExitResolverTest());
+        cached.resolve(args);
+        assertEquals(13, cached.getCache().getHits());
+        assertEquals(0, cached.getCache().getMisses());
+
+        assertEquals(2, cached.getErrorsFound().size());
+        for(String path : test.getFileInfosMap().keySet()) {
+            assertEquals(test.getFileInfosMap().get(path).stream().sorted().map(FileInfo::getChecksum).collect(Collectors.toList()),
+                    cached.getFileInfosMap().get(path).stream().sorted().map(FileInfo::getChecksum).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void processCompareCacheOtherModes() throws IOException {
+        initializeWithTestFiles();
+        String cacheFile = new File(temporaryFolder.getRoot(), "cache.bin").getPath();
+        test.resolve(new String[]{"--cache", cacheFile, sourceDirectory1, sourceDirectory2});
+        assertEquals(13, test.getCache().size());
+
+        // the size-first and the streaming mode hash only some files, the entries of the others are kept
+        Path touched = Paths.get(sourceDirectory1, "repo1/com/redhat/something/same1.txt");
+        Files.setLastModifiedTime(touched, FileTime.fromMillis(Files.getLastModifiedTime(touched).toMillis() + 1000));
+        new App(new ExitResolverTest()).resolve(new String[]{"--cache", cacheFile, "--size-first", sourceDirectory1, sourceDirectory2});
+        Files.setLastModifiedTime(touched, FileTime.fromMillis(Files.getLastModifiedTime(touched).toMillis() + 1000));
+        new App(new ExitResolverTest()).resolve(new String[]{"--cache", cacheFile, "--streaming", sourceDirectory1, sourceDirectory2});
+
+        App full = new App(new ExitResolverTest());
+        full.resolve(new String[]{"--cache", cacheFile, sourceDirectory1, sourceDirectory2});
+        assertEquals(13, full.getCache().getHits());
+        assertEquals(0, full.getCache().getMisses());
+
+        // a deleted file drops out
+        Files.delete(Paths.get(sourceDirectory1, "repo1/com/redhat/something/justOneFile.txt"));
+        Files.setLastModifiedTime(touched, FileTime.fromMillis(Files.getLastModifiedTime(touched).toMillis() + 1000));
+        new App(new ExitResolverTest()).resolve(new String[]{"--cache", cacheFile, sourceDirectory1, sourceDirectory2});
+        assertEquals(12, ChecksumCache.load(Paths.get(cacheFile), DigestAlgorithm.MD5.getName()).size());
+    }
+
+    @Test
+    public void processCompareCompact() throws IOException {
+        initializeWithTestFiles();
+        File expected = new File(temporaryFolder.getRoot(), "expected.csv");
+        File actual = new File(temporaryFolder.getRoot(), "actual.csv");
+
+        test.resolve(new String[]{"--file", expected.getPath(), sourceDirectory1, sourceDirectory2});
+
+        App compact = new App(new ExitResolverTest());
+        compact.resolve(new String[]{"--compact", "--file", actual.getPath(), sourceDirectory1, sourceDirectory2});
+
+        assertEquals(13, compact.getCompactIndex().size());
+        assertTrue(compact.getFileInfosMap().isEmpty());
+        assertEquals(2, compact.getErrorsFound().size());
+        assertTrue(compact.getErrorsFound().contains("com/redhat/something/different.txt"));
+        assertTrue(compact.getErrorsFound().contains("com/redhat/something/different2.txt"));
+        assertEquals(Files.readAllLines(expected.toPath()), Files.readAllLines(actual.toPath()));
+
+        App compactSizeFirst = new App(new ExitResolverTest());
+        compactSizeFirst.resolve(new String[]{"--compact", "--size-first", sourceDirectory1, sourceDirectory2});
+        assertEquals(2, compactSizeFirst.getErrorsFound().size());
+    }
+
+    @Test
+    public void processCompareDigest() throws IOException {
+        initializeWithTestFiles();
+
+        String[] args = new String[]{"--digest", "murmur3", sourceDirectory1, sourceDirectory2};
+        test.resolve(args);
+
+        assertEquals(DigestAlgorithm.MURMUR3, test.getDigestAlgorithm());
+        assertEquals(32, test.getFileInfosMap().get("com/redhat/same3.txt").get(0).getChecksum().length());
+        assertEquals(2, test.getErrorsFound().size());
+        assertTrue(test.getErrorsFound().contains("com/redhat/something/different.txt"));
+        assertTrue(test.getErrorsFound().contains("com/redhat/something/different2.txt"));
+
+        test = new App(new ExitResolverTest());
+        test.resolve(new String[]{"--digest", "sha256", sourceDirectory1, sourceDirectory2});
+        assertEquals(64, test.getFileInfosMap().get("com/redhat/same3.txt").get(0).getChecksum().length());
+        assertEquals(2, test.getErrorsFound().size());
+
+        try {
+            new App(new ExitResolverTest()).analyzeParameters(new String[]{"--digest", "crc32", sourceDirectory1});
+            throw new RuntimeException("App should have failed!");
+        } catch (EndAppException e) {
+            assertEquals(App.ERR_WRONG_PARAMETERS, e.getReturnValue());
+        }
+    }
+
+    @Test
+    public void processCompareSidecars() throws IOException {
+        initializeWithTestFiles();
+        // a sidecar claims the file is different from the copy in repo2, another one is malformed
+        writeFile(sourceDirectory1, "repo1/com/redhat/same3.txt.md5", "0123456789abcdef0123456789ABCDEF  same3.txt");
+        writeFile(sourceDirectory1, "repo1/com/redhat/something/same2.txt.md5", "not a checksum");
+
+        String[] args = new String[]{"--trust-sidecars", sourceDirectory1, sourceDirectory2};
+        test.resolve(args);
+
+        assertEquals(1, test.getSidecars().getUsed());
+        assertEquals(3, test.getErrorsFound().size());
+        assertTrue(test.getErrorsFound().contains("com/redhat/same3.txt"));
+        assertFalse(test.getErrorsFound().contains("com/redhat/something/same2.txt"));
+
+        App verified = new App(new ExitResolverTest());
+        verified.resolve(new String[]{"--trust-sidecars", "--verify-sidecars", "100", sourceDirectory1, sourceDirectory2});
+        assertEquals(1, verified.getSidecars().getWrong());
+        assertEquals(2, verified.getErrorsFound().size());
+        assertFalse(verified.getErrorsFound().contains("com/redhat/same3.txt"));
+
+        try {
+            new App(new ExitResolverTest()).resolve(new String[]{"--trust-sidecars", "--digest", "murmur3", sourceDirectory1, sourceDirectory2});
+            throw new RuntimeException("App should have failed!");
+        } catch (EndAppException e) {
+            assertEquals(App.ERR_WRONG_PARAMETERS, e.getReturnValue());
+        }
+    }
+
+    @Test
+    public void processCompareParallelWalk() throws IOException {
+        initializeWithTestFiles();
+        // ignored files
+        writeFile(sourceDirectory1, "repo1/.index/nexus-maven-repository-index.gz", "index");
+        writeFile(sourceDirectory1, "repo1/com/redhat/maven-metadata.xml", "metadata 1");
+        writeFile(sourceDirectory2, "repo2/com/redhat/maven-metadata.xml", "metadata 2");
+
+        test.resolve(new String[]{sourceDirectory1, sourceDirectory2});
+
+        App parallel = new App(new ExitResolverTest());
+        parallel.resolve(new String[]{"--parallel-walk", "4", sourceDirectory1, sourceDirectory2});
+
+        assertEquals(6, parallel.getFileInfosMap().size());
+        assertEquals(test.getFileInfosMap().keySet(), parallel.getFileInfosMap().keySet());
+        for(String path : test.getFileInfosMap().keySet()) {
+            assertEquals(test.getFileInfosMap().get(path).stream().sorted().map(FileInfo::getChecksum).collect(Collectors.toList()),
+                    parallel.getFileInfosMap().get(path).stream().sorted().map(FileInfo::getChecksum).collect(Collectors.toList()));
+        }
+        assertEquals(2, parallel.getErrorsFound().size());
+    }
+
+    @Test
+    public void processCompareStreaming() throws IOException {
+        initializeWithTestFiles();
+        // paths whose string order differs from the order of a naive depth-first walk
+        writeFile(sourceDirectory1, "repo1/com/redhat-tools/a.txt", "one");
+        writeFile(sourceDirectory2, "repo2/com/redhat-tools/a.txt", "two");
+        writeFile(sourceDirectory1, "repo1/com/redhat/z.txt", "same");
+        writeFile(sourceDirectory2, "repo2/com/redhat/z.txt", "same");
+
+        File expected = new File(temporaryFolder.getRoot(), "expected.csv");
+        File actual = new File(temporaryFolder.getRoot(), "actual.csv");
+        test.resolve(new String[]{"--size-first", "--file", expected.getPath(), sourceDirectory1, sourceDirectory2});
+
+        App streaming = new App(new ExitResolverTest());
+        streaming.resolve(new String[]{"--streaming", "--file", actual.getPath(), sourceDirectory1, sourceDirectory2});
+
+        assertTrue(streaming.getFileInfosMap().isEmpty());
+        assertEquals(3, streaming.getErrorsFound().size());
+        assertTrue(streaming.getErrorsFound().contains("com/redhat-tools/a.txt"));
+        assertEquals(Files.readAllLines(expected.toPath()), Files.readAllLines(actual.toPath()));
+    }
+
+    @Test
+    public void processCompareMetrics() throws IOException {
+        initializeWithTestFiles();
+        File metricsFile = new File(temporaryFolder.getRoot(), "metrics.prom");
+
+        test.resolve(new String[]{"--progress", "60", "--metrics-file", metricsFile.getPath(), sourceDirectory1, sourceDirectory2});
+
+        assertEquals(13, test.getMetrics().getDiscoveredFiles());
+        assertEquals(13, test.getMetrics().getProcessedFiles());
+        assertTrue(test.getMetrics().isWalkFinished());
+        assertEquals(4, test.getMetrics().getStage(ScanMetrics.WALK).getCount());
+        assertEquals(6, test.getMetrics().getStage(ScanMetrics.COMPARE).getCount());
+        assertTrue(Files.readAllLines(metricsFile.toPath()).contains("repo_analyzer_discovered_files 13"));
+    }
+
+    @Test
+    public void processCompareManifests() throws IOException {
+        initializeWithTestFiles();
+        File manifests = temporaryFolder.newFolder("manifests");
+
+        test.resolve(new String[]{"--write-manifests", manifests.getPath(), sourceDirectory1, sourceDirectory2});
+        for(String repository : new String[]{"repo1", "repo2", "repo3", "repo4"})
+            assertTrue(new File(manifests, repository + App.MANIFEST_EXTENSION).isFile());
+
+        // only manifests, no file is read
+        App fromManifests = new App(new ExitResolverTest());
+        fromManifests.resolve(new String[]{
+                "--manifest", new File(manifests, "repo1" + App.MANIFEST_EXTENSION).getPath(),
+                "--manifest", new File(manifests, "repo2" + App.MANIFEST_EXTENSION).getPath(),
+                "--manifest", new File(manifests, "repo3" + App.MANIFEST_EXTENSION).getPath()});
+        assertEquals(2, fromManifests.getErrorsFound().size());
+        assertEquals(test.getFileInfosMap().get("com/redhat/something/different.txt").get(0).getChecksum(),
+                fromManifests.getFileInfosMap().get("com/redhat/something/different.txt").get(0).getChecksum());
+
+        // a manifest against the current state of the same repository
+        Files.write(Paths.get(sourceDirectory1, "repo1/com/redhat/same3.txt"), "changed text".getBytes());
+        App againstLive = new App(new ExitResolverTest());
+        againstLive.resolve(new String[]{"--include", "repo1",
+                "--manifest", new File(manifests, "repo1" + App.MANIFEST_EXTENSION).getPath(), sourceDirectory1});
+        assertEquals(1, againstLive.getErrorsFound().size());
+        assertTrue(againstLive.getErrorsFound().contains("com/redhat/same3.txt"));
+        Set<String> names = againstLive.getFileInfosMap().get("com/redhat/same3.txt").stream()
+                .map(FileInfo::getRepositoryName).collect(Collectors.toSet());
+        assertTrue(names.contains("repo1@repo1" + App.MANIFEST_EXTENSION));
+    }
+
+    @Test
+    public void analyzeParametersManifestStreaming() throws IOException {
+        initializeWithTestFiles();
+        File manifests = temporaryFolder.newFolder("manifests");
+        try {
+            test.resolve(new String[]{"--streaming", "--write-manifests", manifests.getPath(), sourceDirectory1, sourceDirectory2});
+            fail("Manifests are not written in the streaming mode");
+        } catch (EndAppException e) {
+            assertEquals(App.ERR_WRONG_PARAMETERS, e.getReturnValue());
+        }
+    }
+
+    @Test
+    public void processCompareWorkers() throws Exception {
+        initializeWithTestFiles();
+        App worker = new App(new ExitResolverTest());
+        Thread thread = startWorker(worker, "--threads", "2");
+        try {
+            test.resolve(new String[]{"--workers", "localhost:" + worker.getScanWorker().getPort(), sourceDirectory1, sourceDirectory2});
+        } finally {
+            worker.getScanWorker().close();
+            thread.join();
+        }
+
+        App local = new App(new ExitResolverTest());
+        local.resolve(new String[]{sourceDirectory1, sourceDirectory2});
+
+        assertEquals(new HashSet<>(local.getErrorsFound()), new HashSet<>(test.getErrorsFound()));
+        assertEquals(local.getFileInfosMap().keySet(), test.getFileInfosMap().keySet());
+        for(String path : local.getFileInfosMap().keySet())
+            assertEquals(local.getFileInfosMap().get(path).stream().sorted().map(FileInfo::getChecksum).collect(Collectors.toList()),
+                    test.getFileInfosMap().get(path).stream().sorted().map(FileInfo::getChecksum).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void processCompareWorkerOtherDigest() throws Exception {
+        initializeWithTestFiles();
+        App worker = new App(new ExitResolverTest());
+        Thread thread = startWorker(worker, "--digest", "sha1");
+        try {
+            test.resolve(new String[]{"--workers", "localhost:" + worker.getScanWorker().getPort(), sourceDirectory1, sourceDirectory2});
+            fail("Worker computes other checksums");
+        } catch (EndAppException e) {
+            assertEquals(App.ERR_ACCESS_DENIED, e.getReturnValue());
+        } finally {
+            worker.getScanWorker().close();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void processCompareWorkerBadConnections() throws Exception {
+        initializeWithTestFiles();
+        App worker = new App(new ExitResolverTest());
+        Thread thread = startWorker(worker);
+        try {
+            int port = worker.getScanWorker().getPort();
+            new Socket(InetAddress.getLoopbackAddress(), port).close();
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                socket.getOutputStream().write(new byte[]{0x52, 0x41}); // a short header
+            }
+            try (DataOutputStream socket = new DataOutputStream(new Socket(InetAddress.getLoopbackAddress(), port).getOutputStream())) {
+                socket.writeInt(0x52415752);
+                socket.writeInt(1);
+                socket.writeUTF("MD5");
+                socket.writeInt(Integer.MAX_VALUE); // more repositories than allowed
+            }
+
+            test.resolve(new String[]{"--workers", "localhost:" + port, sourceDirectory1, sourceDirectory2});
+            assertTrue(thread.isAlive());
+            assertEquals(2, test.getErrorsFound().size());
+        } finally {
+            worker.getScanWorker().close();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void processCompareWorkerRoots() throws Exception {
+        initializeWithTestFiles();
+        App worker = new App(new ExitResolverTest());
+        Thread thread = startWorker(worker, sourceDirectory1);
+        try {
+            test.resolve(new String[]{"--workers", "localhost:" + worker.getScanWorker().getPort(), sourceDirectory1, sourceDirectory2});
+            fail("Repositories of the second directory are not in the directory of the worker");
+        } catch (EndAppException e) {
+            assertEquals(App.ERR_ACCESS_DENIED, e.getReturnValue());
+        } finally {
+            worker.getScanWorker().close();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void processCompareLocalWorkers() throws IOException {
+        initializeWithTestFiles();
+
+        // the limits are split among the workers, options of hashing are passed on
+        File cache = new File(temporaryFolder.getRoot(), "cache.bin");
+        test.resolve(new String[]{"--local-workers", "2", "--max-read-mbps", "100", "--max-files-per-sec", "1000", "--cache", cache.getPath(),
+                "--read-ahead", "64", "--trust-sidecars", sourceDirectory1, sourceDirectory2});
+        assertTrue(new File(cache.getPath() + ".worker0").isFile());
+        assertTrue(new File(cache.getPath() + ".worker1").isFile());
+        assertFalse(cache.exists()); // the coordinator hashes nothing
+
+        assertEquals(6, test.getFileInfosMap().size());
+        assertEquals(2, test.getErrorsFound().size());
+        assertTrue(test.getErrorsFound().contains("com/redhat/something/different.txt"));
+        assertTrue(test.getErrorsFound().contains("com/redhat/something/different2.txt"));
+
+        File throttle = new File(temporaryFolder.getRoot(), "throttle.properties");
+        for(String[] args : Arrays.asList(new String[]{"--local-workers", "2", "--throttle-file", throttle.getPath(), sourceDirectory1},
+                new String[]{"--workers", "localhost:7070", "--max-read-mbps", "10", sourceDirectory1},
+                new String[]{"--workers", "localhost:7070", "--max-files-per-sec", "10", sourceDirectory1},
+                new String[]{"--workers", "localhost:7070", "--cache", cache.getPath(), sourceDirectory1},
+                new String[]{"--workers", "localhost:7070", "--read-ahead", "64", sourceDirectory1})) {
+            try {
+                new App(new ExitResolverTest()).analyzeParameters(args);
+                fail("Workers would ignore the options: " + Arrays.toString(args));
+            } catch (EndAppException e) {
+                assertEquals(App.ERR_WRONG_PARAMETERS, e.getReturnValue());
+            }
+        }
+    }
+
+    private static Thread startWorker(App worker, String... args) throws InterruptedException {
+        List<String> arguments = new ArrayList<>(Arrays.asList("--worker", "localhost:0"));
+        arguments.addAll(Arrays.asList(args));
+        Thread thread = new Thread(() -> worker.resolve(arguments.toArray(new String[0])));
+        thread.start();
+        while(worker.getScanWorker() == null && thread.isAlive())
+            Thread.sleep(10);
+        assertNotNull(worker.getScanWorker());
+        return thread;
+    }
+
+    @Test
+    public void processCompareChunked() throws IOException {
+        initializeWithTestFiles();
+        char[] large = new char[1536 * 1024];
+        Arrays.fill(large, 'a');
+        writeFile(sourceDirectory1, "repo1/com/redhat/large/same.bin", new String(large));
+        writeFile(sourceDirectory2, "repo2/com/redhat/large/same.bin", new String(large));
+        writeFile(sourceDirectory1, "repo1/com/redhat/large/different.bin", new String(large));
+        large[300 * 1024] = 'b';
+        writeFile(sourceDirectory2, "repo2/com/redhat/large/different.bin", new String(large));
+        writeFile(sourceDirectory2, "repo2/com/redhat/large/single.bin", new String(large));
+
+        File outputFile = new File(temporaryFolder.getRoot(), "output.csv");
+        test.resolve(new String[]{"--chunk-threshold", "1", "--chunk-size", "256", "--file", outputFile.getPath(), sourceDirectory1, sourceDirectory2});
+
+        assertEquals(3, test.getErrorsFound().size());
+        assertTrue(test.getErrorsFound().contains("com/redhat/large/different.bin"));
+        assertNotNull(test.getFileInfosMap().get("com/redhat/large/same.bin").get(0).getChecksum());
+        assertNull(test.getFileInfosMap().get("com/redhat/large/single.bin").get(0).getChecksum());
+
+        List<String> lines = Files.readAllLines(outputFile.toPath());
+        assertEquals("\"repository\",\"file\",\"checksum\",\"size\",\"difference\"", lines.get(0));
+        assertTrue(lines.contains("\"repo1\",\"com/redhat/large/different.bin\",,1572865,\"262144-524287\""));
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("\"repo1\",\"com/redhat/something/different.txt\"") && line.endsWith(",\"\"")));
+    }
+
+    @Test
+    public void processCompareDirect() throws IOException {
+        initializeWithTestFiles();
+        writeFile(sourceDirectory1, "repo1/com/redhat/direct.txt", "Same size text");
+        writeFile(sourceDirectory2, "repo2/com/redhat/direct.txt", "Same size test");
+        File outputFile = new File(temporaryFolder.getRoot(), "output.csv");
+
+        test.resolve(new String[]{"--direct-compare", "--file", outputFile.getPath(), sourceDirectory1, sourceDirectory2});
+
+        assertEquals(3, test.getErrorsFound().size());
+        assertTrue(test.getErrorsFound().contains("com/redhat/direct.txt"));
+        assertTrue(test.getErrorsFound().contains("com/redhat/something/different.txt"));
+        // four copies are hashed, two or three copies are only compared
+        assertNotNull(test.getFileInfosMap().get("com/redhat/something/same1.txt").get(0).getChecksum());
+        assertNull(test.getFileInfosMap().get("com/redhat/something/same2.txt").get(0).getChecksum());
+        assertEquals(15, test.getMetrics().getProcessedFiles());
+
+        List<String> lines = Files.readAllLines(outputFile.toPath());
+        assertEquals("\"repository\",\"file\",\"checksum\",\"size\",\"difference\"", lines.get(0));
+        assertTrue(lines.contains("\"repo1\",\"com/redhat/direct.txt\",,15,\"0-14\""));
+        assertTrue(lines.contains("\"repo1\",\"com/redhat/something/different.txt\",,9,\"\""));
+    }
+
+    @Test
+    public void processCompareIoScheduler() throws IOException {
+        initializeWithTestFiles();
+        String type = Files.getFileStore(Paths.get(sourceDirectory1)).type();
+
+        test.resolve(new String[]{"--store", type + "=1,64", "--read-order", "inode", "--read-ahead", "16", sourceDirectory1, sourceDirectory2});
+
+        assertEquals(6, test.getFileInfosMap().size());
+        assertEquals(2, test.getErrorsFound().size());
+        assertTrue(test.getErrorsFound().contains("com/redhat/something/different.txt"));
+        assertEquals(13, test.getMetrics().getProcessedFiles());
+    }
+
+    @Test
+    public void processCompareThrottled() throws IOException {
+        initializeWithTestFiles();
+        File control = new File(temporaryFolder.getRoot(), "throttle.properties");
+        Files.write(control.toPath(), "max-files-per-sec=5000\n".getBytes());
+
+        test.resolve(new String[]{"--max-read-mbps", "100", "--max-files-per-sec", "1000", "--throttle-file", control.getPath(),
+                sourceDirectory1, sourceDirectory2});
+
+        assertEquals(2, test.getErrorsFound().size());
+        assertEquals(100.0 * 1024 * 1024, test.getReadLimiter().getRate(), 0.001);
+        assertEquals(5000, test.getFileLimiter().getRate(), 0.001);
+    }
+
+    @Test
+    public void processCompareCheckpoint() throws IOException {
+        initializeWithTestFiles();
+        File journal = new File(temporaryFolder.getRoot(), "scan.journal");
+
+        test.resolve(new String[]{"--checkpoint", journal.getPath(), sourceDirectory1, sourceDirectory2});
+        assertEquals(2, test.getErrorsFound().size());
+
+        // completed repositories are not read again
+        Files.write(Paths.get(sourceDirectory2, "repo2/com/redhat/something/different.txt"), "One text\n".getBytes());
+        App resumed = new App(new ExitResolverTest());
+        resumed.resolve(new String[]{"--resume", journal.getPath(), sourceDirectory1, sourceDirectory2});
+        assertEquals(new HashSet<>(test.getErrorsFound()), new HashSet<>(resumed.getErrorsFound()));
+        assertEquals(0, resumed.getMetrics().getDiscoveredFiles());
+
+        try {
+            new App(new ExitResolverTest()).resolve(new String[]{"--checkpoint", journal.getPath(), sourceDirectory1, sourceDirectory2});
+            fail("Journal is overwritten");
+        } catch (EndAppException e) {
+            assertEquals(App.ERR_FILE_ALREADY_EXIST, e.getReturnValue());
+        }
+    }
+
+    @Test
+    public void processCompareReportFormats() throws IOException {
+        initializeWithTestFiles();
+        File csv = new File(temporaryFolder.getRoot(), "output.csv");
+        File jsonLines = new File(temporaryFolder.getRoot(), "output.jsonl");
+        File columnar = new File(temporaryFolder.getRoot(), "output.bin.gz");
+
+        test.resolve(new String[]{"--file", csv.getPath(), sourceDirectory1, sourceDirectory2});
+        new App(new ExitResolverTest()).resolve(new String[]{"--format", "jsonl", "--file", jsonLines.getPath(), sourceDirectory1, sourceDirectory2});
+        new App(new ExitResolverTest()).resolve(new String[]{"--format", "columnar", "--compress", "gzip", "--file", columnar.getPath(), sourceDirectory1, sourceDirectory2});
+
+        List<String> lines = Files.readAllLines(csv.toPath());
+        assertEquals("\"repository\",\"file\",\"checksum\",\"size\"", lines.get(0));
+        assertTrue(lines.get(1).startsWith("\"repo1\",\"com/redhat/something/different.txt\","));
+
+        List<String> objects = Files.readAllLines(jsonLines.toPath());
+        assertEquals(lines.size() - 1, objects.size());
+        assertTrue(objects.get(0).startsWith("{\"repository\":\"repo1\",\"file\":\"com/redhat/something/different.txt\",\"checksum\":\""));
+
+        List<String> rows = new ArrayList<>();
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(columnar.toPath()))) {
+            ColumnarReportWriter.read(input, (fileInfo, difference) -> rows.add("\"" + fileInfo.getRepositoryName() + "\",\""
+                    + fileInfo.getRelativePath() + "\"," + fileInfo.getChecksum() + "," + fileInfo.getSize()));
+        }
+        assertEquals(lines.subList(1, lines.size()), rows);
+    }
+
+    @Test
+    public void processCompareGavReport() throws IOException {
+        initializeWithTestFiles();
+        writeFile(sourceDirectory1, "repo1/org/a/a/1.0/a-1.0.pom", "pom");
+        writeFile(sourceDirectory2, "repo2/org/a/a/1.0/a-1.0.pom", "other pom");
+        writeFile(sourceDirectory1, "repo1/org/a/a/1.0/a-1.0.jar", "jar1");
+        writeFile(sourceDirectory2, "repo2/org/a/a/1.0/a-1.0.jar", "jar2");
+        writeFile(sourceDirectory1, "repo1/org/b/b/1.0/b-1.0.jar", "jar");
+        writeFile(sourceDirectory2, "repo2/org/b/b/1.0/b-1.0.jar", "jar");
+        File report = new File(temporaryFolder.getRoot(), "gav.csv");
+
+        test.resolve(new String[]{"--gav-report", report.getPath(), sourceDirectory1, sourceDirectory2});
+
+        // the jar of org.a:a:1.0 differs too, but the comparison stops at the pom
+        assertEquals(new HashSet<>(Arrays.asList("com/redhat/something/different.txt", "com/redhat/something/different2.txt",
+                "org/a/a/1.0/a-1.0.pom")), test.getErrorsFound());
+        assertNull(test.getFileInfosMap().get("org/a/a/1.0/a-1.0.jar").get(0).getChecksum());
+        assertEquals(Arrays.asList("\"groupId\",\"artifactId\",\"version\",\"status\",\"repositories\",\"files\",\"hashed\",\"file\",\"reason\"",
+                "\"org.a\",\"a\",\"1.0\",conflict,2,4,0,\"org/a/a/1.0/a-1.0.pom\",size",
+                "\"org.b\",\"b\",\"1.0\",identical,2,2,2,,"), Files.readAllLines(report.toPath()));
+
+        try {
+            new App(new ExitResolverTest()).analyzeParameters(new String[]{"--gav-report", report.getPath(), "-F", "--streaming", sourceDirectory1});
+            fail("Streaming mode compares file by file");
+        } catch (EndAppException e) {
+            assertEquals(App.ERR_WRONG_PARAMETERS, e.getReturnValue());
+        }
+    }
+
+    @Test
+    public void processCompareArchives() throws IOException {
+        initializeWithTestFiles();
+        writeJar(sourceDirectory1, "repo1/org/a/a-1.0.jar", 1000, "class");
+        writeJar(sourceDirectory2, "repo2/org/a/a-1.0.jar", 2000000, "class");
+        writeJar(sourceDirectory1, "repo1/org/b/b-1.0.jar", 1000, "class");
+        writeJar(sourceDirectory2, "repo2/org/b/b-1.0.jar", 1000, "changed class");
+        File report = new File(temporaryFolder.getRoot(), "report.csv");
+
+        test.resolve(new String[]{"--compare-archives", "--file", report.getPath(), sourceDirectory1, sourceDirectory2});
+
+        assertEquals(4, test.getErrorsFound().size());
+        List<String> lines = Files.readAllLines(report.toPath());
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("\"repo1\",\"org/a/a-1.0.jar\",") && line.endsWith(",\"content-identical\"")));
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("\"repo2\",\"org/b/b-1.0.jar\",") && line.endsWith(",\"content-changed org/b/B.class\"")));
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("\"repo1\",\"com/redhat/something/different.txt\",") && line.endsWith(",\"\"")));
+
+        // the classification follows the differing bytes found by comparing the copies directly
+        App direct = new App(new ExitResolverTest());
+        direct.resolve(new String[]{"--compare-archives", "--size-first", "--direct-compare", "--file", report.getPath(), "--force", sourceDirectory1, sourceDirectory2});
+        lines = Files.readAllLines(report.toPath());
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("\"repo1\",\"org/a/a-1.0.jar\",") && line.matches(".*,\"\\d+-\\d+ content-identical\"")));
+    }
+
+    private static void writeJar(String repo, String pathWithinRepo, long time, String content) throws IOException {
+        File file = new File(repo, pathWithinRepo);
+        assertTrue(file.getParentFile().mkdirs() || file.getParentFile().isDirectory());
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file.toPath()))) {
+            ZipEntry entry = new ZipEntry(pathWithinRepo.contains("/b/") ? "org/b/B.class" : "org/a/A.class");
+            entry.setTime(time);
+            zip.putNextEntry(entry);
+            zip.write(content.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+    }
+
+    @Test
+    public void processCompareWatch() throws IOException, InterruptedException {
+        initializeWithTestFiles();
+        File eventLog = new File(temporaryFolder.getRoot(), "events.log");
+
+        Thread thread = new Thread(() -> test.resolve(new String[]{"--watch", eventLog.getPath(), sourceDirectory1, sourceDirectory2}));
+        thread.start();
+        try {
+            while(eventLog.length() == 0 && thread.isAlive())
+                Thread.sleep(10);
+            assertEquals(2, test.getErrorsFound().size());
+
+            writeFile(sourceDirectory2, "repo2/com/redhat/something/justOneFile.txt", "File twice");
+            Files.delete(Paths.get(sourceDirectory1, "repo1/com/redhat/something/different.txt"));
+            long deadline = System.currentTimeMillis() + 10000;
+            while((!test.getErrorsFound().contains("com/redhat/something/justOneFile.txt")
+                    || test.getErrorsFound().contains("com/redhat/something/different.txt")) && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+        } finally {
+            test.stopWatching();
+            thread.join();
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList("com/redhat/something/justOneFile.txt", "com/redhat/something/different2.txt")), test.getErrorsFound());
+        assertEquals(1, test.getFileInfosMap().get("com/redhat/something/different.txt").size());
+        List<String> events = Files.readAllLines(eventLog.toPath());
+        assertTrue(events.get(0).endsWith("\tWATCHING\t2"));
+        assertTrue(events.stream().anyMatch(line -> line.endsWith("\tCONFLICT\tcom/redhat/something/justOneFile.txt")));
+        assertTrue(events.stream().anyMatch(line -> line.endsWith("\tRESOLVED\tcom/redhat/something/different.txt")));
+        assertTrue(events.stream().anyMatch(line -> line.endsWith("\tDELETED\tcom/redhat/something/different.txt\trepo1")));
+    }
+
+    @Test
+    public void processCompareServe() throws IOException, InterruptedException {
+        initializeWithTestFiles();
+
+        Thread thread = new Thread(() -> test.resolve(new String[]{"--serve", "0", sourceDirectory1, sourceDirectory2}));
+        thread.start();
+        try {
+            while(test.getQueryServer() == null && thread.isAlive())
+                Thread.sleep(10);
+            assertTrue(test.getQueryServer().getAddress().getAddress().isLoopbackAddress()); // not exposed without a host
+            String base = "http://localhost:" + test.getQueryServer().getPort();
+
+            String conflicts = get(base + "/conflicts");
+            assertTrue(conflicts.startsWith("{\"files\":[{\"repository\":\"repo1\",\"file\":\"com/redhat/something/different.txt\""));
+            assertTrue(conflicts.endsWith("],\"truncated\":false}\n"));
+            assertTrue(get(base + "/files?prefix=com/redhat/something/same1&limit=2").endsWith("],\"truncated\":true}\n"));
+            assertTrue(get(base + "/status").startsWith("{\"files\":13,\"paths\":6,\"conflicts\":2,\"repositories\":4,"));
+
+            writeFile(sourceDirectory2, "repo2/com/redhat/something/justOneFile.txt", "File twice");
+            HttpURLConnection connection = (HttpURLConnection) new URL(base + "/rescan").openConnection();
+            connection.setRequestMethod("POST");
+            assertEquals(202, connection.getResponseCode());
+            long deadline = System.currentTimeMillis() + 10000;
+            while(!get(base + "/status").contains("\"conflicts\":3,\"repositories\":4,") && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            assertTrue(get(base + "/conflicts?prefix=com/redhat/something/just").contains("\"repository\":\"repo2\""));
+        } finally {
+            test.stopServing();
+            thread.join();
+        }
+        assertEquals(3, test.getErrorsFound().size());
+    }
+
+    private static String get(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        assertEquals(200, connection.getResponseCode());
+        try (InputStream input = connection.getInputStream()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while((read = input.read(buffer)) > 0)
+                bytes.write(buffer, 0, read);
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void processCompareFingerprints() throws IOException {
+        initializeWithTestFiles();
+        File fingerprints = new File(temporaryFolder.getRoot(), "fingerprints");
+        for(String source : Arrays.asList(sourceDirectory1, sourceDirectory2)) {
+            try (Stream<Path> files = Files.walk(Paths.get(source))) {
+                for(Path file : files.filter(Files::isRegularFile).collect(Collectors.toList()))
+                    Files.setLastModifiedTime(file, FileTime.fromMillis(1000));
+            }
+        }
+        Set<String> expected = new HashSet<>(Arrays.asList("com/redhat/something/different.txt", "com/redhat/something/different2.txt"));
+
+        File cache = new File(temporaryFolder.getRoot(), "cache");
+        String[] args = {"--cache", cache.getPath(), "--fingerprints", fingerprints.getPath(), sourceDirectory1, sourceDirectory2};
+
+        test.resolve(args);
+        assertEquals(expected, test.getErrorsFound());
+        assertTrue(fingerprints.isFile());
+        // same size and time of modification, but no checksums yet, so the copies are hashed
+        assertEquals(2, test.getFileInfosMap().get("com/redhat/something/same2.txt").size());
+        assertNull(test.getFileInfosMap().get("com/redhat/something/justOneFile.txt"));
+
+        // nothing changed, the discrepancies are taken from the fingerprints
+        test = new App(new ExitResolverTest());
+        test.resolve(args);
+        assertEquals(expected, test.getErrorsFound());
+        assertEquals(2, test.getFileInfosMap().get("com/redhat/something/different.txt").size());
+        assertEquals(2, test.getFileInfosMap().size());
+
+        // without the previous run the cached checksums prove that the copies are identical
+        assertTrue(fingerprints.delete());
+        test = new App(new ExitResolverTest());
+        test.resolve(args);
+        assertEquals(expected, test.getErrorsFound());
+        assertNull(test.getFileInfosMap().get("com/redhat/something/same2.txt"));
+
+        try {
+            new App(new ExitResolverTest()).analyzeParameters(new String[]{"--fingerprints", fingerprints.getPath(), "--streaming", sourceDirectory1});
+            fail("Streaming mode walks in the order of paths");
+        } catch (EndAppException e) {
+            assertEquals(App.ERR_WRONG_PARAMETERS, e.getReturnValue());
+        }
+    }
+
+    @Test
+    public void processCompareVirtualThreads() throws IOException {
+        initializeWithTestFiles();
+
+        test.resolve(new String[]{"--virtual-threads", "64", "--parallel-walk", "2", sourceDirectory1, sourceDirectory2});
+
+        assertEquals(6, test.getFileInfosMap().size());
+        assertEquals(4, test.getFileInfosMap().get("com/redhat/something/same1.txt").size());
+        assertEquals(new HashSet<>(Arrays.asList("com/redhat/something/different.txt", "com/redhat/something/different2.txt")), test.getErrorsFound());
+
+        try {
+            new App(new ExitResolverTest()).analyzeParameters(new String[]{"--virtual-threads", "0", sourceDirectory1});
+            fail("No file system call could be made");
+        } catch (EndAppException e) {
+            assertEquals(App.ERR_WRONG_PARAMETERS, e.getReturnValue());
+        }
+    }
+
+    @Test
+    public void analyzeParametersWrongThreads() throws IOException {
+        initializeDirectories();
+        String[] args = new String[]{"--threads", "zero", sourceDirectory1, sourceDirectory2};
+        try {
+            test.analyzeParameters(args);
+            throw new RuntimeException("App should have failed!");
+        } catch (EndAppException e) {
+            assertEquals(App.ERR_WRONG_PARAMETERS, e.getReturnValue());
+        }
+    }
+
     @Test
     public void testInclude() throws IOException {
         initializeWithTestFiles();
@@ -0,0 +1,69 @@
+package com.redhat.maven;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ArchiveComparisonTest {
+
+    @Test
+    public void contentIdentical() throws IOException {
+        Path first = jar("first.jar", 1000, "Manifest-Version: 1.0\r\nBuild-Jdk: 1.8.0_292\r\nBuilt-By: alice\r\n",
+                "#Generated by Maven\n#Mon Jan 04 10:00:00 CET 2021\ngroupId=org.a\nartifactId=a\nversion=1.0\n", "class");
+        Path second = jar("second.jar", 2000000, "Manifest-Version: 1.0\r\nBuilt-By: bob\r\nBuild-Jdk: 11.0.9\r\n",
+                "#Generated by Maven\n#Tue Feb 02 11:00:00 CET 2021\nversion=1.0\ngroupId=org.a\nartifactId=a\n", "class");
+        assertFalse(Arrays.equals(Files.readAllBytes(first), Files.readAllBytes(second)));
+
+        ArchiveComparison.Result result = new ArchiveComparison().compare(Arrays.asList(first, second));
+        assertTrue(result.isContentIdentical());
+        assertEquals(ArchiveComparison.CONTENT_IDENTICAL, result.toString());
+    }
+
+    @Test
+    public void contentChanged() throws IOException {
+        Path first = jar("first.jar", 1000, "Manifest-Version: 1.0\r\n", "version=1.0\n", "class");
+        Path second = jar("second.jar", 1000, "Manifest-Version: 1.0\r\n", "version=1.0\n", "changed class");
+        Path third = jar("third.jar", 1000, "Manifest-Version: 1.0\r\nMain-Class: org.a.Main\r\n", "version=1.0\n", "class");
+
+        ArchiveComparison comparison = new ArchiveComparison();
+        assertEquals("org/a/A.class", comparison.compare(Arrays.asList(first, second)).getChangedEntry());
+        assertEquals(ArchiveComparison.CONTENT_CHANGED + " META-INF/MANIFEST.MF", comparison.compare(Arrays.asList(first, first, third)).toString());
+
+        assertTrue(ArchiveComparison.isArchive("org/a/a/1.0/a-1.0.JAR"));
+        assertFalse(ArchiveComparison.isArchive("org/a/a/1.0/a-1.0.jar.sha1"));
+    }
+
+    private Path jar(String name, long time, String manifest, String properties, String content) throws IOException {
+        Path jar = temporaryFolder.getRoot().toPath().resolve(name);
+        try (OutputStream output = Files.newOutputStream(jar); ZipOutputStream zip = new ZipOutputStream(output)) {
+            entry(zip, "META-INF/", time, null);
+            entry(zip, "META-INF/MANIFEST.MF", time, manifest);
+            entry(zip, "META-INF/maven/org.a/a/pom.properties", time, properties);
+            entry(zip, "org/a/A.class", time, content);
+        }
+        return jar;
+    }
+
+    private static void entry(ZipOutputStream zip, String name, long time, String content) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(time);
+        zip.putNextEntry(entry);
+        if(content != null)
+            zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+}
@@ -0,0 +1,68 @@
+package com.redhat.maven;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+public class CheckpointJournalTest {
+
+    @Test
+    public void resume() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("scan.journal");
+        File repo1 = temporaryFolder.newFolder("repo1"), repo2 = temporaryFolder.newFolder("repo2");
+        FileEntry jar = entry(repo1, "org/a/a-1.0.jar", 10, 1000);
+        FileEntry pom = entry(repo1, "org/a/a-1.0.pom", 5, 2000);
+        FileEntry other = entry(repo2, "org/a/a-1.0.jar", 11, 3000);
+
+        try (CheckpointJournal journal = CheckpointJournal.create(file, "MD5")) {
+            journal.fileDone(jar, jar.toFileInfo("0A0B"));
+            journal.fileDone(other, other.toFileInfo("0C0D"));
+            journal.fileDone(pom, pom.toFileInfo(null));
+            journal.repositoryDone(repo1);
+        }
+        long complete = Files.size(file);
+        Files.write(file, new byte[]{2, 0, 5}, StandardOpenOption.APPEND); // record cut by a crash
+
+        try (CheckpointJournal journal = CheckpointJournal.resume(file, "MD5")) {
+            assertEquals(complete, Files.size(file));
+            assertTrue(journal.isCompleted(repo1));
+            assertFalse(journal.isCompleted(repo2));
+            assertEquals(2, journal.getFiles(repo1).size());
+            assertEquals("0A0B", journal.find(jar).getChecksum());
+            assertNull(journal.find(pom).getChecksum());
+            assertEquals("repo2", journal.find(other).getRepositoryName());
+            assertNull(journal.find(entry(repo2, "org/a/a-1.0.jar", 11, 3001)));
+
+            FileEntry added = entry(repo2, "org/b/b-1.0.jar", 1, 1);
+            journal.fileDone(added, added.toFileInfo("FF"));
+            journal.repositoryDone(repo2);
+        }
+
+        try (CheckpointJournal journal = CheckpointJournal.resume(file, "MD5")) {
+            assertTrue(journal.isCompleted(repo2));
+            assertEquals(2, journal.getFiles(repo2).size());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void resumeOtherAlgorithm() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("scan.journal");
+        CheckpointJournal.create(file, "MD5").close();
+        CheckpointJournal.resume(file, "SHA-1");
+    }
+
+    private static FileEntry entry(File repository, String path, long size, long lastModified) {
+        return new FileEntry(new File(repository, path), repository, size, lastModified);
+    }
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+}
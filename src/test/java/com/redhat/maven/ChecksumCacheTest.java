@@ -0,0 +1,111 @@
+package com.redhat.maven;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ChecksumCacheTest {
+
+    @Test
+    public void missingFile() throws IOException {
+        ChecksumCache cache = ChecksumCache.load(temporaryFolder.getRoot().toPath().resolve("cache.bin"), "MD5");
+        assertEquals(0, cache.size());
+        assertNull(cache.get("/repo/a.jar", 10, 1000));
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void saveAndLoad() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("cache.bin");
+        ChecksumCache cache = ChecksumCache.load(file, "MD5");
+        cache.put("/repo/org/jboss/a.jar", 10, 1000, new byte[]{1, 2, 3});
+        cache.put("/repo/org/jboss/b.jar", 20, 2000, new byte[]{4, 5, 6});
+        cache.put("/repo/com/redhat/c.jar", 30, 3000, new byte[]{7});
+        cache.save();
+
+        cache = ChecksumCache.load(file, "MD5");
+        assertEquals(3, cache.size());
+        assertArrayEquals(new byte[]{1, 2, 3}, cache.get("/repo/org/jboss/a.jar", 10, 1000));
+        assertArrayEquals(new byte[]{4, 5, 6}, cache.get("/repo/org/jboss/b.jar", 20, 2000));
+        assertArrayEquals(new byte[]{7}, cache.get("/repo/com/redhat/c.jar", 30, 3000));
+        assertEquals(3, cache.getHits());
+
+        // modified files
+        assertNull(cache.get("/repo/org/jboss/a.jar", 11, 1000));
+        assertNull(cache.get("/repo/org/jboss/a.jar", 10, 1001));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void staleEntriesDropped() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("cache.bin");
+        File repository = temporaryFolder.newFolder("repo");
+        Path kept = repository.toPath().resolve("kept.jar"), changed = repository.toPath().resolve("changed.jar");
+        Files.write(kept, new byte[]{1});
+        Files.write(changed, new byte[]{2});
+        ChecksumCache cache = ChecksumCache.load(file, "MD5");
+        cache.put(kept.toString(), 1, Files.getLastModifiedTime(kept).toMillis(), new byte[]{1});
+        cache.put(changed.toString(), 1, Files.getLastModifiedTime(changed).toMillis(), new byte[]{2});
+        cache.put(repository.toPath().resolve("deleted.jar").toString(), 1, 1000, new byte[]{3});
+        cache.put("/other/a.jar", 1, 1000, new byte[]{4});
+        cache.save();
+
+        // nothing was looked up, only entries of the walked repository which changed or disappeared are removed
+        Files.write(changed, new byte[]{2, 2});
+        cache = ChecksumCache.load(file, "MD5");
+        cache.addRoots(Collections.singletonList(repository));
+        cache.put("/other/b.jar", 1, 1000, new byte[]{5});
+        cache.save();
+
+        cache = ChecksumCache.load(file, "MD5");
+        assertEquals(3, cache.size());
+        assertNotNull(cache.get(kept.toString(), 1, Files.getLastModifiedTime(kept).toMillis()));
+        assertNotNull(cache.get("/other/a.jar", 1, 1000));
+    }
+
+    @Test
+    public void nothingStored() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("cache.bin");
+        ChecksumCache cache = ChecksumCache.load(file, "MD5");
+        cache.put("/repo/a.jar", 10, 1000, new byte[]{1});
+        cache.save();
+        long saved = Files.getLastModifiedTime(file).toMillis();
+        Files.setLastModifiedTime(file, FileTime.fromMillis(saved - 10000));
+
+        // like a coordinator of workers, which hashes nothing itself
+        cache = ChecksumCache.load(file, "MD5");
+        cache.addRoots(Collections.singletonList(new File("/repo")));
+        cache.save();
+        assertEquals(saved - 10000, Files.getLastModifiedTime(file).toMillis());
+        assertEquals(1, ChecksumCache.load(file, "MD5").size());
+    }
+
+    @Test
+    public void otherAlgorithm() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("cache.bin");
+        ChecksumCache cache = ChecksumCache.load(file, "MD5");
+        cache.put("/repo/org/jboss/a.jar", 10, 1000, new byte[]{1, 2, 3});
+        cache.save();
+
+        assertEquals(0, ChecksumCache.load(file, "SHA-1").size());
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptedFile() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("cache.bin");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        ChecksumCache.load(file, "MD5");
+    }
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+}
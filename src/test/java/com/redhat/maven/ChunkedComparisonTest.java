@@ -0,0 +1,94 @@
+package com.redhat.maven;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ChunkedComparisonTest {
+
+    @Test
+    public void identical() throws IOException, NoSuchAlgorithmException {
+        byte[] content = new byte[2500];
+        new Random(42).nextBytes(content);
+
+        ChunkedComparison.Result result = new ChunkedComparison(DigestAlgorithm.MD5, 1000)
+                .compare(Arrays.asList(write("a.bin", content), write("b.bin", content), write("c.bin", content)));
+
+        MessageDigest block = MessageDigest.getInstance("MD5"), root = MessageDigest.getInstance("MD5");
+        for(int offset = 0; offset < content.length; offset += 1000) {
+            block.update(content, offset, Math.min(1000, content.length - offset));
+            root.update(block.digest());
+        }
+        assertTrue(result.isIdentical());
+        assertArrayEquals(root.digest(), result.getRoot());
+        assertEquals(-1, result.getDifferenceStart());
+    }
+
+    @Test
+    public void firstDifferingBlock() throws IOException {
+        byte[] content = new byte[2500];
+        new Random(42).nextBytes(content);
+        byte[] changed = content.clone();
+        changed[1500] ^= 1;
+        changed[2400] ^= 1;
+
+        ChunkedComparison.Result result = new ChunkedComparison(DigestAlgorithm.MD5, 1000)
+                .compare(Arrays.asList(write("a.bin", content), write("b.bin", content), write("c.bin", changed)));
+
+        assertFalse(result.isIdentical());
+        assertNull(result.getRoot());
+        assertEquals(1000, result.getDifferenceStart());
+        assertEquals(1999, result.getDifferenceEnd());
+    }
+
+    @Test
+    public void withoutHashing() throws IOException {
+        byte[] content = new byte[2500];
+        new Random(42).nextBytes(content);
+        byte[] changed = content.clone();
+        changed[10] ^= 1;
+        Path first = write("a.bin", content), second = write("b.bin", content), third = write("c.bin", changed);
+
+        ChunkedComparison comparison = new ChunkedComparison(null, 1000);
+        ChunkedComparison.Result identical = comparison.compare(Arrays.asList(first, second));
+        assertTrue(identical.isIdentical());
+        assertNull(identical.getRoot());
+
+        ChunkedComparison.Result different = comparison.compare(Arrays.asList(first, third));
+        assertFalse(different.isIdentical());
+        assertEquals(0, different.getDifferenceStart());
+        assertEquals(999, different.getDifferenceEnd());
+    }
+
+    @Test
+    public void truncatedCopy() throws IOException {
+        byte[] content = new byte[2500];
+        new Random(42).nextBytes(content);
+
+        ChunkedComparison.Result result = new ChunkedComparison(DigestAlgorithm.MD5, 1000)
+                .compare(Arrays.asList(write("a.bin", content), write("b.bin", Arrays.copyOf(content, 2000))));
+
+        assertFalse(result.isIdentical());
+        assertEquals(2000, result.getDifferenceStart());
+        assertEquals(2499, result.getDifferenceEnd());
+    }
+
+    private Path write(String name, byte[] content) throws IOException {
+        Path file = temporaryFolder.newFile(name).toPath();
+        Files.write(file, content);
+        return file;
+    }
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+}
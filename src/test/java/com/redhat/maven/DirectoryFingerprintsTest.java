@@ -0,0 +1,179 @@
+package com.redhat.maven;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class DirectoryFingerprintsTest {
+
+    @Test
+    public void compare() throws IOException {
+        File repo1 = temporaryFolder.newFolder("repo1"), repo2 = temporaryFolder.newFolder("repo2");
+        for(File repo : Arrays.asList(repo1, repo2)) {
+            write(repo, "org/a/a/1.0/a-1.0.jar", "jar", 1000);
+            write(repo, "org/a/a/1.0/a-1.0.pom", "pom", 1000);
+            write(repo, "org/b/b/1.0/b-1.0.jar", "jar", 1000);
+            write(repo, "org/b/b/1.0/b-1.0.pom", repo == repo1 ? "pom" : "POM", repo == repo1 ? 1000 : 2000);
+        }
+        write(repo1, "org/c/c/1.0/c-1.0.jar", "only in repo1", 1000);
+        List<File> repositories = Arrays.asList(repo1, repo2);
+        Path file = temporaryFolder.getRoot().toPath().resolve("fingerprints");
+
+        DirectoryFingerprints fingerprints = DirectoryFingerprints.load(file, DigestAlgorithm.SHA1, null);
+        List<FileEntry> entries = new ArrayList<>();
+        List<FileInfo> reused = new ArrayList<>();
+        fingerprints.compare(repositories, build(fingerprints, repositories), entries::add, reused::add);
+
+        // without cached checksums only the directory found in a single repository is skipped
+        assertEquals(Arrays.asList("org/a/a/1.0/a-1.0.jar", "org/a/a/1.0/a-1.0.jar", "org/a/a/1.0/a-1.0.pom", "org/a/a/1.0/a-1.0.pom",
+                "org/b/b/1.0/b-1.0.jar", "org/b/b/1.0/b-1.0.jar", "org/b/b/1.0/b-1.0.pom", "org/b/b/1.0/b-1.0.pom"), paths(entries));
+        assertEquals(Collections.emptyList(), reused);
+        assertEquals(1, fingerprints.getSkippedDirectories()); // org/c
+        assertEquals(1, fingerprints.getSkippedFiles());
+
+        // the discrepancy found by hashing is remembered with the fingerprints of its directories
+        String discrepancy = "org/b/b/1.0/b-1.0.pom".replace('/', File.separatorChar);
+        List<FileInfo> copies = Arrays.asList(new FileInfo(3, discrepancy, "01", repo1.getName(), 1000),
+                new FileInfo(3, discrepancy, "02", repo2.getName(), 2000));
+        fingerprints.recordDiscrepancies(Collections.singleton(discrepancy), path -> copies);
+        fingerprints.save(file);
+
+        fingerprints = DirectoryFingerprints.load(file, DigestAlgorithm.SHA1, null);
+        entries.clear();
+        fingerprints.compare(repositories, build(fingerprints, repositories), entries::add, reused::add);
+        assertEquals(Collections.emptyList(), entries);
+        assertEquals(1, fingerprints.getReusedDirectories());
+        assertEquals(Arrays.asList(discrepancy, discrepancy), reused.stream().map(FileInfo::getRelativePath).collect(Collectors.toList()));
+        fingerprints.save(file);
+
+        // a change in any repository compares the directory again
+        write(repo2, "org/b/b/1.0/b-1.0.jar", "new jar", 3000);
+        fingerprints = DirectoryFingerprints.load(file, DigestAlgorithm.SHA1, null);
+        entries.clear();
+        reused.clear();
+        fingerprints.compare(repositories, build(fingerprints, repositories), entries::add, reused::add);
+        assertEquals(Arrays.asList("org/b/b/1.0/b-1.0.jar", "org/b/b/1.0/b-1.0.jar", "org/b/b/1.0/b-1.0.pom", "org/b/b/1.0/b-1.0.pom"), paths(entries));
+        assertEquals(Collections.emptyList(), reused);
+        assertEquals(1, fingerprints.getReusedDirectories()); // org/a
+    }
+
+    @Test
+    public void preservedTimes() throws IOException {
+        // copies made by cp -p or rsync keep the size and the time of modification
+        File repo1 = temporaryFolder.newFolder("repo1"), repo2 = temporaryFolder.newFolder("repo2");
+        write(repo1, "org/a/a/1.0/a-1.0.jar", "jar", 1000);
+        write(repo2, "org/a/a/1.0/a-1.0.jar", "JAR", 1000);
+        List<File> repositories = Arrays.asList(repo1, repo2);
+
+        DirectoryFingerprints fingerprints = new DirectoryFingerprints(DigestAlgorithm.SHA1, null);
+        List<FileEntry> entries = new ArrayList<>();
+        List<DirectoryFingerprints.Node> roots = build(fingerprints, repositories);
+        assertArrayEquals(roots.get(0).getFingerprint(), roots.get(1).getFingerprint());
+        assertFalse(roots.get(0).isContent());
+        fingerprints.compare(repositories, roots, entries::add, fileInfo -> fail());
+        assertEquals(Arrays.asList("org/a/a/1.0/a-1.0.jar", "org/a/a/1.0/a-1.0.jar"), paths(entries));
+        assertEquals(0, fingerprints.getSkippedDirectories());
+    }
+
+    @Test
+    public void reuseNextToSibling() throws IOException {
+        File repo1 = temporaryFolder.newFolder("repo1"), repo2 = temporaryFolder.newFolder("repo2");
+        write(repo1, "g/a/1.0/x.jar", "x1", 1000);
+        write(repo2, "g/a/1.0/x.jar", "x2", 2000);
+        write(repo1, "g/a-b/1.0/y.jar", "y1", 1000);
+        write(repo2, "g/a-b/1.0/y.jar", "y2", 2000);
+        List<File> repositories = Arrays.asList(repo1, repo2);
+        Path file = temporaryFolder.getRoot().toPath().resolve("fingerprints");
+
+        DirectoryFingerprints fingerprints = DirectoryFingerprints.load(file, DigestAlgorithm.SHA1, null);
+        List<FileEntry> entries = new ArrayList<>();
+        fingerprints.compare(repositories, build(fingerprints, repositories), entries::add, fileInfo -> fail());
+        record(fingerprints, entries);
+        fingerprints.save(file);
+
+        // g/a-b sorts between g/a and g/a/1.0, the discrepancy below the unchanged g/a is still taken over
+        write(repo2, "g/a-b/1.0/y.jar", "y3", 3000);
+        fingerprints = DirectoryFingerprints.load(file, DigestAlgorithm.SHA1, null);
+        entries.clear();
+        List<FileInfo> reused = new ArrayList<>();
+        fingerprints.compare(repositories, build(fingerprints, repositories), entries::add, reused::add);
+        assertEquals(Arrays.asList("g/a-b/1.0/y.jar", "g/a-b/1.0/y.jar"), paths(entries));
+        assertEquals(Arrays.asList("g/a/1.0/x.jar", "g/a/1.0/x.jar"), infoPaths(reused));
+        record(fingerprints, entries);
+        fingerprints.save(file);
+
+        // and it is kept in the fingerprints for the following runs
+        fingerprints = DirectoryFingerprints.load(file, DigestAlgorithm.SHA1, null);
+        reused.clear();
+        fingerprints.compare(repositories, build(fingerprints, repositories), fileEntry -> fail(), reused::add);
+        assertEquals(Arrays.asList("g/a-b/1.0/y.jar", "g/a-b/1.0/y.jar", "g/a/1.0/x.jar", "g/a/1.0/x.jar"), infoPaths(reused));
+    }
+
+    @Test
+    public void cachedChecksums() throws IOException {
+        File repo1 = temporaryFolder.newFolder("repo1"), repo2 = temporaryFolder.newFolder("repo2");
+        Path jar1 = write(repo1, "org/a/a/1.0/a-1.0.jar", "jar", 1000);
+        Path jar2 = write(repo2, "org/a/a/1.0/a-1.0.jar", "jar", 2000);
+        List<File> repositories = Arrays.asList(repo1, repo2);
+
+        ChecksumCache cache = new ChecksumCache(temporaryFolder.getRoot().toPath().resolve("cache"), DigestAlgorithm.SHA1.getName());
+        DirectoryFingerprints fingerprints = new DirectoryFingerprints(DigestAlgorithm.SHA1, cache);
+        List<FileEntry> entries = new ArrayList<>();
+        fingerprints.compare(repositories, build(fingerprints, repositories), entries::add, fileInfo -> fail());
+        assertEquals(2, entries.size()); // different times of modification
+
+        cache.put(jar1.toAbsolutePath().toString(), 3, 1000, new byte[]{1, 2});
+        cache.put(jar2.toAbsolutePath().toString(), 3, 2000, new byte[]{1, 2});
+        fingerprints = new DirectoryFingerprints(DigestAlgorithm.SHA1, cache);
+        entries.clear();
+        fingerprints.compare(repositories, build(fingerprints, repositories), entries::add, fileInfo -> fail());
+        assertEquals(Collections.emptyList(), entries);
+        assertEquals(0, cache.getHits() + cache.getMisses());
+    }
+
+    private static List<DirectoryFingerprints.Node> build(DirectoryFingerprints fingerprints, List<File> repositories) {
+        List<DirectoryFingerprints.Node> roots = new ArrayList<>();
+        repositories.forEach(repository -> roots.add(fingerprints.build(repository, path -> fail("Can not read " + path))));
+        return roots;
+    }
+
+    private static List<String> paths(List<FileEntry> entries) {
+        return entries.stream().map(entry -> entry.getRelativePath().replace(File.separatorChar, '/')).sorted().collect(Collectors.toList());
+    }
+
+    private static List<String> infoPaths(List<FileInfo> fileInfos) {
+        return fileInfos.stream().map(fileInfo -> fileInfo.getRelativePath().replace(File.separatorChar, '/')).sorted().collect(Collectors.toList());
+    }
+
+    /** Records all hashed files as discrepancies, every copy gets its own checksum
+     */
+    private static void record(DirectoryFingerprints fingerprints, List<FileEntry> entries) {
+        List<String> discrepancies = entries.stream().map(FileEntry::getRelativePath).distinct().collect(Collectors.toList());
+        fingerprints.recordDiscrepancies(discrepancies, path -> entries.stream().filter(entry -> entry.getRelativePath().equals(path))
+                .map(entry -> entry.toFileInfo(entry.getRepository().getName())).collect(Collectors.toList()));
+    }
+
+    private static Path write(File repository, String path, String content, long lastModified) throws IOException {
+        Path file = repository.toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+        return file;
+    }
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+}
@@ -0,0 +1,68 @@
+package com.redhat.maven;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FileHasherTest {
+
+    @Test
+    public void streamedAndMapped() throws IOException, NoSuchAlgorithmException {
+        byte[] content = new byte[100_000];
+        new Random(42).nextBytes(content);
+        Path file = temporaryFolder.newFile("content.bin").toPath();
+        Files.write(file, content);
+
+        byte[] expected = MessageDigest.getInstance("MD5").digest(content);
+
+        assertArrayEquals(expected, new FileHasher(DigestAlgorithm.MD5, 4096, Long.MAX_VALUE).hash(file));
+        assertArrayEquals(expected, new FileHasher(DigestAlgorithm.MD5, 4096, 0).hash(file));
+        assertArrayEquals(expected, new FileHasher(DigestAlgorithm.MD5, FileHasher.DEFAULT_BUFFER_SIZE, FileHasher.DEFAULT_MAPPING_THRESHOLD).hash(file));
+    }
+
+    @Test
+    public void reusedBuffer() throws IOException, NoSuchAlgorithmException {
+        Path first = temporaryFolder.newFile("first.bin").toPath();
+        Files.write(first, new byte[]{1, 2, 3});
+        Path empty = temporaryFolder.newFile("empty.bin").toPath();
+
+        FileHasher hasher = new FileHasher(DigestAlgorithm.MD5, 2, Long.MAX_VALUE);
+        assertArrayEquals(MessageDigest.getInstance("MD5").digest(new byte[]{1, 2, 3}), hasher.hash(first));
+        assertArrayEquals(MessageDigest.getInstance("MD5").digest(new byte[0]), hasher.hash(empty));
+        assertArrayEquals(MessageDigest.getInstance("MD5").digest(new byte[]{1, 2, 3}), hasher.hash(first));
+    }
+
+    @Test
+    public void allAlgorithms() throws IOException {
+        byte[] content = new byte[10_000];
+        new Random(7).nextBytes(content);
+        Path file = temporaryFolder.newFile("content.bin").toPath();
+        Files.write(file, content);
+
+        for(DigestAlgorithm algorithm : DigestAlgorithm.values()) {
+            byte[] expected = algorithm.newDigest().digest(content);
+            assertArrayEquals(algorithm.getName(), expected, new FileHasher(algorithm, 1000, Long.MAX_VALUE).hash(file));
+            assertArrayEquals(algorithm.getName(), expected, new FileHasher(algorithm, 1000, 0).hash(file));
+        }
+    }
+
+    @Test
+    public void algorithmFromOption() {
+        assertEquals(DigestAlgorithm.SHA256, DigestAlgorithm.fromOption("sha256"));
+        assertEquals(DigestAlgorithm.SHA256, DigestAlgorithm.fromOption("SHA-256"));
+        assertEquals(DigestAlgorithm.MURMUR3, DigestAlgorithm.fromOption("Murmur3"));
+        assertNull(DigestAlgorithm.fromOption("crc32"));
+    }
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+}
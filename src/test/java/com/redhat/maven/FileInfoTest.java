@@ -64,6 +64,23 @@ public class FileInfoTest {
         assertFalse(FileInfo.compareInfos(f1,f2));
     }
 
+    @Test
+    public void toHex() {
+        assertEquals("", FileInfo.toHex(new byte[0]));
+        assertEquals("00FF7F80", FileInfo.toHex(new byte[]{0, (byte) 0xFF, 0x7F, (byte) 0x80}));
+    }
+
+    @Test
+    public void fromHex() {
+        assertArrayEquals(new byte[]{0, (byte) 0xFF, 0x7F, (byte) 0x80}, FileInfo.fromHex("00FF7F80"));
+        assertArrayEquals(new byte[]{(byte) 0xAB}, FileInfo.fromHex("ab"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromHexInvalid() {
+        FileInfo.fromHex("0G");
+    }
+
     @Before
     public void setup() {
         f1 = new FileInfo(10, "org/jboss/something", "1234", "repo1");
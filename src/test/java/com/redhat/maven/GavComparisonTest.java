@@ -0,0 +1,85 @@
+package com.redhat.maven;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GavComparisonTest {
+
+    @Test
+    public void compare() throws IOException {
+        File repo1 = temporaryFolder.newFolder("repo1"), repo2 = temporaryFolder.newFolder("repo2");
+        List<String> hashed = Collections.synchronizedList(new ArrayList<>());
+        List<FileInfo> stored = Collections.synchronizedList(new ArrayList<>());
+        GavComparison comparison = new GavComparison(entry -> {
+            hashed.add(entry.getRelativePath().replace(File.separatorChar, '/'));
+            try {
+                return entry.toFileInfo(new String(Files.readAllBytes(entry.getFile().toPath()), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                return null;
+            }
+        }, stored::add, entry -> { });
+
+        for(File repo : Arrays.asList(repo1, repo2)) {
+            assertTrue(comparison.add(write(repo, "org/a/a/1.0/a-1.0.pom", "pom")));
+            assertTrue(comparison.add(write(repo, "org/a/a/1.0/a-1.0.jar", repo == repo1 ? "jar1" : "jar2")));
+            assertTrue(comparison.add(write(repo, "org/a/a/1.0/a-1.0-sources.jar", repo == repo1 ? "sources1" : "sources2")));
+            assertTrue(comparison.add(write(repo, "org/b/b/2.0/b-2.0.jar", "jar")));
+            assertFalse(comparison.add(write(repo, "org/b/b/maven-metadata.xml", "metadata")));
+        }
+        assertTrue(comparison.add(write(repo1, "org/b/b/2.0/b-2.0-javadoc.jar", "javadoc")));
+        assertEquals(2, comparison.size());
+
+        comparison.compare(2);
+
+        Collections.sort(hashed);
+        assertEquals(Arrays.asList("org/a/a/1.0/a-1.0.jar", "org/a/a/1.0/a-1.0.jar", "org/a/a/1.0/a-1.0.pom", "org/a/a/1.0/a-1.0.pom",
+                "org/b/b/2.0/b-2.0.jar", "org/b/b/2.0/b-2.0.jar"), hashed);
+        assertEquals(9, stored.size());
+        assertTrue(stored.stream().filter(fileInfo -> fileInfo.getRelativePath().endsWith("sources.jar")).allMatch(fileInfo -> fileInfo.getChecksum() == null));
+
+        List<GavComparison.Result> results = comparison.getResults();
+        assertEquals(2, results.size());
+        assertEquals("org.a:a:1.0", results.get(0).getGav().toString());
+        assertTrue(results.get(0).isConflict());
+        assertEquals("org/a/a/1.0/a-1.0.jar", results.get(0).getConflictingFile().replace(File.separatorChar, '/'));
+        assertEquals(GavComparison.CHECKSUM, results.get(0).getReason());
+        assertEquals(6, results.get(0).getFiles());
+        assertEquals(4, results.get(0).getHashed());
+        assertFalse(results.get(1).isConflict());
+        assertEquals(2, results.get(1).getRepositories());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ChannelWriter output = new ChannelWriter(Channels.newChannel(bytes), 64)) {
+            assertEquals(1, comparison.writeReport(output));
+        }
+        String[] lines = new String(bytes.toByteArray(), StandardCharsets.UTF_8).split(System.lineSeparator());
+        assertEquals("\"groupId\",\"artifactId\",\"version\",\"status\",\"repositories\",\"files\",\"hashed\",\"file\",\"reason\"", lines[0]);
+        assertEquals("\"org.a\",\"a\",\"1.0\",conflict,2,6,4,\"org/a/a/1.0/a-1.0.jar\",checksum", lines[1]);
+        assertEquals("\"org.b\",\"b\",\"2.0\",identical,2,3,2,,", lines[2]);
+    }
+
+    private static FileEntry write(File repository, String path, String content) throws IOException {
+        Path file = repository.toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return new FileEntry(file.toFile(), repository, content.length(), 0);
+    }
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+}
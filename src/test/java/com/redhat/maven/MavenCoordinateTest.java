@@ -0,0 +1,48 @@
+package com.redhat.maven;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MavenCoordinateTest {
+
+    @Test
+    public void parse() {
+        MavenCoordinate.Parser parser = new MavenCoordinate.Parser();
+
+        MavenCoordinate jar = parser.parse("org/apache/commons/commons-lang3/3.12.0/commons-lang3-3.12.0.jar");
+        assertEquals("org.apache.commons", jar.getGav().getGroupId());
+        assertEquals("commons-lang3", jar.getGav().getArtifactId());
+        assertEquals("3.12.0", jar.getGav().getVersion());
+        assertEquals("", jar.getClassifier());
+        assertEquals("jar", jar.getExtension());
+        assertTrue(jar.isMainArtifact());
+        assertEquals(1, jar.getPriority());
+
+        MavenCoordinate pom = parser.parse("org\\apache\\commons\\commons-lang3\\3.12.0\\commons-lang3-3.12.0.pom");
+        assertSame(jar.getGav(), pom.getGav());
+        assertTrue(pom.isPom());
+        assertEquals(0, pom.getPriority());
+
+        MavenCoordinate sources = parser.parse("org/apache/commons/commons-lang3/3.12.0/commons-lang3-3.12.0-sources.jar");
+        assertEquals("sources", sources.getClassifier());
+        assertEquals(2, sources.getPriority());
+
+        MavenCoordinate sha1 = parser.parse("org/apache/commons/commons-lang3/3.12.0/commons-lang3-3.12.0.jar.sha1");
+        assertEquals("jar.sha1", sha1.getExtension());
+        assertFalse(sha1.isMainArtifact());
+        assertEquals(1, parser.size());
+
+        MavenCoordinate snapshot = parser.parse("com/example/a/1.0-SNAPSHOT/a-1.0-20200101.120000-12-tests.jar");
+        assertEquals("1.0-SNAPSHOT", snapshot.getGav().getVersion());
+        assertEquals("tests", snapshot.getClassifier());
+        assertEquals("jar", snapshot.getExtension());
+        assertEquals("1.0-SNAPSHOT", parser.parse("com/example/a/1.0-SNAPSHOT/a-1.0-SNAPSHOT.pom").getGav().getVersion());
+
+        assertNull(parser.parse("org/apache/commons/commons-lang3/maven-metadata.xml"));
+        assertNull(parser.parse("org/apache/commons/commons-lang3/3.12.0/_remote.repositories"));
+        assertNull(parser.parse("org/apache/commons/commons-lang3/3.12.0/commons-lang3-3.11.jar"));
+        assertNull(parser.parse("org/apache/commons/commons-lang3/3.12.0/commons-lang3-3.12.0"));
+        assertNull(parser.parse("com/redhat/something/same1.txt"));
+    }
+}
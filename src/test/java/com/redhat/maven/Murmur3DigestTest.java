@@ -0,0 +1,50 @@
+package com.redhat.maven;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class Murmur3DigestTest {
+
+    private static String hash(String text) {
+        return FileInfo.toHex(new Murmur3Digest().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void knownValues() {
+        assertEquals("00000000000000000000000000000000", hash(""));
+        assertEquals("029BBD41B3A7D8CB191DAE486A901E5B", hash("hello"));
+        assertEquals("6C1B07BC7BBC4BE347939AC4A93C437A", hash("The quick brown fox jumps over the lazy dog"));
+    }
+
+    @Test
+    public void splitUpdates() {
+        byte[] content = new byte[1000];
+        new Random(1).nextBytes(content);
+        byte[] expected = new Murmur3Digest().digest(content);
+
+        for(int split : new int[]{1, 3, 15, 16, 17, 100}) {
+            Murmur3Digest digest = new Murmur3Digest();
+            for(int offset = 0; offset < content.length; offset += split)
+                digest.update(content, offset, Math.min(split, content.length - offset));
+            assertArrayEquals("split "+split, expected, digest.digest());
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(content.length);
+            direct.put(content).flip();
+            for(int offset = 0; offset < content.length; offset += split) {
+                direct.limit(Math.min(offset + split, content.length));
+                digest.update(direct);
+            }
+            assertArrayEquals("direct split "+split, expected, digest.digest());
+        }
+
+        Murmur3Digest digest = new Murmur3Digest();
+        for(byte b : content)
+            digest.update(b);
+        assertArrayEquals(expected, digest.digest());
+    }
+}
@@ -0,0 +1,36 @@
+package com.redhat.maven;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PathDictionaryTest {
+
+    @Test
+    public void addAndGet() {
+        PathDictionary dictionary = new PathDictionary();
+        int jar = dictionary.add("org/jboss/something/1.0/something-1.0.jar");
+        int pom = dictionary.add("org/jboss/something/1.0/something-1.0.pom");
+        int other = dictionary.add("com/redhat/something/1.0/something-1.0.jar");
+
+        assertEquals(jar, dictionary.add("org/jboss/something/1.0/something-1.0.jar"));
+        assertNotEquals(jar, pom);
+        assertNotEquals(jar, other);
+
+        assertEquals("org/jboss/something/1.0/something-1.0.jar", dictionary.get(jar));
+        assertEquals("org/jboss/something/1.0/something-1.0.pom", dictionary.get(pom));
+        assertEquals("com/redhat/something/1.0/something-1.0.jar", dictionary.get(other));
+        assertEquals("ěščř/file", dictionary.get(dictionary.add("ěščř/file")));
+    }
+
+    @Test
+    public void manyPaths() {
+        PathDictionary dictionary = new PathDictionary();
+        int[] ids = new int[20000];
+        for(int i = 0; i < ids.length; i++)
+            ids[i] = dictionary.add("org/group" + (i % 100) + "/artifact" + i + "/1.0/artifact" + i + "-1.0.jar");
+
+        for(int i = 0; i < ids.length; i++)
+            assertEquals("org/group" + (i % 100) + "/artifact" + i + "/1.0/artifact" + i + "-1.0.jar", dictionary.get(ids[i]));
+    }
+}
@@ -0,0 +1,60 @@
+package com.redhat.maven;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+public class QueryIndexTest {
+
+    @Test
+    public void find() {
+        QueryIndex index = new QueryIndex(Arrays.asList(
+                Arrays.asList(new FileInfo(10, "org/a/a-1.0.jar", "0A", "repo2"), new FileInfo(10, "org/a/a-1.0.jar", "0A", "repo1")),
+                Arrays.asList(new FileInfo(20, "org/a/a-1.0.pom", "0B", "repo1"), new FileInfo(21, "org/a/a-1.0.pom", "0C", "repo2")),
+                Collections.singletonList(new FileInfo(30, "org/b/b-1.0.jar", "0A", "repo2")),
+                Collections.singletonList(new FileInfo(40, "com/c/c-1.0.jar", null, "repo1"))),
+                new HashSet<>(Collections.singletonList("org/a/a-1.0.pom")));
+
+        assertEquals(6, index.getFiles());
+        assertEquals(4, index.getPaths());
+        assertEquals(1, index.getConflicts());
+        assertEquals(Arrays.asList("repo1", "repo2"), index.getRepositories());
+
+        assertEquals(Arrays.asList("org/a/a-1.0.jar@repo1", "org/a/a-1.0.jar@repo2", "org/a/a-1.0.pom@repo1", "org/a/a-1.0.pom@repo2"),
+                find(index::findByPrefix, "org/a/", 10));
+        assertEquals(Collections.emptyList(), find(index::findByPrefix, "org/x", 10));
+
+        List<String> found = new ArrayList<>();
+        assertTrue(index.findByPrefix("", 5, fileInfo -> found.add(fileInfo.getRelativePath())));
+        assertEquals(5, found.size());
+        assertEquals("com/c/c-1.0.jar", found.get(0));
+
+        found.clear();
+        assertFalse(index.findByRepository("repo1", "org/", 10, fileInfo -> found.add(fileInfo.getRelativePath())));
+        assertEquals(Arrays.asList("org/a/a-1.0.jar", "org/a/a-1.0.pom"), found);
+
+        found.clear();
+        assertFalse(index.findByChecksum("0a", 10, fileInfo -> found.add(fileInfo.getRelativePath() + "@" + fileInfo.getRepositoryName())));
+        assertEquals(Arrays.asList("org/a/a-1.0.jar@repo1", "org/a/a-1.0.jar@repo2", "org/b/b-1.0.jar@repo2"), found);
+
+        assertEquals(Arrays.asList("org/a/a-1.0.pom@repo1", "org/a/a-1.0.pom@repo2"), find(index::findConflicts, "", 10));
+        assertEquals(Collections.emptyList(), find(index::findConflicts, "org/b", 10));
+    }
+
+    private interface Lookup {
+        boolean find(String key, int limit, Consumer<FileInfo> consumer);
+    }
+
+    private static List<String> find(Lookup lookup, String key, int limit) {
+        List<String> found = new ArrayList<>();
+        lookup.find(key, limit, fileInfo -> found.add(fileInfo.getRelativePath() + "@" + fileInfo.getRepositoryName()));
+        return found;
+    }
+}
@@ -0,0 +1,61 @@
+package com.redhat.maven;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RateLimiterTest {
+
+    @Test
+    public void unlimited() {
+        RateLimiter limiter = new RateLimiter(0);
+        long start = System.nanoTime();
+        limiter.acquire(Long.MAX_VALUE / 2);
+        limiter.acquire(Long.MAX_VALUE / 2);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void debtIsPaidByWaiting() {
+        RateLimiter limiter = new RateLimiter(100);
+        long start = System.nanoTime();
+        limiter.acquire(100); // the bucket is full at the beginning
+        limiter.acquire(30);
+        long elapsed = System.nanoTime() - start;
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(250));
+        assertTrue(elapsed < TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    public void controlFile() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("throttle.properties");
+        RateLimiter bytes = new RateLimiter(0), files = new RateLimiter(0);
+        ThrottleControl control = new ThrottleControl(file, bytes, files, 10, 0);
+
+        control.reload();
+        assertEquals(10 * ThrottleControl.BYTES_PER_MEGABYTE, bytes.getRate(), 0.001);
+        assertEquals(0, files.getRate(), 0.001);
+
+        Files.write(file, "max-read-mbps=0\nmax-files-per-sec=250\n".getBytes());
+        control.reload();
+        assertEquals(0, bytes.getRate(), 0.001);
+        assertEquals(250, files.getRate(), 0.001);
+
+        Files.write(file, "max-files-per-sec=wrong\n".getBytes());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        control.reload();
+        assertEquals(10 * ThrottleControl.BYTES_PER_MEGABYTE, bytes.getRate(), 0.001);
+        assertEquals(0, files.getRate(), 0.001);
+    }
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+}
@@ -0,0 +1,85 @@
+package com.redhat.maven;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReportWriterTest {
+
+    @Test
+    public void csv() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ReportWriter writer = ReportWriter.create(ReportWriter.Format.CSV, writer(bytes), true)) {
+            writer.write(new FileInfo(9, "org/a/\"quoted\".jar", "0A0B", "repo1"), "0-8");
+            writer.write(new FileInfo(-1, "org/b/b.jar", null, "repo2"), "");
+        }
+
+        String n = System.lineSeparator();
+        assertEquals("\"repository\",\"file\",\"checksum\",\"size\",\"difference\"" + n
+                + "\"repo1\",\"org/a/\"\"quoted\"\".jar\",0A0B,9,\"0-8\"" + n
+                + "\"repo2\",\"org/b/b.jar\",,-1,\"\"" + n, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void jsonLines() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ReportWriter writer = ReportWriter.create(ReportWriter.Format.JSON_LINES, writer(bytes), false)) {
+            writer.write(new FileInfo(1234567890123L, "org/é中😀/a\\b\"\t\u0001", null, "repo1"), "ignored");
+        }
+
+        assertEquals("{\"repository\":\"repo1\",\"file\":\"org/é中😀/a\\\\b\\\"\\t\\u0001\",\"checksum\":null,\"size\":1234567890123}\n",
+                new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void columnar() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        List<String> written = new ArrayList<>();
+        try (ReportWriter writer = ReportWriter.create(ReportWriter.Format.COLUMNAR, writer(bytes), true)) {
+            for(int i = 0; i < ColumnarReportWriter.ROW_GROUP_SIZE + 10; i++) {
+                FileInfo fileInfo = new FileInfo(i, "org/a/" + i / 2 + "/a.jar", i % 3 == 0 ? null : "0A0B", "repo" + i % 2);
+                writer.write(fileInfo, i % 5 == 0 ? "0-" + i : "");
+                written.add(row(fileInfo, i % 5 == 0 ? "0-" + i : ""));
+            }
+        }
+
+        List<String> read = new ArrayList<>();
+        ColumnarReportWriter.read(new ByteArrayInputStream(bytes.toByteArray()), (fileInfo, difference) -> read.add(row(fileInfo, difference)));
+        assertEquals(written, read);
+    }
+
+    @Test(expected = IOException.class)
+    public void columnarIncomplete() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ReportWriter writer = ReportWriter.create(ReportWriter.Format.COLUMNAR, writer(bytes), false)) {
+            writer.write(new FileInfo(1, "a.jar", "0A", "repo1"), null);
+        }
+        byte[] report = bytes.toByteArray();
+        ColumnarReportWriter.read(new ByteArrayInputStream(report, 0, report.length - 1), (fileInfo, difference) -> fail());
+    }
+
+    @Test
+    public void smallBuffer() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ChannelWriter writer = new ChannelWriter(Channels.newChannel(bytes), 4)) {
+            writer.text("long text 中😀").number(Long.MIN_VALUE).number(0);
+        }
+        assertEquals("long text 中😀" + Long.MIN_VALUE + "0", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static ChannelWriter writer(ByteArrayOutputStream bytes) {
+        return new ChannelWriter(Channels.newChannel(bytes), 64);
+    }
+
+    private static String row(FileInfo fileInfo, String difference) {
+        return fileInfo.getRepositoryName() + "|" + fileInfo.getRelativePath() + "|" + fileInfo.getChecksum() + "|" + fileInfo.getSize() + "|" + difference;
+    }
+}
@@ -0,0 +1,49 @@
+package com.redhat.maven;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RepositoryInfoTest {
+
+    @Test
+    public void manifestRoundTrip() throws IOException {
+        List<FileInfo> fileInfos = Arrays.asList(
+                new FileInfo(10, "org/b/b-1.0.jar", "0A0B", "repo1", 1_600_000_000_000L),
+                new FileInfo(0, "org/a/a-1.0.pom", "0C0D", "repo1", 0),
+                new FileInfo(3, "org/a/a-1.0.jar", null, "repo1", -5),
+                new FileInfo(7, "org/a/ä-1.0.jar", "FF", "repo2", 42));
+
+        List<RepositoryInfo> repositories = RepositoryInfo.groupByRepository(fileInfos, "MD5");
+        assertEquals(2, repositories.size());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        repositories.get(0).writeManifest(output);
+
+        List<FileInfo> read = new ArrayList<>();
+        RepositoryInfo repository = RepositoryInfo.readManifest(new ByteArrayInputStream(output.toByteArray()), read::add);
+
+        assertEquals("repo1", repository.getName());
+        assertEquals("MD5", repository.getAlgorithm());
+        assertEquals(3, read.size());
+        assertEquals("org/a/a-1.0.jar", read.get(0).getRelativePath());
+        assertNull(read.get(0).getChecksum());
+        assertEquals(-5, read.get(0).getLastModified());
+        assertEquals("org/b/b-1.0.jar", read.get(2).getRelativePath());
+        assertEquals("0A0B", read.get(2).getChecksum());
+        assertEquals(10, read.get(2).getSize());
+        assertEquals(1_600_000_000_000L, read.get(2).getLastModified());
+    }
+
+    @Test(expected = IOException.class)
+    public void readManifestInvalid() throws IOException {
+        RepositoryInfo.readManifest(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}), fileInfo -> {});
+    }
+}
@@ -0,0 +1,104 @@
+package com.redhat.maven;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class RepositoryWalkerTest {
+
+    @Test
+    public void sizeOrder() throws IOException {
+        File repository = temporaryFolder.newFolder("repo");
+        File directory = new File(repository, "org/example");
+        assertTrue(directory.mkdirs());
+        Files.write(new File(directory, "a.jar").toPath(), new byte[300]);
+        Files.write(new File(directory, "b.jar").toPath(), new byte[100]);
+        Files.write(new File(directory, "c.jar").toPath(), new byte[200]);
+        Files.write(new File(directory, "c.jar.sha1").toPath(), new byte[40]);
+
+        for(int threads : new int[]{1, 2}) {
+            List<FileEntry> entries = Collections.synchronizedList(new ArrayList<>());
+            RepositoryWalker walker = new RepositoryWalker(threads, RepositoryWalker.Order.SIZE, entries::add, path -> fail("Can not read " + path));
+            walker.walk(repository);
+            walker.shutdown();
+
+            assertEquals(Arrays.asList("b.jar", "c.jar", "a.jar"), entries.stream().map(entry -> entry.getFile().getName()).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void ignored() {
+        for(String name : Arrays.asList(".index", "maven-metadata.xml", "maven-metadata.xml.sha1", "a.jar.md5", "a.jar.sha1",
+                "a.jar.sha256", "a.jar.sha512"))
+            assertTrue(name, RepositoryWalker.isIgnored(name));
+        for(String name : Arrays.asList("a.jar", "a.pom", "a.jar.asc", "sha256"))
+            assertFalse(name, RepositoryWalker.isIgnored(name));
+    }
+
+    @Test
+    public void perTask() throws IOException {
+        File repository = temporaryFolder.newFolder("repo");
+        List<String> expected = new ArrayList<>();
+        for(int i = 0; i < 5; i++) {
+            for(int j = 0; j < 5; j++) {
+                File directory = new File(repository, "org/group" + i + "/artifact" + j);
+                assertTrue(directory.mkdirs());
+                Files.write(new File(directory, "a.jar").toPath(), new byte[i + j]);
+                Files.write(new File(directory, "a.jar.sha1").toPath(), new byte[40]);
+                expected.add("org/group" + i + "/artifact" + j + "/a.jar");
+            }
+        }
+        assertTrue(new File(repository, ".index").mkdir());
+        Files.write(new File(repository, ".index/skipped.jar").toPath(), new byte[1]);
+
+        ExecutorService tasks = Executors.newCachedThreadPool();
+        List<FileEntry> entries = Collections.synchronizedList(new ArrayList<>());
+        RepositoryWalker walker = new RepositoryWalker(tasks, 2, RepositoryWalker.Order.NONE, entries::add, path -> fail("Can not read " + path));
+        assertTrue(walker.isPerTask());
+        walker.walk(repository);
+        walker.shutdown();
+        assertTrue(tasks.isShutdown());
+
+        assertEquals(expected, entries.stream().map(entry -> entry.getRelativePath().replace(File.separatorChar, '/')).sorted().collect(Collectors.toList()));
+
+        // without virtual threads the walker falls back to the platform threads
+        RepositoryWalker fallback = new RepositoryWalker(2, RepositoryWalker.Order.NONE, 16, entry -> { }, path -> { });
+        assertEquals(VirtualThreads.isAvailable(), fallback.isPerTask());
+        fallback.shutdown();
+    }
+
+    @Test
+    public void inodeOrder() throws IOException {
+        File repository = temporaryFolder.newFolder("repo");
+        for(int i = 0; i < 20; i++)
+            Files.write(new File(repository, "file" + i + ".jar").toPath(), new byte[i]);
+
+        List<FileEntry> entries = new ArrayList<>();
+        RepositoryWalker walker = new RepositoryWalker(1, RepositoryWalker.Order.INODE, entries::add, path -> fail("Can not read " + path));
+        walker.walk(repository);
+
+        assertEquals(20, entries.size());
+        long previous = Long.MIN_VALUE;
+        for(FileEntry entry : entries) {
+            Object inode = Files.getAttribute(entry.getFile().toPath(), "unix:ino");
+            assertTrue(((Number) inode).longValue() >= previous);
+            previous = ((Number) inode).longValue();
+        }
+    }
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+}
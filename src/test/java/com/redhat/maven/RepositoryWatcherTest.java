@@ -0,0 +1,91 @@
+package com.redhat.maven;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RepositoryWatcherTest {
+
+    @Test
+    public void sweep() throws IOException {
+        File repository = temporaryFolder.newFolder("repo1");
+        Path jar = write(repository, "org/a/a-1.0.jar", "jar");
+        Path pom = write(repository, "org/a/a-1.0.pom", "pom");
+        write(repository, "org/a/a-1.0.jar.sha1", "sha1");
+
+        List<String> events = new ArrayList<>();
+        try (RepositoryWatcher watcher = new RepositoryWatcher(Collections.singletonList(repository), 0, listener(events))) {
+            watcher.start();
+            watcher.sweep();
+            assertEquals(Collections.emptyList(), events);
+
+            Files.write(jar, "changed jar".getBytes());
+            Files.delete(pom);
+            write(repository, "org/b/b-1.0.jar", "b");
+            write(repository, ".index/skipped", "ignored");
+            watcher.sweep();
+        }
+
+        Collections.sort(events);
+        assertEquals(Arrays.asList("changed org/a/a-1.0.jar 11", "changed org/b/b-1.0.jar 1", "deleted org/a/a-1.0.pom 3"), events);
+    }
+
+    @Test
+    public void processDirectories() throws IOException {
+        File repository = temporaryFolder.newFolder("repo1");
+        write(repository, "org/a/a-1.0.jar", "jar");
+
+        List<String> events = new ArrayList<>();
+        try (RepositoryWatcher watcher = new RepositoryWatcher(Collections.singletonList(repository), 0, listener(events))) {
+            watcher.start();
+
+            write(repository, "org/b/1.0/b-1.0.jar", "b");
+            watcher.process(Collections.singleton(repository.toPath().resolve("org/b")));
+            assertEquals(Collections.singletonList("changed org/b/1.0/b-1.0.jar 1"), events);
+
+            events.clear();
+            Files.delete(repository.toPath().resolve("org/a/a-1.0.jar"));
+            Files.delete(repository.toPath().resolve("org/a"));
+            watcher.process(Collections.singleton(repository.toPath().resolve("org/a")));
+            assertEquals(Collections.singletonList("deleted org/a/a-1.0.jar 3"), events);
+        }
+    }
+
+    private static RepositoryWatcher.Listener listener(List<String> events) {
+        return new RepositoryWatcher.Listener() {
+            @Override
+            public void changed(FileEntry entry) {
+                events.add("changed " + entry.getRelativePath().replace(File.separatorChar, '/') + " " + entry.getSize());
+            }
+
+            @Override
+            public void deleted(FileEntry entry) {
+                events.add("deleted " + entry.getRelativePath().replace(File.separatorChar, '/') + " " + entry.getSize());
+            }
+
+            @Override
+            public void batchDone() {
+            }
+        };
+    }
+
+    private static Path write(File repository, String path, String content) throws IOException {
+        Path file = repository.toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes());
+    }
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+}
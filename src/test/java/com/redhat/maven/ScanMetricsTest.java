@@ -0,0 +1,43 @@
+package com.redhat.maven;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class ScanMetricsTest {
+
+    @Test
+    public void histogram() {
+        ScanMetrics.LatencyHistogram histogram = new ScanMetrics.LatencyHistogram();
+        for(int i = 0; i < 99; i++)
+            histogram.record(500);
+        histogram.record(5_000_000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(1000, histogram.quantile(0.5));
+        assertTrue(histogram.quantile(1.0) >= 5_000_000);
+    }
+
+    @Test
+    public void counters() {
+        ScanMetrics metrics = new ScanMetrics();
+        FileEntry small = new FileEntry(new File("/repo1/a.jar"), new File("/repo1"), 100, 0);
+        FileEntry large = new FileEntry(new File("/repo2/a.jar"), new File("/repo2"), 1000, 0);
+        metrics.fileDiscovered(small);
+        metrics.fileDiscovered(large);
+        metrics.fileProcessed(small, 10_000);
+        metrics.fileSkipped(large);
+
+        assertEquals(2, metrics.getDiscoveredFiles());
+        assertEquals(1100, metrics.getProcessedBytes());
+        assertEquals(1, metrics.getSlowestFiles().length);
+        assertTrue(metrics.getSlowestFiles()[0].startsWith(small.getFile().getPath()));
+
+        String prometheus = metrics.toPrometheus();
+        assertTrue(prometheus.contains("repo_analyzer_discovered_files 2"));
+        assertTrue(prometheus.contains("repo_analyzer_processed_bytes{repository=\"repo2\"} 1000"));
+        assertTrue(prometheus.contains("repo_analyzer_hash_seconds_count 1"));
+    }
+}
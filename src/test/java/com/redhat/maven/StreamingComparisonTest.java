@@ -0,0 +1,47 @@
+package com.redhat.maven;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class StreamingComparisonTest {
+
+    @Test
+    public void unreadableCopy() throws IOException {
+        File repo1 = temporaryFolder.newFolder("repo1"), repo2 = temporaryFolder.newFolder("repo2");
+        for(File repo : Arrays.asList(repo1, repo2)) {
+            write(repo, "org/a/same.txt", "same");
+            write(repo, "org/a/unreadable.txt", "same");
+        }
+
+        // the copy of repo2 fails like a file without permissions
+        StreamingComparison comparison = new StreamingComparison(Arrays.asList(repo1, repo2), entry ->
+                entry.getRepository().equals(repo2) && entry.getRelativePath().endsWith("unreadable.txt") ? null : entry.toFileInfo("01"),
+                2, path -> fail("Can not read " + path));
+        Map<String, List<FileInfo>> discrepancies = new LinkedHashMap<>();
+        assertEquals(4, comparison.run(discrepancies::put));
+
+        String path = "org/a/unreadable.txt".replace('/', File.separatorChar);
+        assertEquals(Collections.singleton(path), discrepancies.keySet());
+        List<FileInfo> copies = discrepancies.get(path);
+        assertEquals(2, copies.size());
+        assertEquals(1, copies.stream().filter(fileInfo -> fileInfo.getChecksum() == null).count());
+    }
+
+    private static void write(File repository, String path, String content) throws IOException {
+        Path file = repository.toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes());
+    }
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+}